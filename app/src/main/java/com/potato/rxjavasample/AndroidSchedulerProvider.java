@@ -0,0 +1,63 @@
+package com.potato.rxjavasample;
+
+import com.potato.rxjavasample.schedulers.HashedWheelScheduler;
+import com.potato.rxjavasample.schedulers.SchedulerProvider;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * App中实际使用的线程，ui()为主线程
+ */
+public class AndroidSchedulerProvider implements SchedulerProvider {
+    private static final AndroidSchedulerProvider INSTANCE = new AndroidSchedulerProvider();
+
+    public static AndroidSchedulerProvider getInstance() {
+        return INSTANCE;
+    }
+
+    //时间轮每格10ms，一圈约5s
+    private static final long TIMER_TICK_MILLIS = 10;
+    private static final int TIMER_WHEEL_SIZE = 512;
+    private volatile Scheduler mTimer;
+
+    private AndroidSchedulerProvider() {
+    }
+
+    @Override
+    public Scheduler io() {
+        return Schedulers.io();
+    }
+
+    @Override
+    public Scheduler computation() {
+        return Schedulers.computation();
+    }
+
+    @Override
+    public Scheduler ui() {
+        return AndroidSchedulers.mainThread();
+    }
+
+    /**
+     * 只用于定时的线程，所有interval、timer、delay共用一个时间轮线程，精度为10ms，第一次使用时才创建
+     * <p>
+     * 任务在时间轮线程上执行，不能阻塞，耗时的工作需要observeOn到io()或computation()
+     */
+    public Scheduler timer() {
+        Scheduler timer = mTimer;
+        if (timer == null) {
+            synchronized (this) {
+                timer = mTimer;
+                if (timer == null) {
+                    timer = new HashedWheelScheduler(TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMER_WHEEL_SIZE);
+                    mTimer = timer;
+                }
+            }
+        }
+        return timer;
+    }
+}
@@ -7,13 +7,18 @@ import android.util.Log;
 import android.view.View;
 import android.widget.TextView;
 
-import io.reactivex.Observable;
-import io.reactivex.ObservableEmitter;
-import io.reactivex.ObservableOnSubscribe;
-import io.reactivex.android.schedulers.AndroidSchedulers;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.ApiRegistry;
+import com.potato.rxjavasample.download.DownloadEngine;
+import com.potato.rxjavasample.download.DownloadManager;
+import com.potato.rxjavasample.download.DownloadProgress;
+import com.potato.rxjavasample.download.DownloadState;
+import com.potato.rxjavasample.flow.FrameConflate;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.observers.DisposableObserver;
-import io.reactivex.schedulers.Schedulers;
 
 /**
  * 当我们需要进行一些耗时操作，例如下载、访问数据库等，
@@ -29,13 +34,38 @@ import io.reactivex.schedulers.Schedulers;
 public class BackgroundActivity extends AppCompatActivity {
     private TextView tv_download_result;
     private TextView tv_download;
+    private static final String DOWNLOAD_URL = "http://speedtest.tele2.net/10MB.zip";
+    private static final String DOWNLOAD_FILE_NAME = "10MB.zip";
+    //进度最多每100ms发送一次
+    private static final long PROGRESS_INTERVAL_MILLIS = 100;
+    //同时进行的下载数，其余的排队
+    private static final int MAX_CONCURRENT_DOWNLOADS = 2;
+
     private  String TAG = BackgroundActivity.class.getSimpleName();
     private CompositeDisposable mCompositeDisposable = new CompositeDisposable();
+    private FrameConflate<DownloadState> mProgressConflate;
+    private DisposableObserver<DownloadState> mStateObserver;
+    //下载队列是进程内共享的，界面旋转重建后并发数的限制和同一个文件只下载一次仍然有效，重复点击会拿到还在进行的下载
+    private static volatile DownloadManager sDownloadManager;
+    private DownloadManager mDownloadManager = getDownloadManager();
+
+    private static DownloadManager getDownloadManager() {
+        if (sDownloadManager == null) {
+            synchronized (BackgroundActivity.class) {
+                if (sDownloadManager == null) {
+                    sDownloadManager = new DownloadManager(new DownloadEngine(ApiRegistry.getInstance().getClient(),
+                            AndroidSchedulerProvider.getInstance(), PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS), MAX_CONCURRENT_DOWNLOADS);
+                }
+            }
+        }
+        return sDownloadManager;
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_background);
+        mProgressConflate = new FrameConflate<>(MainThreadFrameClock.create());
         tv_download = (TextView) findViewById(R.id.tv_download);
         tv_download_result = (TextView) findViewById(R.id.tv_download_result);
         tv_download.setOnClickListener(new View.OnClickListener() {
@@ -47,30 +77,34 @@ public class BackgroundActivity extends AppCompatActivity {
     }
 
     private void startDownload() {
-        Observable<Integer> observable = Observable.create(new ObservableOnSubscribe<Integer>() {
+        if (mStateObserver != null) {
+            //同一个文件只会有一个下载任务，重复点击时只需要换一个新的观察者
+            mStateObserver.dispose();
+            mCompositeDisposable.delete(mStateObserver);
+        }
+        mStateObserver = new DisposableObserver<DownloadState>() {
             @Override
-            public void subscribe(ObservableEmitter<Integer> emitter) throws Exception {
-                for (int i = 0; i < 100; i++) {
-                    if (i % 20 == 0) {
-                        try {
-                            Thread.sleep(500);//模拟下载操作
-                        } catch (InterruptedException exception) {
-                            if (!emitter.isDisposed()) {
-                                emitter.onError(exception);
-                            }
-                        }
-                    }
-                    emitter.onNext(i);
+            public void onNext(DownloadState state) {
+                Log.d(TAG, "onNext=" + state + ", " + mDownloadManager);
+                DownloadProgress progress = state.getProgress();
+                switch (state.getStatus()) {
+                    case QUEUED:
+                        tv_download_result.setText("Download Queued");
+                        break;
+                    case RUNNING:
+                        tv_download_result.setText(progress == null ? "Download Started" : "Current Progress=" + progress.getPercent() + "% ("
+                                + progress.getDownloadedBytes() + "/" + progress.getTotalBytes() + ")");
+                        break;
+                    case FAILED:
+                        tv_download_result.setText("Download Error");
+                        break;
+                    case CANCELLED:
+                        tv_download_result.setText("Download Cancelled");
+                        break;
+                    case COMPLETED:
+                        tv_download_result.setText("Download onComplete");
+                        break;
                 }
-                emitter.onComplete();
-            }
-        });
-
-        DisposableObserver<Integer> disposableObserver = new DisposableObserver<Integer>() {
-            @Override
-            public void onNext(Integer integer) {
-                Log.d(TAG, "onNext=" + integer);
-                tv_download_result.setText("Current Progress=" + integer);
             }
 
             @Override
@@ -82,20 +116,23 @@ public class BackgroundActivity extends AppCompatActivity {
 
             @Override
             public void onComplete() {
-                Log.d(TAG, "onComplete");
-                tv_download_result.setText("Download onComplete");
-
+                Log.d(TAG, "onComplete, " + mProgressConflate);
             }
         };
-        //subscribeOn:指定Observable自身在哪个调度器上执行
-        //observeOn:指定一个观察者在哪个调度器上观察这个Observable
-        observable.subscribeOn(Schedulers.io()).observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
-        mCompositeDisposable.add(disposableObserver);
+        //下载在io线程上进行，最多同时进行MAX_CONCURRENT_DOWNLOADS个，中断后再次点击会从已下载的位置继续
+        //FrameConflate代替observeOn(AndroidSchedulers.mainThread())，每一帧最多在主线程上更新一次状态，只展示最新的状态
+        File target = new File(getCacheDir(), DOWNLOAD_FILE_NAME);
+        mDownloadManager.enqueue(DOWNLOAD_URL, target).compose(mProgressConflate).subscribe(mStateObserver);
+        mCompositeDisposable.add(mStateObserver);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         mCompositeDisposable.clear();
+        //只是旋转重建时下载继续，离开界面时才取消
+        if (isFinishing()) {
+            mDownloadManager.cancelAll();
+        }
     }
 }
@@ -2,20 +2,30 @@ package com.potato.rxjavasample;
 
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.View;
+import android.widget.Button;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.util.List;
+import com.potato.rxjavasample.sensor.PercentileStats;
+import com.potato.rxjavasample.sensor.SlidingWindowAggregator;
+import com.potato.rxjavasample.sensor.WindowStats;
+import com.potato.rxjavasample.sensor.WindowedStatsAggregator;
+
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.observers.DisposableObserver;
-import io.reactivex.subjects.PublishSubject;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * 计算一段时间内数据的平均值
@@ -30,20 +40,34 @@ import io.reactivex.subjects.PublishSubject;
  *
  *这里，我们通过一个Handler循环地发送消息，
  * 实现间隔一定时间进行温度的测量，
+ * 这个Handler运行在单独的HandlerThread上，测量不会占用主线程，只有每个窗口的统计结果会切换到主线程展示。
  * 但是在测量之后，我们并不实时地更新界面的温度显示，
  * 而是每隔3s统计一次过去这段时间内的平均温度。
  *
+ * 压力测试模式下以1kHz的频率测量，同时展示主线程每秒处理消息的耗时，用来确认采样频率提高后不会影响界面。
+ *
  * 作者：泽毛
  * 链接：https://www.jianshu.com/p/5dd01b14c02a
  * 来源：简书
  * 著作权归作者所有。商业转载请联系作者获得授权，非商业转载请注明出处。
  */
 public class BufferActivity extends AppCompatActivity {
+    private static final int MSG_SAMPLE = 0;
+    private static final int MSG_START_STRESS = 1;
+    private static final int MSG_STOP_STRESS = 2;
+    //压力测试模式的采样频率
+    private static final int STRESS_RATE_HZ = 1000;
 
-    private PublishSubject<Double> mPublishSubject;
+    private WindowedStatsAggregator mAggregator;
+    private SlidingWindowAggregator mSlidingAggregator;
     private TextView tv_buffer;
+    private TextView tv_sliding;
+    private TextView tv_main_thread;
+    private Button bt_stress;
+    private boolean mStressMode;
     private String TAG = BufferActivity.class.getSimpleName();
     private CompositeDisposable compositeDisposable;
+    private HandlerThread mSamplerThread;
     private SourceHandler mSourceHandler;
 
     @Override
@@ -51,19 +75,26 @@ public class BufferActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_buffer);
         tv_buffer = (TextView) findViewById(R.id.tv_buffer);
-        mPublishSubject = PublishSubject.create();
-        DisposableObserver<List<Double>> disposableObserver = new DisposableObserver<List<Double>>() {
+        tv_sliding = (TextView) findViewById(R.id.tv_sliding);
+        tv_main_thread = (TextView) findViewById(R.id.tv_main_thread);
+        bt_stress = (Button) findViewById(R.id.bt_stress);
+        bt_stress.setOnClickListener(new View.OnClickListener() {
             @Override
-            public void onNext(List<Double> doubles) {
-                double result = 0;
-                if (doubles.size() > 0) {
-                    for (double d : doubles) {
-                        result += d;
-                    }
-                    result = result / doubles.size();
-                }
-                Log.d(TAG, "更新平均温度：" + result);
-                tv_buffer.setText("过去3秒收到了" + doubles.size() + "个数据，平均温度为：" + result);
+            public void onClick(View v) {
+                mStressMode = !mStressMode;
+                bt_stress.setText(mStressMode ? "停止压力测试" : "开始压力测试（1kHz）");
+                //采样状态只在采样线程上修改
+                mSourceHandler.sendEmptyMessage(mStressMode ? MSG_START_STRESS : MSG_STOP_STRESS);
+            }
+        });
+        //前两个形参分别对应窗口时间的值和单位，第三个是计时所在的scheduler
+        mAggregator = new WindowedStatsAggregator(3000, TimeUnit.MILLISECONDS, Schedulers.computation());
+        DisposableObserver<WindowStats> disposableObserver = new DisposableObserver<WindowStats>() {
+            @Override
+            public void onNext(WindowStats stats) {
+                Log.d(TAG, "更新平均温度：" + stats);
+                tv_buffer.setText(String.format(Locale.getDefault(), "过去3秒收到了%d个数据，平均温度为：%.2f\n最低：%.2f，最高：%.2f，标准差：%.2f",
+                        stats.getCount(), stats.getMean(), stats.getMin(), stats.getMax(), stats.getStandardDeviation()));
             }
 
             @Override
@@ -77,39 +108,119 @@ public class BufferActivity extends AppCompatActivity {
             }
         };
 
-        //两个形参分别对应是时间的值和单位
-        mPublishSubject.buffer(3000, TimeUnit.MILLISECONDS).observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
+        mAggregator.windows().observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
         compositeDisposable = new CompositeDisposable();
         compositeDisposable.add(disposableObserver);
-        //开始测量温度
-        mSourceHandler = new SourceHandler();
-        mSourceHandler.sendEmptyMessage(0);
+
+        //每1秒统计一次过去10秒的温度分布，温度范围0 ~ 40度，精度0.1度
+        mSlidingAggregator = new SlidingWindowAggregator(10, 1, TimeUnit.SECONDS, 0, 40, 400, Schedulers.computation());
+        DisposableObserver<PercentileStats> slidingObserver = new DisposableObserver<PercentileStats>() {
+            @Override
+            public void onNext(PercentileStats stats) {
+                Log.d(TAG, "更新温度分布：" + stats);
+                tv_sliding.setText(String.format(Locale.getDefault(), "过去10秒收到了%d个数据，平均温度为：%.2f\np50：%.2f，p95：%.2f，p99：%.2f",
+                        stats.getStats().getCount(), stats.getStats().getMean(), stats.getP50(), stats.getP95(), stats.getP99()));
+            }
+
+            @Override
+            public void onError(Throwable e) {
+
+            }
+
+            @Override
+            public void onComplete() {
+
+            }
+        };
+        mSlidingAggregator.windows().observeOn(AndroidSchedulers.mainThread()).subscribe(slidingObserver);
+        compositeDisposable.add(slidingObserver);
+
+        DisposableObserver<Long> monitorObserver = new DisposableObserver<Long>() {
+            @Override
+            public void onNext(Long busyMillis) {
+                tv_main_thread.setText("主线程耗时：" + busyMillis + "ms/s");
+            }
+
+            @Override
+            public void onError(Throwable e) {
+
+            }
+
+            @Override
+            public void onComplete() {
+
+            }
+        };
+        new MainLooperMonitor().busyMillisPerSecond().subscribe(monitorObserver);
+        compositeDisposable.add(monitorObserver);
+
+        //开始测量温度，测量在单独的线程上进行
+        mSamplerThread = new HandlerThread("TemperatureSampler");
+        mSamplerThread.start();
+        mSourceHandler = new SourceHandler(mSamplerThread.getLooper());
+        mSourceHandler.sendEmptyMessage(MSG_SAMPLE);
     }
 
+    //只在采样线程上运行
     private class SourceHandler extends Handler {
+        private boolean mStress;
+        private long mStressStart;
+        private long mStressSamples;
+
+        SourceHandler(Looper looper) {
+            super(looper);
+        }
+
         @Override
         public void handleMessage(@NonNull Message msg) {
             super.handleMessage(msg);
-            double temperature = Math.random() * 25 + 5;
-            updateTemperature(temperature);
-            //循环发送
-            sendEmptyMessageDelayed(0, 250 + (long) (250 + Math.random()));
+            switch (msg.what) {
+                case MSG_START_STRESS:
+                    mStress = true;
+                    mStressStart = SystemClock.uptimeMillis();
+                    mStressSamples = 0;
+                    break;
+                case MSG_STOP_STRESS:
+                    mStress = false;
+                    break;
+                default:
+                    //循环发送
+                    if (mStress) {
+                        sampleStress();
+                        sendEmptyMessageDelayed(MSG_SAMPLE, 1);
+                    } else {
+                        double temperature = Math.random() * 25 + 5;
+                        Log.d(TAG, "温度测量结果：" + temperature);
+                        updateTemperature(temperature);
+                        sendEmptyMessageDelayed(MSG_SAMPLE, 250 + (long) (250 + Math.random()));
+                    }
+                    break;
+            }
+        }
+
+        //Handler的延时精度只有毫秒并且会有误差，按照经过的时间补齐应该测量的次数，保证平均频率为STRESS_RATE_HZ
+        private void sampleStress() {
+            long due = (SystemClock.uptimeMillis() - mStressStart) * STRESS_RATE_HZ / 1000;
+            while (mStressSamples < due) {
+                updateTemperature(Math.random() * 25 + 5);
+                mStressSamples++;
+            }
         }
     }
 
     private void updateTemperature(double temperature) {
-        Log.d(TAG, "温度测量结果：" + temperature);
         //事件并不会直接传递到Observer的onNext方法中，
-        // 而是放在缓冲区中，直到事件到之后，
-        // 再将所有在这段缓冲事件内放入缓冲区中的值，
-        // 放在一个List中一起发送到下游。
-        mPublishSubject.onNext(temperature);
+        // 而是累加到当前窗口的统计值中，直到窗口结束之后，
+        // 再将这段时间内的个数、平均值、最值、方差一起发送到下游。
+        mAggregator.record(temperature);
+        mSlidingAggregator.record(temperature);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         mSourceHandler.removeCallbacksAndMessages(null);
+        mSamplerThread.quit();
         compositeDisposable.clear();
     }
 }
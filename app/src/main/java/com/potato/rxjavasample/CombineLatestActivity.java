@@ -3,16 +3,18 @@ package com.potato.rxjavasample;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.EditText;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import io.reactivex.Observable;
+import com.potato.rxjavasample.flow.FlowableInput;
+
+import io.reactivex.Flowable;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.functions.BiFunction;
-import io.reactivex.observers.DisposableObserver;
-import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.DisposableSubscriber;
 
 
 /**
@@ -39,12 +41,14 @@ import io.reactivex.subjects.PublishSubject;
  * combineLatest则是在其中一个Observable发射数据项后，组合所有Observable所发射的最后一个数据项（前提是所有的Observable都至少发射过一个数据项）。
  */
 public class CombineLatestActivity extends AppCompatActivity {
+    private static final String TAG = CombineLatestActivity.class.getSimpleName();
 
     private EditText etPwd;
     private EditText etName;
     private Button btnLogin;
-    private PublishSubject<String> nameSubject;
-    private PublishSubject<String> pwdSubject;
+    //输入框只关心最新的内容
+    private FlowableInput<String> nameSubject;
+    private FlowableInput<String> pwdSubject;
     private CompositeDisposable compositeDisposable;
 
     @Override
@@ -55,11 +59,11 @@ public class CombineLatestActivity extends AppCompatActivity {
         etPwd = (EditText) findViewById(R.id.et_pwd);
         btnLogin = (Button) findViewById(R.id.btn_login);
 
-        nameSubject = PublishSubject.create();
-        pwdSubject = PublishSubject.create();
+        nameSubject = FlowableInput.latest();
+        pwdSubject = FlowableInput.latest();
         etName.addTextChangedListener(new EditTextMonitor(nameSubject));
         etPwd.addTextChangedListener(new EditTextMonitor(pwdSubject));
-        Observable<Boolean> observable = Observable.combineLatest(nameSubject, pwdSubject, new BiFunction<String, String, Boolean>() {
+        Flowable<Boolean> observable = Flowable.combineLatest(nameSubject.flowable(), pwdSubject.flowable(), new BiFunction<String, String, Boolean>() {
             @Override
             public Boolean apply(String name, String pwd) throws Exception {
                 int nameLen = name.length();
@@ -67,7 +71,7 @@ public class CombineLatestActivity extends AppCompatActivity {
                 return nameLen >= 2 && nameLen <= 8 && pwdLen >= 4 && pwdLen <= 16;
             }
         });
-        DisposableObserver<Boolean> disposableObserver = new DisposableObserver<Boolean>() {
+        DisposableSubscriber<Boolean> disposableObserver = new DisposableSubscriber<Boolean>() {
             @Override
             public void onNext(Boolean value) {
                 btnLogin.setText(value ? "登录" : "用户名或密码无效");
@@ -85,13 +89,14 @@ public class CombineLatestActivity extends AppCompatActivity {
         };
         observable.subscribe(disposableObserver);
         compositeDisposable = new CompositeDisposable();
+        compositeDisposable.add(disposableObserver);
 
     }
 
     private class EditTextMonitor implements TextWatcher {
-        PublishSubject<String> mPublishSubject;
+        FlowableInput<String> mPublishSubject;
 
-        public EditTextMonitor(PublishSubject<String> mSubject) {
+        public EditTextMonitor(FlowableInput<String> mSubject) {
             mPublishSubject = mSubject;
         }
 
@@ -114,6 +119,7 @@ public class CombineLatestActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        Log.d(TAG, "用户名输入：" + nameSubject + "，密码输入：" + pwdSubject);
         compositeDisposable.clear();
     }
 }
@@ -0,0 +1,63 @@
+package com.potato.rxjavasample;
+
+import android.os.Looper;
+import android.util.Printer;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+
+/**
+ * 统计主线程每秒有多少毫秒在处理消息
+ * <p>
+ * Looper在分发每条消息的前后都会调用setMessageLogging设置的Printer（">>>>> Dispatching"和"<<<<< Finished"），
+ * 两次调用之间的时间就是这条消息占用主线程的时间，累加后每秒发送一次。
+ * 同一时间只能有一个Printer，订阅期间会替换掉之前设置的Printer，取消订阅时清除。
+ */
+public class MainLooperMonitor implements Printer {
+    private long mDispatchStart = -1;
+    private long mBusyNanos;
+
+    /**
+     * 每秒发送一次过去一秒主线程处理消息的总耗时，毫秒
+     */
+    public Observable<Long> busyMillisPerSecond() {
+        return Observable.interval(1, TimeUnit.SECONDS, AndroidSchedulers.mainThread())
+                .map(new Function<Long, Long>() {
+                    @Override
+                    public Long apply(Long tick) throws Exception {
+                        long busy = mBusyNanos;
+                        mBusyNanos = 0;
+                        return TimeUnit.NANOSECONDS.toMillis(busy);
+                    }
+                })
+                .doOnSubscribe(new Consumer<Disposable>() {
+                    @Override
+                    public void accept(Disposable disposable) throws Exception {
+                        Looper.getMainLooper().setMessageLogging(MainLooperMonitor.this);
+                    }
+                })
+                .doOnDispose(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        Looper.getMainLooper().setMessageLogging(null);
+                    }
+                });
+    }
+
+    //只会在主线程上调用
+    @Override
+    public void println(String x) {
+        if (x.startsWith(">>>>>")) {
+            mDispatchStart = System.nanoTime();
+        } else if (x.startsWith("<<<<<") && mDispatchStart >= 0) {
+            mBusyNanos += System.nanoTime() - mDispatchStart;
+            mDispatchStart = -1;
+        }
+    }
+}
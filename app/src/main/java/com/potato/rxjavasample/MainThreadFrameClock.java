@@ -0,0 +1,62 @@
+package com.potato.rxjavasample;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.potato.rxjavasample.flow.FrameClock;
+
+/**
+ * 主线程的显示帧
+ * <p>
+ * API 16及以上使用Choreographer，回调和屏幕刷新对齐；
+ * 更低的版本没有Choreographer，用Handler对齐到下一个16ms的整数倍。
+ */
+public final class MainThreadFrameClock {
+    private static final long FRAME_MILLIS = 16;
+
+    private MainThreadFrameClock() {
+    }
+
+    /**
+     * Choreographer是每个Looper线程一个，需要在主线程上调用
+     */
+    public static FrameClock create() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return new ChoreographerClock(Choreographer.getInstance());
+        }
+        return new HandlerClock();
+    }
+
+    //单独的类，API 16以下不会加载Choreographer
+    private static class ChoreographerClock implements FrameClock {
+        private final Choreographer mChoreographer;
+
+        ChoreographerClock(Choreographer choreographer) {
+            mChoreographer = choreographer;
+        }
+
+        @Override
+        public void postFrameCallback(final Runnable action) {
+            //postFrameCallback可以在任意线程调用
+            mChoreographer.postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private static class HandlerClock implements FrameClock {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void postFrameCallback(Runnable action) {
+            long now = SystemClock.uptimeMillis();
+            mHandler.postAtTime(action, now - now % FRAME_MILLIS + FRAME_MILLIS);
+        }
+    }
+}
@@ -12,21 +12,30 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.jakewharton.retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.ApiRegistry;
+import com.potato.rxjavasample.conditional.ChangeDetector;
+import com.potato.rxjavasample.flow.FlowableInput;
+import com.potato.rxjavasample.retry.RetryPolicy;
+import com.potato.rxjavasample.retry.RetryTransformer;
+import com.potato.rxjavasample.trace.RxTracer;
 
+import org.reactivestreams.Publisher;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
-import io.reactivex.ObservableSource;
-import io.reactivex.Observer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
-import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
 import io.reactivex.schedulers.Schedulers;
-import io.reactivex.subjects.PublishSubject;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
+import io.reactivex.subscribers.DisposableSubscriber;
 
 public class NetStatusAndRetryActivity extends AppCompatActivity {
     private static final String TAG = NetStatusAndRetryActivity.class.getSimpleName();
@@ -36,22 +45,53 @@ public class NetStatusAndRetryActivity extends AppCompatActivity {
             101010100L,
             101030100L
     };
+    //同一个城市10分钟内不重复请求天气
+    private static final long WEATHER_CACHE_TTL_MINUTES = 10;
+    private static final int WEATHER_CACHE_SIZE = 16;
+    //同一时间只请求一个城市的天气，请求期间收到的定位和网络状态由FlowableInput丢弃旧的，
+    //merge每个输入只预取一个，所以请求结束后最多再请求一个旧的城市，然后就是最新的
+    private static final int MAX_WEATHER_REQUESTS = 1;
+    private static final int MERGE_SOURCES = 2;
+    private static final int MERGE_PREFETCH = 1;
+    //打开后统计天气数据流中每个操作符的速率、耗时、observeOn的排队数和线程切换，每次展示天气时输出
+    private static final boolean TRACE_WEATHER_PIPELINE = false;
+    private static final String WEATHER_PIPELINE = "weather";
+    //单个天气请求遇到网络错误时的重试，和其他请求共用重试预算
+    private static final long WEATHER_RETRY_BASE_MILLIS = 1000;
+    private static final long WEATHER_RETRY_MAX_MILLIS = 10000;
+    private static final long WEATHER_RETRY_ELAPSED_SECONDS = 30;
     private Thread mLocationThread;
-    private PublishSubject<Long> mCityPublish;
-    private PublishSubject<Boolean> mNetStatusPublish;
+    private FlowableInput<Long> mCityPublish;
+    private FlowableInput<Boolean> mNetStatusPublish;
     private BroadcastReceiver mReceiver;
     private CompositeDisposable mCompositeDisposable;
     private TextView tv_show_result;
     private long mCacheCity = -1;
+    private CachedWeatherApi mWeatherApi;
+    private ChangeDetector<WeatherEnity> mWeatherChanges;
+    private RetryTransformer<WeatherEnity> mWeatherRetry;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_net_status_and_retry);
         tv_show_result = (TextView) findViewById(R.id.tv_show_result);
-        mCityPublish = PublishSubject.create();
-        mNetStatusPublish = PublishSubject.create();
+        mCityPublish = FlowableInput.latest();
+        mNetStatusPublish = FlowableInput.latest();
         mCompositeDisposable = new CompositeDisposable();
+        //缓存过期后使用条件请求，天气没有变化时只有一个304，不需要重新下载和解析；内容相同时返回同一个对象
+        mWeatherChanges = ChangeDetector.reuseUnchanged(ApiRegistry.getInstance().getAdapter(WeatherEnity.class),
+                ApiRegistry.getInstance().getConditionalInterceptor(), WEATHER_CACHE_SIZE, Schedulers.computation());
+        mWeatherApi = new CachedWeatherApi(new ConditionalWeatherApi(ApiRegistry.getInstance().create(ApiRegistry.WEATHER_BASE_URL, WeatherApi.class),
+                mWeatherChanges), WEATHER_CACHE_TTL_MINUTES, TimeUnit.MINUTES, WEATHER_CACHE_SIZE);
+        mWeatherRetry = RetryPolicy.decorrelatedJitter(WEATHER_RETRY_MAX_MILLIS, TimeUnit.MILLISECONDS)
+                .retryOn(IOException.class, WEATHER_RETRY_BASE_MILLIS, TimeUnit.MILLISECONDS)
+                .withMaxElapsed(WEATHER_RETRY_ELAPSED_SECONDS, TimeUnit.SECONDS)
+                .withBudget(ApiRegistry.getInstance().getRetryBudget())
+                .transformer(Schedulers.computation());
+        if (TRACE_WEATHER_PIPELINE) {
+            RxTracer.enable();
+        }
         registerBroadcast();
         startUpdateLocation();
         startUpdateWeather();
@@ -90,8 +130,8 @@ public class NetStatusAndRetryActivity extends AppCompatActivity {
      * <p>
      * 使用doOnNext，在返回结果给订阅者之前，先把最新一次的定位结果存储起来，用于在之后网络重连之后进行请求。
      */
-    private Observable<Long> getCityPublish() {
-        return mCityPublish.distinctUntilChanged().doOnNext(new Consumer<Long>() {
+    private Flowable<Long> getCityPublish() {
+        return mCityPublish.flowable().distinctUntilChanged().doOnNext(new Consumer<Long>() {
             @Override
             public void accept(Long l) throws Exception {
                 saveCacheCity(l);
@@ -109,7 +149,7 @@ public class NetStatusAndRetryActivity extends AppCompatActivity {
 
     /**
      * 网络状态模块
-     * 与定位模块类似，我们也需要一个mNetStatusPublish，其类型为PublishSubject，
+     * 与定位模块类似，我们也需要一个mNetStatusPublish，其类型为FlowableInput（支持背压的PublishSubject），
      * 它在网络状态发生变化时通知订阅者。这里需要注册一个广播，在收到广播之后，我们通过mNetStatusPublish通知订阅者
      */
     private void registerBroadcast() {
@@ -140,8 +180,8 @@ public class NetStatusAndRetryActivity extends AppCompatActivity {
      *
      * @return
      */
-    private Observable<Long> getNetStatusPublish() {
-        return mNetStatusPublish.filter(new Predicate<Boolean>() {
+    private Flowable<Long> getNetStatusPublish() {
+        return mNetStatusPublish.flowable().filter(new Predicate<Boolean>() {
             @Override
             public boolean test(Boolean aBoolean) throws Exception {
                 return aBoolean && getCacheCity() > 0;
@@ -156,73 +196,85 @@ public class NetStatusAndRetryActivity extends AppCompatActivity {
     }
 
     private void startUpdateWeather() {
-        Observable.merge(getCityPublish(), getNetStatusPublish())
-                .flatMap(new Function<Long, ObservableSource<WeatherEnity>>() {
-                    @Override
-                    public ObservableSource<WeatherEnity> apply(Long aLong) throws Exception {
-                        Log.i(TAG, "尝试请求天气信息=" + aLong);
-                        return getWeather(aLong).subscribeOn(Schedulers.io());
-                    }
-                })
-                .retryWhen(new Function<Observable<Throwable>, ObservableSource<?>>() {
-                    @Override
-                    public ObservableSource<?> apply(Observable<Throwable> throwableObservable) throws Exception {
-                        return throwableObservable.flatMap(new Function<Throwable, ObservableSource<?>>() {
-                            @Override
-                            public ObservableSource<?> apply(Throwable throwable) throws Exception {
-                                Log.i(TAG, "请求天气信息过程中发生错误，进行重订阅");
-                                return Observable.just(0);
-                            }
-                        });
-                    }
-                })
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Observer<WeatherEnity>() {
-                    @Override
-                    public void onSubscribe(Disposable d) {
-                        mCompositeDisposable.add(d);
-                    }
-
-                    @Override
-                    public void onNext(WeatherEnity weatherEntity) {
-                        WeatherEnity.WeatherInfo info = weatherEntity.getWeatherinfo();
-                        if (info != null) {
-                            Log.d(TAG, "尝试请求天气信息成功");
-                            StringBuilder builder = new StringBuilder();
-                            builder.append("城市名：").append(info.getCity()).append("\n").append("温度：").append(info.getTemp()).append("\n").append("风向：").append(info.getWD()).append("\n").append("风速：").append(info.getWS()).append("\n");
-                            tv_show_result.setText(builder.toString());
+        //没有调用RxTracer.enable时begin和end什么都不做
+        RxTracer.beginPipeline(WEATHER_PIPELINE);
+        Flowable<WeatherEnity> weatherFlowable;
+        try {
+            //默认的merge会从每个输入预取128个，旧的城市都会排队等着请求，FlowableInput.latest()也就不会丢弃任何数据
+            weatherFlowable = Flowable.merge(Arrays.asList(getCityPublish(), getNetStatusPublish()), MERGE_SOURCES, MERGE_PREFETCH)
+                    .flatMap(new Function<Long, Publisher<WeatherEnity>>() {
+                        @Override
+                        public Publisher<WeatherEnity> apply(Long aLong) throws Exception {
+                            Log.i(TAG, "尝试请求天气信息=" + aLong);
+                            return getWeather(aLong).compose(mWeatherRetry).subscribeOn(Schedulers.io()).toFlowable(BackpressureStrategy.BUFFER);
                         }
-                    }
+                    }, MAX_WEATHER_REQUESTS)
+                    .retryWhen(new Function<Flowable<Throwable>, Publisher<?>>() {
+                        @Override
+                        public Publisher<?> apply(Flowable<Throwable> throwableFlowable) throws Exception {
+                            return throwableFlowable.flatMap(new Function<Throwable, Publisher<?>>() {
+                                @Override
+                                public Publisher<?> apply(Throwable throwable) throws Exception {
+                                    Log.i(TAG, "请求天气信息过程中发生错误，进行重订阅");
+                                    return Flowable.just(0);
+                                }
+                            });
+                        }
+                    })
+                    //天气没有变化时是同一个对象，不需要刷新界面
+                    .distinctUntilChanged()
+                    .observeOn(AndroidSchedulers.mainThread());
+        } finally {
+            RxTracer.endPipeline();
+        }
+        DisposableSubscriber<WeatherEnity> subscriber = weatherFlowable.subscribeWith(new DisposableSubscriber<WeatherEnity>() {
+            @Override
+            public void onNext(WeatherEnity weatherEntity) {
+                WeatherEnity.WeatherInfo info = weatherEntity.getWeatherinfo();
+                if (info != null) {
+                    Log.d(TAG, "尝试请求天气信息成功");
+                    StringBuilder builder = new StringBuilder();
+                    builder.append("城市名：").append(info.getCity()).append("\n").append("温度：").append(info.getTemp()).append("\n").append("风向：").append(info.getWD()).append("\n").append("风速：").append(info.getWS()).append("\n");
+                    tv_show_result.setText(builder.toString());
+                }
+                if (TRACE_WEATHER_PIPELINE) {
+                    Log.d(TAG, String.valueOf(RxTracer.getPipeline(WEATHER_PIPELINE)));
+                }
+            }
 
-                    @Override
-                    public void onError(Throwable e) {
-                        Log.i(TAG, "尝试请求天气信息失败");
+            @Override
+            public void onError(Throwable e) {
+                Log.i(TAG, "尝试请求天气信息失败");
 
-                    }
+            }
 
-                    @Override
-                    public void onComplete() {
-                        Log.i(TAG, "尝试请求天气信息结束");
-                    }
-                });
+            @Override
+            public void onComplete() {
+                Log.i(TAG, "尝试请求天气信息结束");
+            }
+        });
+        mCompositeDisposable.add(subscriber);
     }
 
     private Observable<WeatherEnity> getWeather(long cityId) {
-        WeatherApi api = new Retrofit.Builder()
-                .baseUrl("http://www.weather.com.cn/")
-                .addConverterFactory(GsonConverterFactory.create())
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .build().create(WeatherApi.class);
-        return api.getWeather(cityId);
-
+        return mWeatherApi.getWeather(cityId).doOnComplete(new Action() {
+            @Override
+            public void run() throws Exception {
+                Log.i(TAG, "天气缓存命中次数=" + mWeatherApi.getHitCount() + "，未命中次数=" + mWeatherApi.getMissCount() + "，条件请求：" + mWeatherChanges);
+            }
+        });
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        Log.i(TAG, "定位输入：" + mCityPublish + "，网络状态输入：" + mNetStatusPublish);
         mLocationThread.interrupt();
         unRegisterBroadcast();
         mCompositeDisposable.clear();
+        if (TRACE_WEATHER_PIPELINE) {
+            RxTracer.disable();
+        }
 
     }
 }
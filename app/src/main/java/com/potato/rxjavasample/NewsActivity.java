@@ -1,6 +1,7 @@
 package com.potato.rxjavasample;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 
@@ -8,37 +9,86 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.jakewharton.retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import com.potato.rxjavasample.Retrofig_RxJava2.adapter.NewsAdapter;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.ApiRegistry;
 import com.potato.rxjavasample.Retrofig_RxJava2.api.NewApi;
+import com.potato.rxjavasample.Retrofig_RxJava2.cache.ArticleCache;
+import com.potato.rxjavasample.Retrofig_RxJava2.cache.PagePrefetcher;
 import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsEntity;
 import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+import com.potato.rxjavasample.Retrofig_RxJava2.paging.CategoryFanOut;
+import com.potato.rxjavasample.Retrofig_RxJava2.paging.NewsPagingSource;
+import com.potato.rxjavasample.conditional.ChangeDetector;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import io.reactivex.Observable;
-import io.reactivex.ObservableSource;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
-import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.observers.DisposableObserver;
 import io.reactivex.schedulers.Schedulers;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 public class NewsActivity extends AppCompatActivity {
+    private static final String TAG = NewsActivity.class.getSimpleName();
+    //预取后面几页，以及预取结果最多占用的内存
+    private static final int PREFETCH_DEPTH = 1;
+    private static final long PREFETCH_MAX_BYTES = 512 * 1024;
+    //内存中最多保留的页数，以及距离列表两端还剩几条时开始加载
+    private static final int WINDOW_PAGES = 5;
+    private static final int LOAD_THRESHOLD = 5;
+    //要展示的分类，以及最多同时请求几个分类
+    private static final List<String> CATEGORIES = Arrays.asList("Android", "iOS");
+    private static final int MAX_CONCURRENT_CATEGORIES = 4;
+    //最多记住多少页的ETag和解析结果
+    private static final int CONDITIONAL_PAGES = 32;
 
-    private int mCurrentPage = 1;
     private NewsAdapter mNewsAdapter;
     private List<NewsResultEntity> mNewsResultEntities = new ArrayList<>();
     private CompositeDisposable compositeDisposable = new CompositeDisposable();
+    private ArticleCache mArticleCache;
+    private PagePrefetcher mPrefetcher;
+    private NewsPagingSource mPagingSource;
+    private CategoryFanOut mFanOut = new CategoryFanOut(Schedulers.io(), MAX_CONCURRENT_CATEGORIES);
+    //刷新时内容没有变化的页只收到304，并且直接使用上一次的解析结果；分页每次都需要结果，所以用reuseUnchanged
+    private ChangeDetector<NewsEntity> mNewsChanges = ChangeDetector.reuseUnchanged(
+            ApiRegistry.getInstance().getAdapter(NewsEntity.class), ApiRegistry.getInstance().getConditionalInterceptor(),
+            CONDITIONAL_PAGES, Schedulers.computation());
+    //分类和页码 -> 最后一次写入ArticleCache的解析结果，mNewsChanges返回同一个对象时内容没有变化，不需要再写一次磁盘
+    private final Map<String, NewsEntity> mSavedPages = new LinkedHashMap<String, NewsEntity>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, NewsEntity> eldest) {
+            return size() > CONDITIONAL_PAGES;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_news);
+        mArticleCache = ArticleCache.getInstance(this);
+        mPrefetcher = new PagePrefetcher(new Function<Integer, Observable<List<NewsResultEntity>>>() {
+            @Override
+            public Observable<List<NewsResultEntity>> apply(Integer page) throws Exception {
+                return loadPage(page);
+            }
+        }, Schedulers.io(), PREFETCH_DEPTH, PREFETCH_MAX_BYTES);
+        mPagingSource = new NewsPagingSource(new Function<Integer, Observable<List<NewsResultEntity>>>() {
+            @Override
+            public Observable<List<NewsResultEntity>> apply(Integer page) throws Exception {
+                return mPrefetcher.load(page).subscribeOn(Schedulers.io());
+            }
+        }, new Function<Integer, Observable<List<NewsResultEntity>>>() {
+            @Override
+            public Observable<List<NewsResultEntity>> apply(Integer page) throws Exception {
+                return reloadPage(page).subscribeOn(Schedulers.io());
+            }
+        }, AndroidSchedulers.mainThread(), WINDOW_PAGES);
         initView();
     }
 
@@ -47,44 +97,37 @@ public class NewsActivity extends AppCompatActivity {
         bt_refresh.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                refreshArticle(++mCurrentPage);
+                //刷新时丢弃之前的预取结果，从第一页重新请求
+                mPrefetcher.cancel();
+                mPagingSource.refresh();
             }
         });
         RecyclerView re = (RecyclerView) findViewById(R.id.recyclerView);
-        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         re.setLayoutManager(layoutManager);
         mNewsAdapter = new NewsAdapter(mNewsResultEntities, this);
         re.setAdapter(mNewsAdapter);
-        refreshArticle(mCurrentPage);
+        re.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= mNewsAdapter.getItemCount() - LOAD_THRESHOLD) {
+                    mPagingSource.loadNext();
+                } else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() < LOAD_THRESHOLD) {
+                    mPagingSource.loadPrevious();
+                }
+            }
+        });
+        observeArticle();
+        mPagingSource.refresh();
     }
 
-    private void refreshArticle(final int page) {
-        Observable<List<NewsResultEntity>> observable = Observable.just(page)
-                .subscribeOn(Schedulers.io())
-                .flatMap(new Function<Integer, ObservableSource<List<NewsResultEntity>>>() {
-                    @Override
-                    public ObservableSource<List<NewsResultEntity>> apply(Integer integer) throws Exception {
-                        Observable<NewsEntity> androidNews = getObservable("Android", page);
-                        Observable<NewsEntity> iosNews = getObservable("iOS", page);
-                        return Observable.zip(androidNews, iosNews, new BiFunction<NewsEntity, NewsEntity, List<NewsResultEntity>>() {
-                            @Override
-                            public List<NewsResultEntity> apply(NewsEntity androidEntity, NewsEntity iosEntity) throws Exception {
-                                List<NewsResultEntity> result = new ArrayList<>();
-                                result.addAll(androidEntity.getResults());
-                                result.addAll(iosEntity.getResults());
-                                return result;
-                            }
-                        });
-                    }
-                });
-
+    private void observeArticle() {
         DisposableObserver<List<NewsResultEntity>> disposableObserver = new DisposableObserver<List<NewsResultEntity>>() {
             @Override
             public void onNext(List<NewsResultEntity> newsResultEntities) {
-                mNewsResultEntities.clear();
-                mNewsResultEntities.addAll(newsResultEntities);
-                mNewsAdapter.notifyDataSetChanged();
-
+                mNewsAdapter.submitList(newsResultEntities);
+                //最后一页已经展示，开始预取下一页
+                mPrefetcher.onPageShown(mPagingSource.getLastPage());
             }
 
             @Override
@@ -97,23 +140,75 @@ public class NewsActivity extends AppCompatActivity {
 
             }
         };
-        observable.observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
+        mPagingSource.observe().subscribe(disposableObserver);
         compositeDisposable.add(disposableObserver);
 
     }
 
-    private Observable<NewsEntity> getObservable(String category, int page) {
-        NewApi api = new Retrofit.Builder()
-                .baseUrl("http://gank.io")
-                .addConverterFactory(GsonConverterFactory.create())
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .build().create(NewApi.class);
-        return api.getNews(category, 20, page);
+    //同时请求所有分类的第page页，每返回一个分类就发送一次合并后的数据
+    private Observable<List<NewsResultEntity>> loadPage(final int page) {
+        return fetchCategories(page, false);
+    }
+
+    //被分页窗口丢弃的页，每个分类都优先从缓存读取，缓存中没有时再请求网络
+    private Observable<List<NewsResultEntity>> reloadPage(final int page) {
+        return fetchCategories(page, true);
+    }
+
+    private Observable<List<NewsResultEntity>> fetchCategories(final int page, final boolean cacheFirst) {
+        return mFanOut.fetch(CATEGORIES, new Function<String, Observable<List<NewsResultEntity>>>() {
+            @Override
+            public Observable<List<NewsResultEntity>> apply(String category) throws Exception {
+                Observable<List<NewsResultEntity>> network = getObservable(category, page);
+                return cacheFirst ? mArticleCache.observe(category, page).switchIfEmpty(network) : network;
+            }
+        }).map(new Function<CategoryFanOut.Page, List<NewsResultEntity>>() {
+            @Override
+            public List<NewsResultEntity> apply(CategoryFanOut.Page fanOutPage) throws Exception {
+                if (fanOutPage.isComplete() && !fanOutPage.getFailures().isEmpty()) {
+                    Log.i(TAG, "page=" + page + "部分分类加载失败：" + fanOutPage.getFailures().keySet());
+                }
+                return fanOutPage.getResults();
+            }
+        });
+    }
+
+    private Observable<List<NewsResultEntity>> getObservable(final String category, final int page) {
+        NewApi api = ApiRegistry.getInstance().create(ApiRegistry.GANK_BASE_URL, NewApi.class);
+        return api.getNewsResponse(category, 20, page).compose(mNewsChanges).doOnNext(new Consumer<NewsEntity>() {
+            @Override
+            public void accept(NewsEntity newsEntity) throws Exception {
+                if (markSaved(category, page, newsEntity)) {
+                    mArticleCache.put(category, page, resultsOf(newsEntity));
+                }
+            }
+        }).map(new Function<NewsEntity, List<NewsResultEntity>>() {
+            @Override
+            public List<NewsResultEntity> apply(NewsEntity newsEntity) throws Exception {
+                return resultsOf(newsEntity);
+            }
+        });
+    }
+
+    //返回false表示这一页上次写入缓存的就是同一个对象，多个分类在不同的io线程上同时返回
+    private boolean markSaved(String category, int page, NewsEntity newsEntity) {
+        synchronized (mSavedPages) {
+            return mSavedPages.put(category + "|" + page, newsEntity) != newsEntity;
+        }
+    }
+
+    private static List<NewsResultEntity> resultsOf(NewsEntity newsEntity) {
+        List<NewsResultEntity> results = newsEntity.getResults();
+        return results == null ? new ArrayList<NewsResultEntity>() : results;
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        Log.i(TAG, "条件请求：" + mNewsChanges);
         compositeDisposable.clear();
+        mPrefetcher.cancel();
+        mPagingSource.dispose();
+        mNewsAdapter.dispose();
     }
 }
@@ -10,6 +10,10 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.potato.rxjavasample.Retrofig_RxJava2.adapter.NewsAdapter;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.ApiRegistry;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.NewApi;
+import com.potato.rxjavasample.Retrofig_RxJava2.cache.ArticleCache;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsEntity;
 import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
 
 import java.util.ArrayList;
@@ -20,6 +24,7 @@ import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.ObservableSource;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.observers.DisposableObserver;
 import io.reactivex.schedulers.Schedulers;
@@ -33,6 +38,10 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
     private NewsAdapter mNewsAdapter;
     private List<NewsResultEntity> mNewsResultEntities = new ArrayList<>();
     private static final String TAG = PublishMergeActivity.class.getSimpleName();
+    private static final String CATEGORY = "Android";
+    private static final int COUNT = 20;
+    private static final int PAGE = 1;
+    private ArticleCache mArticleCache;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,7 +60,7 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
         re.setLayoutManager(layoutManager);
         mNewsAdapter = new NewsAdapter(mNewsResultEntities, this);
         re.setAdapter(mNewsAdapter);
-
+        mArticleCache = ArticleCache.getInstance(this);
     }
 
     @Override
@@ -79,7 +88,7 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
      * 缺点：加载时间过长，浪费时间
      */
     private void refreshArtcleUseConcat() {
-        Observable<List<NewsResultEntity>> contactObservable = Observable.concat(getCacheArticle(500).subscribeOn(Schedulers.io()), getNetworkArticle(2000).subscribeOn(Schedulers.io()));
+        Observable<List<NewsResultEntity>> contactObservable = Observable.concat(getCacheArticle().subscribeOn(Schedulers.io()), getNetworkArticle().subscribeOn(Schedulers.io()));
 
         DisposableObserver<List<NewsResultEntity>> disposableObserver = getArtcleObserver();
         contactObservable.observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
@@ -93,8 +102,8 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
      */
     private void refreshArtcleUseConcatEager() {
         List<Observable<List<NewsResultEntity>>> observables = new ArrayList<>();
-        observables.add(getCacheArticle(500).subscribeOn(Schedulers.io()));
-        observables.add(getNetworkArticle(2000).subscribeOn(Schedulers.io()));
+        observables.add(getCacheArticle().subscribeOn(Schedulers.io()));
+        observables.add(getNetworkArticle().subscribeOn(Schedulers.io()));
 
         Observable<List<NewsResultEntity>> contactObservable = Observable.concatEager(observables);
         DisposableObserver<List<NewsResultEntity>> disposableObserver = getArtcleObserver();
@@ -107,7 +116,7 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
      */
     private void refreshArtcleUseMerge() {
 
-        Observable<List<NewsResultEntity>> mergeObservable = Observable.merge(getCacheArticle(2000).subscribeOn(Schedulers.io()), getNetworkArticle(500).subscribeOn(Schedulers.io()));
+        Observable<List<NewsResultEntity>> mergeObservable = Observable.merge(getCacheArticle().subscribeOn(Schedulers.io()), getNetworkArticle().subscribeOn(Schedulers.io()));
 
         DisposableObserver<List<NewsResultEntity>> disposableObserver = getArtcleObserver();
         mergeObservable.observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
@@ -127,74 +136,48 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
      */
     private void refreshArtcleUsePublish() {
 
-        Observable<List<NewsResultEntity>> publishObservable = getNetworkArticle(2000).subscribeOn(Schedulers.io()).publish(new Function<Observable<List<NewsResultEntity>>, ObservableSource<List<NewsResultEntity>>>() {
+        Observable<List<NewsResultEntity>> publishObservable = getNetworkArticle().subscribeOn(Schedulers.io()).publish(new Function<Observable<List<NewsResultEntity>>, ObservableSource<List<NewsResultEntity>>>() {
             @Override
             public ObservableSource<List<NewsResultEntity>> apply(Observable<List<NewsResultEntity>> network) throws Exception {
 
-                return Observable.merge(network, getCacheArticle(500).subscribeOn(Schedulers.io()).takeUntil(network));
+                return Observable.merge(network, getCacheArticle().subscribeOn(Schedulers.io()).takeUntil(network));
             }
         });
         DisposableObserver<List<NewsResultEntity>> disposableObserver = getArtcleObserver();
         publishObservable.observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
     }
 
-    private Observable<List<NewsResultEntity>> getCacheArticle(final long simulateTime) {
+    //缓存数据源：内存 -> 磁盘，未命中时直接结束
+    private Observable<List<NewsResultEntity>> getCacheArticle() {
         return Observable.create(new ObservableOnSubscribe<List<NewsResultEntity>>() {
             @Override
             public void subscribe(ObservableEmitter<List<NewsResultEntity>> emitter) throws Exception {
-                try {
-                    Log.e(TAG, "开始加载缓存数据");
-                    Thread.sleep(simulateTime);
-                    List<NewsResultEntity> results = new ArrayList<>();
-                    for (int i = 0; i < 10; i++) {
-                        NewsResultEntity entity = new NewsResultEntity();
-                        entity.setType("缓存");
-                        entity.setDesc("序号=" + i);
-                        entity.setCache(true);
-                        results.add(entity);
-                    }
+                Log.e(TAG, "开始加载缓存数据");
+                long start = System.currentTimeMillis();
+                List<NewsResultEntity> results = mArticleCache.get(CATEGORY, PAGE);
+                if (results != null && !results.isEmpty()) {
                     emitter.onNext(results);
-                    emitter.onComplete();
-                    Log.i(TAG, "结束加载缓存数据");
-                } catch (InterruptedException e) {
-                    if (!emitter.isDisposed()) {
-                        emitter.onError(e);
-                    }
                 }
+                emitter.onComplete();
+                Log.i(TAG, "结束加载缓存数据，耗时=" + (System.currentTimeMillis() - start) + "ms");
             }
         });
     }
 
-    //模拟网络数据源
-    private Observable<List<NewsResultEntity>> getNetworkArticle(final long simulateTime) {
-        return Observable.create(new ObservableOnSubscribe<List<NewsResultEntity>>() {
+    //网络数据源，请求成功后写入缓存
+    private Observable<List<NewsResultEntity>> getNetworkArticle() {
+        NewApi api = ApiRegistry.getInstance().create(ApiRegistry.GANK_BASE_URL, NewApi.class);
+        return api.getNews(CATEGORY, COUNT, PAGE).map(new Function<NewsEntity, List<NewsResultEntity>>() {
             @Override
-            public void subscribe(ObservableEmitter<List<NewsResultEntity>> emitter) throws Exception {
-                try {
-
-                    Log.i(TAG, "开始加载网络数据");
-                    Thread.sleep(simulateTime);
-                    List<NewsResultEntity> list = new ArrayList<>();
-                    for (int i = 0; i < 10; i++) {
-                        NewsResultEntity entity = new NewsResultEntity();
-                        entity.setType("网络");
-                        entity.setDesc("序号=" + i);
-                        entity.setCache(false);
-                        list.add(entity);
-
-                    }
-                    //正常情况
-                    emitter.onNext(list);
-                    emitter.onComplete();
-                    //异常情况
-//                    emitter.onError(new Throwable("network error"));
-                    Log.i(TAG, "结束加载网络数据");
-
-                } catch (InterruptedException e) {
-                    if (!emitter.isDisposed()) {
-                        emitter.onError(e);
-                    }
-                }
+            public List<NewsResultEntity> apply(NewsEntity newsEntity) throws Exception {
+                Log.i(TAG, "结束加载网络数据");
+                List<NewsResultEntity> results = newsEntity.getResults();
+                return results != null ? results : new ArrayList<NewsResultEntity>();
+            }
+        }).doOnNext(new Consumer<List<NewsResultEntity>>() {
+            @Override
+            public void accept(List<NewsResultEntity> results) throws Exception {
+                mArticleCache.put(CATEGORY, PAGE, results);
             }
         }).onErrorResumeNext(new Function<Throwable, ObservableSource<? extends List<NewsResultEntity>>>() {
             @Override
@@ -209,16 +192,14 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
         return new DisposableObserver<List<NewsResultEntity>>() {
             @Override
             public void onNext(List<NewsResultEntity> newsResultEntities) {
-                mNewsResultEntities.clear();
-                mNewsResultEntities.addAll(newsResultEntities);
-                if (newsResultEntities.get(0).isCache()) {
+                if (newsResultEntities.isEmpty()) {
+                    Log.i(TAG, "展示数据，数据为空");
+                } else if (newsResultEntities.get(0).isCache()) {
                     Log.i(TAG, "展示数据，数据类型=缓存");
                 } else {
                     Log.i(TAG, "展示数据，数据类型=网络");
                 }
-
-
-                mNewsAdapter.notifyDataSetChanged();
+                mNewsAdapter.submitList(newsResultEntities);
             }
 
             @Override
@@ -232,4 +213,10 @@ public class PublishMergeActivity extends AppCompatActivity implements View.OnCl
             }
         };
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mNewsAdapter.dispose();
+    }
 }
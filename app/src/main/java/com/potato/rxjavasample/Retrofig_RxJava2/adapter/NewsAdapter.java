@@ -7,20 +7,90 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.potato.rxjavasample.R;
 import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 新闻列表的Adapter
+ * <p>
+ * 通过submitList更新数据：在computation线程上用DiffUtil按_id对比新旧数据，
+ * 再回到主线程只通知发生变化的插入、删除、修改，避免每次notifyDataSetChanged重新绑定所有可见的item。
+ * 同时开启了stable ids，id由_id计算64位哈希得到，同一条新闻在整个列表生命周期内始终对应同一个id，
+ * 不需要额外记录已经出现过的新闻，分页窗口滚动多久占用的内存都不变。
+ * 同一个列表中_id重复的新闻按出现的次序区分，保证同一时间不会有两个item的id相同。
+ */
 public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.MyViewHolder> {
     private List<NewsResultEntity> list;
     private Context ctx;
+    //和list一一对应的key和stable id，在主线程上和list一起替换，替换后不再修改
+    private String[] mItemKeys;
+    private long[] mItemIds;
+    private Disposable mDiffDisposable;
 
     public NewsAdapter(List list, Context ctx) {
         this.list = list;
         this.ctx = ctx;
+        mItemKeys = new String[this.list.size()];
+        mItemIds = new long[this.list.size()];
+        fillItemKeys(this.list, mItemKeys, mItemIds);
+        setHasStableIds(true);
+    }
+
+    /**
+     * 在后台计算差异后，在主线程上将数据替换为newList，必须在主线程调用。
+     * 如果上一次的差异还没有计算完，会直接丢弃上一次的结果。
+     */
+    public void submitList(final List<NewsResultEntity> newList) {
+        if (mDiffDisposable != null) {
+            mDiffDisposable.dispose();
+        }
+        final List<NewsResultEntity> oldList = new ArrayList<>(list);
+        final String[] oldKeys = mItemKeys;
+        final List<NewsResultEntity> newSnapshot = new ArrayList<>(newList);
+        final String[] newKeys = new String[newSnapshot.size()];
+        final long[] newIds = new long[newSnapshot.size()];
+        mDiffDisposable = Single.fromCallable(new Callable<DiffUtil.DiffResult>() {
+            @Override
+            public DiffUtil.DiffResult call() throws Exception {
+                fillItemKeys(newSnapshot, newKeys, newIds);
+                return DiffUtil.calculateDiff(new NewsDiffCallback(oldList, newSnapshot, oldKeys, newKeys));
+            }
+        }).subscribeOn(Schedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Consumer<DiffUtil.DiffResult>() {
+                    @Override
+                    public void accept(DiffUtil.DiffResult diffResult) throws Exception {
+                        list.clear();
+                        list.addAll(newSnapshot);
+                        mItemKeys = newKeys;
+                        mItemIds = newIds;
+                        diffResult.dispatchUpdatesTo(NewsAdapter.this);
+                    }
+                });
+    }
+
+    /**
+     * 取消还没有完成的差异计算，在页面销毁时调用
+     */
+    public void dispose() {
+        if (mDiffDisposable != null) {
+            mDiffDisposable.dispose();
+        }
     }
 
     @NonNull
@@ -38,7 +108,75 @@ public class NewsAdapter extends RecyclerView.Adapter<NewsAdapter.MyViewHolder>
 
     @Override
     public long getItemId(int position) {
-        return position;
+        return mItemIds[position];
+    }
+
+    //第二次及之后出现的重复key加上出现的次序，id是key的FNV-1a哈希；DiffUtil也按这个key判断是否是同一个item
+    private static void fillItemKeys(List<NewsResultEntity> items, String[] keys, long[] ids) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            String key = identityOf(items.get(i));
+            Integer seen = occurrences.get(key);
+            occurrences.put(key, seen == null ? 1 : seen + 1);
+            keys[i] = seen == null ? key : key + "#" + seen;
+            ids[i] = hash64(keys[i]);
+        }
+    }
+
+    private static long hash64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    //没有_id的数据（例如本地构造的数据）退化为按内容区分
+    private static String identityOf(NewsResultEntity entity) {
+        String id = entity.get_id();
+        return id != null ? id : entity.getType() + "|" + entity.getDesc() + "|" + entity.getUrl();
+    }
+
+    private static boolean textEquals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    private static class NewsDiffCallback extends DiffUtil.Callback {
+        private final List<NewsResultEntity> mOldList;
+        private final List<NewsResultEntity> mNewList;
+        private final String[] mOldKeys;
+        private final String[] mNewKeys;
+
+        NewsDiffCallback(List<NewsResultEntity> oldList, List<NewsResultEntity> newList, String[] oldKeys, String[] newKeys) {
+            mOldList = oldList;
+            mNewList = newList;
+            mOldKeys = oldKeys;
+            mNewKeys = newKeys;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldKeys[oldItemPosition].equals(mNewKeys[newItemPosition]);
+        }
+
+        //只比较item上展示的内容，缓存数据被网络数据替换时内容相同就不需要重新绑定
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            NewsResultEntity oldItem = mOldList.get(oldItemPosition);
+            NewsResultEntity newItem = mNewList.get(newItemPosition);
+            return textEquals(oldItem.getType(), newItem.getType()) && textEquals(oldItem.getDesc(), newItem.getDesc());
+        }
     }
 
     @Override
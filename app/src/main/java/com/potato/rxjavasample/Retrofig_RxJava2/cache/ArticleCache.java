@@ -0,0 +1,263 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.cache;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+import com.potato.rxjavasample.Retrofig_RxJava2.json.EntityTypeAdapterFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+
+/**
+ * 文章的两级缓存，按 分类 + 页码 存取
+ * <p>
+ * 内存：LruCache，保存已经解析好的List<NewsResultEntity>，按估算的字节数计算容量；
+ * 磁盘：每个key一个json文件，总大小超过上限时，按最后访问时间淘汰最旧的文件。
+ * <p>
+ * 读取顺序为 内存 -> 磁盘，磁盘命中后会回填到内存。网络请求的结果通过put写入两级缓存。
+ * 磁盘读写都是阻塞操作，需要在后台线程调用。
+ */
+public class ArticleCache {
+    private static final String TAG = ArticleCache.class.getSimpleName();
+    private static final String DIR_NAME = "articles";
+    private static final long MAX_DISK_BYTES = 4 * 1024 * 1024;
+    private static final int MAX_MEMORY_BYTES = (int) Math.min(Runtime.getRuntime().maxMemory() / 32, 2 * 1024 * 1024);
+
+    //对象头和引用的粗略估算值，只用于计算缓存容量
+    private static final int ENTITY_OVERHEAD = 64;
+    private static final int STRING_OVERHEAD = 40;
+
+    private static volatile ArticleCache sInstance;
+
+    private final LruCache<String, List<NewsResultEntity>> mMemoryCache;
+    private final File mDiskDir;
+    private final long mMaxDiskBytes;
+    private final Gson mGson = EntityTypeAdapterFactory.createGson();
+    private final Type mListType = new TypeToken<List<NewsResultEntity>>() {
+    }.getType();
+    private final Object mDiskLock = new Object();
+
+    public static ArticleCache getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (ArticleCache.class) {
+                if (sInstance == null) {
+                    File dir = new File(context.getApplicationContext().getCacheDir(), DIR_NAME);
+                    sInstance = new ArticleCache(dir, MAX_MEMORY_BYTES, MAX_DISK_BYTES);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    ArticleCache(File diskDir, int maxMemoryBytes, long maxDiskBytes) {
+        mDiskDir = diskDir;
+        mMaxDiskBytes = maxDiskBytes;
+        mMemoryCache = new LruCache<String, List<NewsResultEntity>>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, List<NewsResultEntity> value) {
+                return estimateSize(value);
+            }
+        };
+    }
+
+    /**
+     * 读取缓存，未命中时返回null。返回的数据都会标记为缓存数据（isCache() == true）。
+     */
+    public List<NewsResultEntity> get(String category, int page) {
+        String key = key(category, page);
+        List<NewsResultEntity> results = mMemoryCache.get(key);
+        if (results == null) {
+            results = readDisk(key);
+            if (results != null) {
+                results = markAsCache(results);
+                mMemoryCache.put(key, results);
+            }
+        }
+        return results;
+    }
+
+    public void put(String category, int page, List<NewsResultEntity> results) {
+        if (results == null) {
+            return;
+        }
+        String key = key(category, page);
+        mMemoryCache.put(key, markAsCache(results));
+        writeDisk(key, results);
+    }
+
+    /**
+     * 缓存命中时发送一次数据，未命中时直接结束。
+     */
+    public Observable<List<NewsResultEntity>> observe(final String category, final int page) {
+        return Observable.create(new ObservableOnSubscribe<List<NewsResultEntity>>() {
+            @Override
+            public void subscribe(ObservableEmitter<List<NewsResultEntity>> emitter) throws Exception {
+                List<NewsResultEntity> results = get(category, page);
+                if (results != null && !results.isEmpty()) {
+                    emitter.onNext(results);
+                }
+                emitter.onComplete();
+            }
+        });
+    }
+
+    /**
+     * 估算一页数据占用的内存字节数
+     */
+    public static int estimateSize(List<NewsResultEntity> results) {
+        int size = 0;
+        for (NewsResultEntity entity : results) {
+            size += ENTITY_OVERHEAD
+                    + sizeOf(entity.get_id())
+                    + sizeOf(entity.getCreatedAt())
+                    + sizeOf(entity.getDesc())
+                    + sizeOf(entity.getPublishedAt())
+                    + sizeOf(entity.getSource())
+                    + sizeOf(entity.getType())
+                    + sizeOf(entity.getUrl())
+                    + sizeOf(entity.getWho());
+        }
+        return Math.max(size, 1);
+    }
+
+    private static int sizeOf(String s) {
+        return s == null ? 0 : STRING_OVERHEAD + 2 * s.length();
+    }
+
+    private static String key(String category, int page) {
+        try {
+            return URLEncoder.encode(category, "UTF-8") + "_" + page;
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    //缓存中的对象和网络返回的对象相互独立，避免修改isCache标记时影响到正在展示的网络数据
+    private static List<NewsResultEntity> markAsCache(List<NewsResultEntity> results) {
+        List<NewsResultEntity> copy = new ArrayList<>(results.size());
+        for (NewsResultEntity entity : results) {
+            NewsResultEntity cached = new NewsResultEntity();
+            cached.set_id(entity.get_id());
+            cached.setCreatedAt(entity.getCreatedAt());
+            cached.setDesc(entity.getDesc());
+            cached.setPublishedAt(entity.getPublishedAt());
+            cached.setSource(entity.getSource());
+            cached.setType(entity.getType());
+            cached.setUrl(entity.getUrl());
+            cached.setUsed(entity.isUsed());
+            cached.setWho(entity.getWho());
+            cached.setCache(true);
+            copy.add(cached);
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    private List<NewsResultEntity> readDisk(String key) {
+        synchronized (mDiskLock) {
+            File file = new File(mDiskDir, key + ".json");
+            if (!file.exists()) {
+                return null;
+            }
+            Reader reader = null;
+            try {
+                reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+                List<NewsResultEntity> results = mGson.fromJson(reader, mListType);
+                //记录访问时间，淘汰时按照它排序
+                file.setLastModified(System.currentTimeMillis());
+                return results;
+            } catch (Exception e) {
+                Log.w(TAG, "读取磁盘缓存失败，key=" + key, e);
+                file.delete();
+                return null;
+            } finally {
+                closeQuietly(reader);
+            }
+        }
+    }
+
+    private void writeDisk(String key, List<NewsResultEntity> results) {
+        synchronized (mDiskLock) {
+            if (!mDiskDir.exists() && !mDiskDir.mkdirs()) {
+                return;
+            }
+            File tmp = new File(mDiskDir, key + ".tmp");
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+                mGson.toJson(results, mListType, writer);
+                writer.close();
+                writer = null;
+                //先写临时文件再重命名，避免进程被杀时留下写了一半的缓存
+                if (!tmp.renameTo(new File(mDiskDir, key + ".json"))) {
+                    tmp.delete();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "写入磁盘缓存失败，key=" + key, e);
+                tmp.delete();
+            } finally {
+                closeQuietly(writer);
+            }
+            trimDisk();
+        }
+    }
+
+    private void trimDisk() {
+        File[] files = mDiskDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= mMaxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long l1 = f1.lastModified();
+                long l2 = f2.lastModified();
+                return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && total > mMaxDiskBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
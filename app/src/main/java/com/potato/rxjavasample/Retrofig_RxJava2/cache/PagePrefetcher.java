@@ -0,0 +1,163 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.cache;
+
+import android.util.Log;
+
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.observables.ConnectableObservable;
+
+/**
+ * 分页数据预取
+ * <p>
+ * 第N页展示出来之后，在后台提前请求第N+1 ~ N+depth页，用户翻到下一页时直接使用预取的结果，
+ * 不用再等待一次完整的网络请求。
+ * <p>
+ * 预取通过replay()实现：请求在后台立即开始，load时如果请求还没结束，会接着等待同一个请求，不会重复发起。
+ * 已完成的预取结果按估算的字节数计算内存占用，超过上限时优先丢弃离当前页最远的页。
+ */
+public class PagePrefetcher {
+    private static final String TAG = PagePrefetcher.class.getSimpleName();
+
+    private final Function<Integer, Observable<List<NewsResultEntity>>> mLoader;
+    private final Scheduler mScheduler;
+    private final int mDepth;
+    private final long mMaxBytes;
+    private final Map<Integer, Prefetch> mPrefetches = new HashMap<>();
+    private long mBytes;
+    private int mCurrentPage;
+
+    public PagePrefetcher(Function<Integer, Observable<List<NewsResultEntity>>> loader, Scheduler scheduler, int depth, long maxBytes) {
+        mLoader = loader;
+        mScheduler = scheduler;
+        mDepth = depth;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * 第page页已经展示，开始预取后面的depth页
+     */
+    public synchronized void onPageShown(int page) {
+        mCurrentPage = page;
+        for (int next = page + 1; next <= page + mDepth; next++) {
+            if (!mPrefetches.containsKey(next)) {
+                start(next);
+            }
+        }
+    }
+
+    /**
+     * 获取第page页的数据，命中预取时直接使用预取的请求，否则重新发起请求。
+     */
+    public Observable<List<NewsResultEntity>> load(int page) {
+        Prefetch prefetch;
+        synchronized (this) {
+            prefetch = mPrefetches.remove(page);
+            if (prefetch != null) {
+                mBytes -= prefetch.bytes;
+            }
+        }
+        if (prefetch != null) {
+            Log.i(TAG, "命中预取，page=" + page);
+            return prefetch.observable;
+        }
+        try {
+            return mLoader.apply(page);
+        } catch (Exception e) {
+            return Observable.error(e);
+        }
+    }
+
+    /**
+     * 取消所有正在进行的预取，并释放预取的结果
+     */
+    public synchronized void cancel() {
+        for (Prefetch prefetch : mPrefetches.values()) {
+            prefetch.connection.dispose();
+        }
+        mPrefetches.clear();
+        mBytes = 0;
+    }
+
+    private void start(final int page) {
+        Observable<List<NewsResultEntity>> source;
+        try {
+            source = mLoader.apply(page);
+        } catch (Exception e) {
+            return;
+        }
+        ConnectableObservable<List<NewsResultEntity>> replay = source.subscribeOn(mScheduler).replay();
+        final Prefetch prefetch = new Prefetch(replay);
+        mPrefetches.put(page, prefetch);
+        //只用于统计内存占用和清理失败的预取，数据本身由replay保存
+        replay.subscribe(new Consumer<List<NewsResultEntity>>() {
+            @Override
+            public void accept(List<NewsResultEntity> results) throws Exception {
+                onPrefetched(page, prefetch, ArticleCache.estimateSize(results));
+            }
+        }, new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable) throws Exception {
+                Log.i(TAG, "预取失败，page=" + page + "，e=" + throwable);
+                removeIfCurrent(page, prefetch);
+            }
+        }, new Action() {
+            @Override
+            public void run() throws Exception {
+                Log.i(TAG, "预取完成，page=" + page);
+            }
+        });
+        prefetch.connection = replay.connect();
+    }
+
+    private synchronized void onPrefetched(int page, Prefetch prefetch, int bytes) {
+        if (mPrefetches.get(page) != prefetch) {
+            return;
+        }
+        //replay会保存所有发送过的数据，这里按累计值计算
+        prefetch.bytes += bytes;
+        mBytes += bytes;
+        trim();
+    }
+
+    private synchronized void removeIfCurrent(int page, Prefetch prefetch) {
+        if (mPrefetches.get(page) == prefetch) {
+            mPrefetches.remove(page);
+            mBytes -= prefetch.bytes;
+        }
+    }
+
+    private void trim() {
+        while (mBytes > mMaxBytes && !mPrefetches.isEmpty()) {
+            Map.Entry<Integer, Prefetch> farthest = null;
+            for (Map.Entry<Integer, Prefetch> entry : mPrefetches.entrySet()) {
+                if (farthest == null || Math.abs(entry.getKey() - mCurrentPage) > Math.abs(farthest.getKey() - mCurrentPage)) {
+                    farthest = entry;
+                }
+            }
+            Log.i(TAG, "预取结果超过内存上限，丢弃page=" + farthest.getKey());
+            Prefetch prefetch = mPrefetches.remove(farthest.getKey());
+            prefetch.connection.dispose();
+            mBytes -= prefetch.bytes;
+        }
+    }
+
+    private static class Prefetch {
+        final Observable<List<NewsResultEntity>> observable;
+        Disposable connection;
+        long bytes;
+
+        Prefetch(Observable<List<NewsResultEntity>> observable) {
+            this.observable = observable;
+        }
+    }
+}
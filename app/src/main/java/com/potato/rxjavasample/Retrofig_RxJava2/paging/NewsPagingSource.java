@@ -0,0 +1,180 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.paging;
+
+import android.util.Log;
+
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.subjects.BehaviorSubject;
+
+/**
+ * 新闻列表的分页数据源，支持无限滚动
+ * <p>
+ * 列表快滚动到底部时调用loadNext加载下一页，滚动回顶部附近时调用loadPrevious加载上一页。
+ * 内存中最多只保留windowPages页连续的数据，超出时丢弃离刚加载的页最远的一页，
+ * 之后再滚动回被丢弃的页时，通过reloader重新加载（一般是先读缓存），所以不管滚动多远内存占用都是固定的。
+ * <p>
+ * 同一时间只会有一个加载请求；所有状态都只在observeScheduler（主线程）上修改，
+ * loadNext、loadPrevious、refresh也必须在同一个线程上调用。
+ */
+public class NewsPagingSource {
+    private static final String TAG = NewsPagingSource.class.getSimpleName();
+    public static final int FIRST_PAGE = 1;
+
+    private final Function<Integer, Observable<List<NewsResultEntity>>> mLoader;
+    private final Function<Integer, Observable<List<NewsResultEntity>>> mReloader;
+    private final Scheduler mObserveScheduler;
+    private final int mWindowPages;
+    private final TreeMap<Integer, List<NewsResultEntity>> mPages = new TreeMap<>();
+    private final BehaviorSubject<List<NewsResultEntity>> mSnapshots = BehaviorSubject.create();
+    private Disposable mLoading;
+    private int mMaxLoadedPage;
+    private boolean mEndReached;
+
+    /**
+     * @param loader           第一次加载某一页时使用
+     * @param reloader         重新加载已经被丢弃的页时使用
+     * @param observeScheduler 修改分页状态和发送数据的线程
+     * @param windowPages      内存中最多保留的页数
+     */
+    public NewsPagingSource(Function<Integer, Observable<List<NewsResultEntity>>> loader,
+                            Function<Integer, Observable<List<NewsResultEntity>>> reloader,
+                            Scheduler observeScheduler, int windowPages) {
+        mLoader = loader;
+        mReloader = reloader;
+        mObserveScheduler = observeScheduler;
+        mWindowPages = Math.max(windowPages, 1);
+    }
+
+    /**
+     * 当前窗口内所有页按顺序拼接后的数据，每次窗口变化时发送一次
+     */
+    public Observable<List<NewsResultEntity>> observe() {
+        return mSnapshots;
+    }
+
+    /**
+     * 丢弃所有数据，从第一页重新加载
+     */
+    public void refresh() {
+        cancelLoading();
+        mPages.clear();
+        mMaxLoadedPage = 0;
+        mEndReached = false;
+        load(FIRST_PAGE, mLoader);
+    }
+
+    public void loadNext() {
+        if (isLoading() || mEndReached) {
+            return;
+        }
+        int page = mPages.isEmpty() ? FIRST_PAGE : mPages.lastKey() + 1;
+        //之前加载过又被丢弃的页，重新加载
+        load(page, page <= mMaxLoadedPage ? mReloader : mLoader);
+    }
+
+    public void loadPrevious() {
+        if (isLoading() || mPages.isEmpty() || mPages.firstKey() <= FIRST_PAGE) {
+            return;
+        }
+        load(mPages.firstKey() - 1, mReloader);
+    }
+
+    /**
+     * 窗口内最后一页的页码，还没有数据时返回0
+     */
+    public int getLastPage() {
+        return mPages.isEmpty() ? 0 : mPages.lastKey();
+    }
+
+    public boolean isLoading() {
+        return mLoading != null && !mLoading.isDisposed();
+    }
+
+    public void dispose() {
+        cancelLoading();
+        mPages.clear();
+    }
+
+    private void cancelLoading() {
+        if (mLoading != null) {
+            mLoading.dispose();
+            mLoading = null;
+        }
+    }
+
+    private void load(final int page, Function<Integer, Observable<List<NewsResultEntity>>> loader) {
+        Observable<List<NewsResultEntity>> source;
+        try {
+            source = loader.apply(page);
+        } catch (Exception e) {
+            Log.i(TAG, "加载失败，page=" + page + "，e=" + e);
+            return;
+        }
+        Log.i(TAG, "开始加载，page=" + page);
+        //数据源可以多次发送同一页的数据（例如多个分类陆续返回），每次都用新的数据替换这一页
+        mLoading = source.observeOn(mObserveScheduler)
+                .subscribe(new Consumer<List<NewsResultEntity>>() {
+                    @Override
+                    public void accept(List<NewsResultEntity> results) throws Exception {
+                        onPageLoaded(page, results);
+                    }
+                }, new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) throws Exception {
+                        mLoading = null;
+                        Log.i(TAG, "加载失败，page=" + page + "，e=" + throwable);
+                    }
+                }, new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        mLoading = null;
+                        if (!mPages.containsKey(page) && (mPages.isEmpty() || page > mPages.lastKey())) {
+                            //后面没有更多的数据了
+                            mEndReached = true;
+                            Log.i(TAG, "没有更多数据，page=" + page);
+                        }
+                    }
+                });
+    }
+
+    private void onPageLoaded(int page, List<NewsResultEntity> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        mPages.put(page, results);
+        mMaxLoadedPage = Math.max(mMaxLoadedPage, page);
+        trim(page);
+        publish();
+    }
+
+    //向下加载时丢弃最前面的页，向上加载时丢弃最后面的页
+    private void trim(int loadedPage) {
+        while (mPages.size() > mWindowPages) {
+            int dropped = loadedPage == mPages.lastKey() ? mPages.firstKey() : mPages.lastKey();
+            mPages.remove(dropped);
+            if (dropped > loadedPage) {
+                //丢弃了后面的页，之后需要重新往下加载
+                mEndReached = false;
+            }
+            Log.i(TAG, "超过窗口大小，丢弃page=" + dropped);
+        }
+    }
+
+    private void publish() {
+        List<NewsResultEntity> snapshot = new ArrayList<>();
+        for (List<NewsResultEntity> results : mPages.values()) {
+            snapshot.addAll(results);
+        }
+        mSnapshots.onNext(snapshot);
+    }
+}
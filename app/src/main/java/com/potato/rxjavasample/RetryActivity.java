@@ -7,17 +7,20 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.potato.rxjavasample.Retrofig_RxJava2.api.ApiRegistry;
+import com.potato.rxjavasample.retry.RetryPipeline;
+import com.potato.rxjavasample.retry.RetryPolicy;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
-import io.reactivex.ObservableSource;
-import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
-import io.reactivex.functions.Function;
+import io.reactivex.functions.Consumer;
 import io.reactivex.observers.DisposableObserver;
-import io.reactivex.schedulers.Schedulers;
 
 /**
  * retryWhen提供了 重订阅 的功能，对于retryWhen来说，它的重订阅触发有两点要素：
@@ -42,22 +45,32 @@ import io.reactivex.schedulers.Schedulers;
  * 就像我们在上面例子中做的那样，我们通过flatMap操作符获取到异常的类型，然后根据异常的类型选择动态地决定延迟重试的时间，
  * 再用Timer操作符实现延迟重试；当然，对于一些异常，我们可以直接选择不重试，即直接返回Observable.empty或者Observable.error(Throwable throwable)。
  *
+ * 这里不再根据getMessage()的字符串判断，而是通过RetryPolicy按异常的类型决定是否重试以及初始等待时间，
+ * 等待时间带有随机抖动并逐渐增加，总时间不超过30s，所有请求共用ApiRegistry中的重试预算。
  */
 public class RetryActivity extends AppCompatActivity {
 
     private static final String TAG = RetryActivity.class.getSimpleName();
-    private static final String MSG_WAIT_SHORT = "wait_short";
-    private static final String MSG_WAIT_LONG = "wait_long";
-    private static final String[] MSG_ARRAY = new String[]{
-            MSG_WAIT_SHORT,
-            MSG_WAIT_SHORT,
-            MSG_WAIT_LONG,
-            MSG_WAIT_LONG
-    };
+    private static final int MAX_RETRY = 4;
+    private static final long WAIT_SHORT_MILLIS = 2000;
+    private static final long WAIT_LONG_MILLIS = 4000;
+    private static final long MAX_WAIT_MILLIS = 8000;
+    private static final long MAX_ELAPSED_SECONDS = 30;
+    //模拟的请求结果：前两次超时，之后两次服务器繁忙，第五次成功
+    private static final int ERROR_COUNT = 4;
+    private static final int TIMEOUT_COUNT = 2;
+    //超时很快重试，服务器繁忙多等一会，其他异常不重试
+    private static final RetryPolicy RETRY_POLICY = RetryPolicy.decorrelatedJitter(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS)
+            .retryOn(SocketTimeoutException.class, WAIT_SHORT_MILLIS, TimeUnit.MILLISECONDS)
+            .retryOn(ServerBusyException.class, WAIT_LONG_MILLIS, TimeUnit.MILLISECONDS)
+            .withMaxRetries(MAX_RETRY)
+            .withMaxElapsed(MAX_ELAPSED_SECONDS, TimeUnit.SECONDS)
+            .withBudget(ApiRegistry.getInstance().getRetryBudget());
 
     private TextView mTvRetryWhen;
     private CompositeDisposable mCompositeDisposable;
     private int mMsgIndex;
+    private RetryPipeline mRetryPipeline = new RetryPipeline(AndroidSchedulerProvider.getInstance());
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -77,43 +90,23 @@ public class RetryActivity extends AppCompatActivity {
         Observable<String> observable = Observable.create(new ObservableOnSubscribe<String>() {
             @Override
             public void subscribe(ObservableEmitter<String> emitter) throws Exception {
-                int msglen = MSG_ARRAY.length;
                 doWork();
                 //模拟请求的结果，前四次都返回失败，并将失败信息递交给retryWhen。
-                if (mMsgIndex < msglen) { //模拟请求失败的情况。
-                    emitter.onError(new Throwable(MSG_ARRAY[mMsgIndex]));
+                if (mMsgIndex < ERROR_COUNT) { //模拟请求失败的情况。
+                    emitter.onError(mMsgIndex < TIMEOUT_COUNT ? new SocketTimeoutException("timeout") : new ServerBusyException());
                     mMsgIndex++;
                 } else { //模拟请求成功的情况。
                     emitter.onNext("Work Success");
                     emitter.onComplete();
                 }
             }
-        }).retryWhen(new Function<Observable<Throwable>, ObservableSource<?>>() {
-
-            private int mRetryCount;
-
+        });
+        observable = mRetryPipeline.retry(observable.doOnError(new Consumer<Throwable>() {
             @Override
-            public ObservableSource<?> apply(Observable<Throwable> throwableObservable) throws Exception {
-                return throwableObservable.flatMap(new Function<Throwable, ObservableSource<?>>() {
-                    @Override
-                    public ObservableSource<?> apply(Throwable throwable) throws Exception {
-                        String errorMsg = throwable.getMessage();
-                        long waitTime = 0;
-                        switch (errorMsg) {
-                            case MSG_WAIT_SHORT:
-                                waitTime = 2000;
-                                break;
-                            case MSG_WAIT_LONG:
-                                waitTime = 4000;
-                                break;
-                        }
-                        Log.d(TAG, "发生错误，尝试等待时间=" + waitTime + ",当前重试次数=" + mRetryCount);
-                        mRetryCount++;
-                        return waitTime > 0 && mRetryCount <= 4 ? Observable.timer(waitTime, TimeUnit.MILLISECONDS) : Observable.error(throwable);
-                    }
-                });
+            public void accept(Throwable throwable) throws Exception {
+                Log.d(TAG, "发生错误=" + throwable + "，" + RETRY_POLICY.getBudget());
             }
-        });
+        }), RETRY_POLICY);
         DisposableObserver<String> disposableObserver = new DisposableObserver<String>() {
             @Override
             public void onNext(String value) {
@@ -130,10 +123,16 @@ public class RetryActivity extends AppCompatActivity {
                 Log.d(TAG, "DisposableObserver onComplete");
             }
         };
-        observable.subscribeOn(Schedulers.io()).observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
+        observable.subscribe(disposableObserver);
         mCompositeDisposable.add(disposableObserver);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mCompositeDisposable.clear();
+    }
+
     private void doWork() {
         long workTime = (long) (Math.random() * 500) + 500;
         try {
@@ -145,4 +144,15 @@ public class RetryActivity extends AppCompatActivity {
             e.printStackTrace();
         }
     }
+
+    /**
+     * 模拟服务器繁忙，例如返回了503
+     */
+    private static class ServerBusyException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ServerBusyException() {
+            super("server busy");
+        }
+    }
 }
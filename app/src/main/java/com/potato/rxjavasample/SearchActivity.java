@@ -2,6 +2,7 @@ package com.potato.rxjavasample;
 
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.widget.EditText;
@@ -9,19 +10,16 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.util.concurrent.TimeUnit;
+import com.potato.rxjavasample.flow.FlowableInput;
+import com.potato.rxjavasample.schedulers.SchedulerProvider;
+import com.potato.rxjavasample.search.AdaptiveDebounce;
+import com.potato.rxjavasample.search.SearchCache;
+import com.potato.rxjavasample.search.SearchPipeline;
+import com.potato.rxjavasample.search.SearchResult;
+import com.potato.rxjavasample.search.SimulatedSearchBackend;
 
-import io.reactivex.Observable;
-import io.reactivex.ObservableEmitter;
-import io.reactivex.ObservableOnSubscribe;
-import io.reactivex.ObservableSource;
-import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
-import io.reactivex.functions.Function;
-import io.reactivex.functions.Predicate;
-import io.reactivex.observers.DisposableObserver;
-import io.reactivex.schedulers.Schedulers;
-import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.DisposableSubscriber;
 
 /**
  * 优化搜索联想功能
@@ -54,13 +52,24 @@ import io.reactivex.subjects.PublishSubject;
  */
 
 public class SearchActivity extends AppCompatActivity {
+    //搜索联想缓存最多占用的内存
+    private static final long SEARCH_CACHE_BYTES = 64 * 1024;
+    //debounce等待时间的范围，以及还没有统计数据时的等待时间，毫秒
+    private static final long DEBOUNCE_MIN = 50;
+    private static final long DEBOUNCE_MAX = 600;
+    private static final long DEBOUNCE_INITIAL = 200;
 
     private EditText et_search;
     private TextView tv_search_result;
-    private DisposableObserver<String> disposableObserver;
+    private DisposableSubscriber<SearchResult> disposableObserver;
     private CompositeDisposable compositeDisposable;
     private String TAG = SearchActivity.class.getSimpleName();
-    private PublishSubject mPublishSubject;
+    private SchedulerProvider mSchedulers = AndroidSchedulerProvider.getInstance();
+    private SimulatedSearchBackend mSearchBackend = new SimulatedSearchBackend(mSchedulers.io(), 100, 600, 20);
+    //只关心最新的输入内容，debounce会请求所有的输入，被覆盖的输入由debounce丢弃；等待时间根据按键间隔和后台耗时自动调整，初始为200ms
+    private SearchPipeline mSearchPipeline = new SearchPipeline(FlowableInput.<String>latest(),
+            new AdaptiveDebounce<String>(DEBOUNCE_MIN, DEBOUNCE_MAX, DEBOUNCE_INITIAL, mSchedulers.computation()),
+            new SearchCache(mSearchBackend, SEARCH_CACHE_BYTES), mSchedulers);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -85,11 +94,11 @@ public class SearchActivity extends AppCompatActivity {
             }
         });
 
-        mPublishSubject = PublishSubject.create();
-        disposableObserver = new DisposableObserver<String>() {
+        disposableObserver = new DisposableSubscriber<SearchResult>() {
             @Override
-            public void onNext(String s) {
-                tv_search_result.setText(s);
+            public void onNext(SearchResult result) {
+                Log.d(TAG, "展示结果，关键词为：" + result.getQuery() + "，本地过滤=" + result.isLocal() + "，" + mSearchPipeline + "，" + mSearchBackend);
+                tv_search_result.setText("完成搜索，关键词为：" + result.getQuery() + "\n" + TextUtils.join("\n", result.getSuggestions()));
             }
 
             @Override
@@ -102,48 +111,13 @@ public class SearchActivity extends AppCompatActivity {
 
             }
         };
-        mPublishSubject.debounce(200, TimeUnit.MILLISECONDS)
-                .filter(new Predicate<String>() {
-                    @Override
-                    public boolean test(String s) throws Exception {
-                        return s.length() > 0;
-                    }
-
-                })
-                .switchMap(new Function<String, ObservableSource<String>>() {
-                    @Override
-                    public ObservableSource<String> apply(String s) throws Exception {
-                        return getSearchObservable(s);
-                    }
-                })
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(disposableObserver);
+        mSearchPipeline.results().subscribe(disposableObserver);
         compositeDisposable = new CompositeDisposable();
         compositeDisposable.add(disposableObserver);
     }
 
-    private ObservableSource<String> getSearchObservable(final String query) {
-        return Observable.create(new ObservableOnSubscribe<String>() {
-            @Override
-            public void subscribe(ObservableEmitter<String> emitter) throws Exception {
-                Log.d(TAG, "开始请求，关键词为：" + query);
-                try {
-                    Thread.sleep(100 + (long) (Math.random() * 500));
-                } catch (InterruptedException e) {
-                    if (!emitter.isDisposed()) {
-                        emitter.onError(e);
-                    }
-                }
-                Log.d(TAG, "请求结束，关键词为：" + query);
-                emitter.onNext("完成搜索，关键词为：" + query);
-                emitter.onComplete();
-            }
-        }).subscribeOn(Schedulers.io());
-
-    }
-
     private void startSearch(String query) {
-      mPublishSubject.onNext(query);
+        mSearchPipeline.onQueryChanged(query);
     }
 
     @Override
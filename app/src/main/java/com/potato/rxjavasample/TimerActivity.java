@@ -9,14 +9,17 @@ import androidx.appcompat.app.AppCompatActivity;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.functions.Consumer;
 import io.reactivex.observers.DisposableObserver;
-import io.reactivex.schedulers.Schedulers;
 
 public class TimerActivity extends AppCompatActivity {
     private static final String TAG = TimerActivity.class.getSimpleName();
     private CompositeDisposable mCompositeDisposable;
+    //所有定时任务共用一个时间轮线程，interval、timer默认使用的computation()每个订阅都会占用一个Worker
+    //interval和timer只在指定的Scheduler上计时，subscribeOn对它们没有作用
+    private Scheduler mTimer = AndroidSchedulerProvider.getInstance().timer();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -35,7 +38,7 @@ public class TimerActivity extends AppCompatActivity {
                 Log.i(TAG, "执行第一个任务");
 
             }
-        }).delay(1000, TimeUnit.MILLISECONDS).subscribe(disposableObserver);
+        }).delay(1000, TimeUnit.MILLISECONDS, mTimer).subscribe(disposableObserver);
         mCompositeDisposable.add(disposableObserver);
     }
 
@@ -43,8 +46,7 @@ public class TimerActivity extends AppCompatActivity {
     public void clickInterval(View view) {
         Log.i(TAG, "startTimerActivityInterval");
         DisposableObserver<Long> disposableObserver = getTimeDemoObserver();
-        Observable.interval(1000, TimeUnit.MILLISECONDS)
-                .subscribeOn(Schedulers.io())
+        Observable.interval(1000, TimeUnit.MILLISECONDS, mTimer)
                 .subscribe(disposableObserver);
         mCompositeDisposable.add(disposableObserver);
     }
@@ -53,8 +55,7 @@ public class TimerActivity extends AppCompatActivity {
     public void clickIntervalFirstNo(View view) {
         Log.i(TAG, "startTimerActivityIntervalFirstNo");
         DisposableObserver<Long> disposableObserver = getTimeDemoObserver();
-        Observable.interval(0, 1000, TimeUnit.MILLISECONDS)
-                .subscribeOn(Schedulers.io())
+        Observable.interval(0, 1000, TimeUnit.MILLISECONDS, mTimer)
                 .subscribe(disposableObserver);
         mCompositeDisposable.add(disposableObserver);
     }
@@ -63,9 +64,8 @@ public class TimerActivity extends AppCompatActivity {
     public void clickIntervalLimitFive(View view) {
         Log.i(TAG, "startTimerActivityInterval5");
         DisposableObserver<Long> disposableObserver = getTimeDemoObserver();
-        Observable.interval(0,1000, TimeUnit.MILLISECONDS)
+        Observable.interval(0,1000, TimeUnit.MILLISECONDS, mTimer)
                 .take(5)
-                .subscribeOn(Schedulers.io())
                 .subscribe(disposableObserver);
         mCompositeDisposable.add(disposableObserver);
     }
@@ -74,13 +74,19 @@ public class TimerActivity extends AppCompatActivity {
     public void clickTimer(View view) {
         Log.i(TAG, "startTimerActivityTimer");
         DisposableObserver<Long> disposableObserver = getTimeDemoObserver();
-        Observable.timer(1000, TimeUnit.MILLISECONDS)
-                .subscribeOn(Schedulers.io())
+        Observable.timer(1000, TimeUnit.MILLISECONDS, mTimer)
                 .subscribe(disposableObserver);
 
         mCompositeDisposable.add(disposableObserver);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        //时间轮线程是共享的，退出时需要取消还在运行的interval
+        mCompositeDisposable.clear();
+    }
+
     private DisposableObserver<Long> getTimeDemoObserver() {
         return new DisposableObserver<Long>() {
             @Override
@@ -14,6 +14,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import com.potato.rxjavasample.MainThreadFrameClock;
+import com.potato.rxjavasample.flow.FrameConflater;
+
+import io.reactivex.functions.Consumer;
+
 /**
  * Created by li.zhirong on 2020/1/19
  */
@@ -21,6 +26,8 @@ public class TaskFragment extends Fragment {
     private static String TAG = TaskFragment.class.getSimpleName();
     private TaskCallback mCallbacks;
     private DummyTask mTask;
+    //代替publishProgress，每一帧最多回调一次onProgressUpdate
+    private FrameConflater<Integer> mProgress;
 
     interface TaskCallback {
         void onPreExecute();
@@ -37,20 +44,14 @@ public class TaskFragment extends Fragment {
         protected Void doInBackground(Void... voids) {
             for (int i = 0; !isCancelled() && i < 100; i++) {
                 SystemClock.sleep(100);
-                publishProgress(i);
+                mProgress.submit(i);
             }
             return null;
         }
 
-        @Override
-        protected void onProgressUpdate(Integer... values) {
-            if (mCallbacks != null) {
-                mCallbacks.onProgressUpdate(values[0]);
-            }
-        }
-
         @Override
         protected void onCancelled() {
+            mProgress.clear();
             if (mCallbacks != null) {
                 mCallbacks.onCancelled();
             }
@@ -58,6 +59,8 @@ public class TaskFragment extends Fragment {
 
         @Override
         protected void onPostExecute(Void aVoid) {
+            //最后的进度可能还在等下一帧，先展示出来
+            mProgress.flush();
             if (mCallbacks != null) {
                 mCallbacks.onPostExecute();
             }
@@ -89,6 +92,14 @@ public class TaskFragment extends Fragment {
         super.onCreate(savedInstanceState);
         Log.i(TAG, "TaskFragment onCreate");
         setRetainInstance(true);
+        mProgress = new FrameConflater<>(MainThreadFrameClock.create(), new Consumer<Integer>() {
+            @Override
+            public void accept(Integer percent) throws Exception {
+                if (mCallbacks != null) {
+                    mCallbacks.onProgressUpdate(percent);
+                }
+            }
+        });
         mTask = new DummyTask();
         mTask.execute();
     }
@@ -9,9 +9,10 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.FragmentManager;
 
+import com.potato.rxjavasample.MainThreadFrameClock;
 import com.potato.rxjavasample.R;
+import com.potato.rxjavasample.flow.FrameConflate;
 
-import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.observables.ConnectableObservable;
 import io.reactivex.observers.DisposableObserver;
@@ -114,7 +115,8 @@ public class RotationPersistActivity extends AppCompatActivity implements IHolde
                 mTvResult.setText("任务完成");
             }
         };
-        workerFlow.observeOn(AndroidSchedulers.mainThread()).subscribe(disposableObserver);
+        //进度按帧合并后在主线程上展示
+        workerFlow.compose(new FrameConflate<String>(MainThreadFrameClock.create())).subscribe(disposableObserver);
         mCompositeDisposable.add(disposableObserver);
     }
 
@@ -0,0 +1,65 @@
+package com.potato.rxjavasample.benchmark;
+
+import com.jakewharton.retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.ApiRegistry;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.NewApi;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 对比每次请求都 new Retrofit.Builder() 和使用 ApiRegistry 共享客户端的吞吐量（requests/s）。
+ * 每次请求分配的字节数看 gc profiler 输出的 gc.alloc.rate.norm。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class ApiRegistryBenchmark {
+
+    private LocalHttpServer mServer;
+    private String mBaseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mServer = new LocalHttpServer(NewsFixtures.pageJson(20));
+        mBaseUrl = mServer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    //修改前的写法：每次请求都重新创建Retrofit、OkHttpClient和接口代理
+    @Benchmark
+    public NewsEntity perCallBuilder() {
+        NewApi api = new Retrofit.Builder()
+                .baseUrl(mBaseUrl)
+                .addConverterFactory(GsonConverterFactory.create())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build().create(NewApi.class);
+        return api.getNews("Android", 20, 1).blockingFirst();
+    }
+
+    @Benchmark
+    public NewsEntity sharedRegistry() {
+        NewApi api = ApiRegistry.getInstance().create(mBaseUrl, NewApi.class);
+        return api.getNews("Android", 20, 1).blockingFirst();
+    }
+}
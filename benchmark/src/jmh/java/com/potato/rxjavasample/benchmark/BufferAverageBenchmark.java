@@ -0,0 +1,105 @@
+package com.potato.rxjavasample.benchmark;
+
+import com.potato.rxjavasample.sensor.WindowStats;
+import com.potato.rxjavasample.sensor.WindowedStatsAggregator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+
+/**
+ * BufferActivity的窗口平均值，一次操作 = 一个3秒窗口内的全部数据 + 窗口结束时的统计：
+ * bufferList：修改前的PublishSubject<Double>.buffer(3000ms)，下游遍历List求平均值；
+ * windowedStats：WindowedStatsAggregator.record(double)累加到基本类型字段中。
+ * samplesPerWindow = 12 对应默认的~4Hz采样，3000 对应压力测试的1kHz采样。
+ * 窗口计时使用TestScheduler，测量的只是数据处理本身的开销。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BufferAverageBenchmark {
+    private static final long WINDOW_MILLIS = 3000;
+
+    @Param({"12", "3000"})
+    public int samplesPerWindow;
+
+    private double[] mSamples;
+    //两种实现各用一个TestScheduler，推进时间时不会触发另一种实现的窗口
+    private TestScheduler mBufferScheduler;
+    private TestScheduler mStatsScheduler;
+    private PublishSubject<Double> mSubject;
+    private WindowedStatsAggregator mAggregator;
+    private CompositeDisposable mDisposables;
+    private double mLastMean;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mSamples = new double[samplesPerWindow];
+        for (int i = 0; i < mSamples.length; i++) {
+            mSamples[i] = random.nextDouble() * 25 + 5;
+        }
+        mBufferScheduler = new TestScheduler();
+        mStatsScheduler = new TestScheduler();
+        mDisposables = new CompositeDisposable();
+        mSubject = PublishSubject.create();
+        mDisposables.add(mSubject.buffer(WINDOW_MILLIS, TimeUnit.MILLISECONDS, mBufferScheduler).subscribe(new Consumer<List<Double>>() {
+            @Override
+            public void accept(List<Double> doubles) throws Exception {
+                double result = 0;
+                if (doubles.size() > 0) {
+                    for (double d : doubles) {
+                        result += d;
+                    }
+                    result = result / doubles.size();
+                }
+                mLastMean = result;
+            }
+        }));
+        mAggregator = new WindowedStatsAggregator(WINDOW_MILLIS, TimeUnit.MILLISECONDS, mStatsScheduler);
+        mDisposables.add(mAggregator.windows().subscribe(new Consumer<WindowStats>() {
+            @Override
+            public void accept(WindowStats stats) throws Exception {
+                mLastMean = stats.getMean();
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mDisposables.dispose();
+    }
+
+    @Benchmark
+    public double bufferList() {
+        for (double sample : mSamples) {
+            mSubject.onNext(sample);
+        }
+        mBufferScheduler.advanceTimeBy(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        return mLastMean;
+    }
+
+    @Benchmark
+    public double windowedStats() {
+        for (double sample : mSamples) {
+            mAggregator.record(sample);
+        }
+        mStatsScheduler.advanceTimeBy(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        return mLastMean;
+    }
+}
@@ -0,0 +1,89 @@
+package com.potato.rxjavasample.benchmark;
+
+import com.potato.rxjavasample.flow.FlowableInput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Consumer;
+import io.reactivex.subjects.PublishSubject;
+
+/**
+ * CombineLatestActivity的登录校验，一次操作 = 用户名和密码输入框各变化一次并得到校验结果：
+ * publishSubject：修改前的两个PublishSubject + Observable.combineLatest；
+ * flowableInput：两个FlowableInput.latest() + Flowable.combineLatest。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CombineLatestBenchmark {
+    private static final String[] NAMES = {"p", "po", "pot", "pota", "potat", "potato", "potato_1", "potato_12"};
+    private static final String[] PASSWORDS = {"1", "12", "123", "1234", "12345", "123456", "1234567", "12345678"};
+
+    private static final BiFunction<String, String, Boolean> VALIDATOR = new BiFunction<String, String, Boolean>() {
+        @Override
+        public Boolean apply(String name, String pwd) throws Exception {
+            int nameLen = name.length();
+            int pwdLen = pwd.length();
+            return nameLen >= 2 && nameLen <= 8 && pwdLen >= 4 && pwdLen <= 16;
+        }
+    };
+
+    private PublishSubject<String> mNameSubject;
+    private PublishSubject<String> mPwdSubject;
+    private FlowableInput<String> mNameInput;
+    private FlowableInput<String> mPwdInput;
+    private CompositeDisposable mDisposables;
+    private boolean mValid;
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        Consumer<Boolean> sink = new Consumer<Boolean>() {
+            @Override
+            public void accept(Boolean valid) throws Exception {
+                mValid = valid;
+            }
+        };
+        mDisposables = new CompositeDisposable();
+        mNameSubject = PublishSubject.create();
+        mPwdSubject = PublishSubject.create();
+        mDisposables.add(Observable.combineLatest(mNameSubject, mPwdSubject, VALIDATOR).subscribe(sink));
+        mNameInput = FlowableInput.latest();
+        mPwdInput = FlowableInput.latest();
+        mDisposables.add(Flowable.combineLatest(mNameInput.flowable(), mPwdInput.flowable(), VALIDATOR).subscribe(sink));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mDisposables.dispose();
+    }
+
+    @Benchmark
+    public boolean publishSubject() {
+        int index = mIndex++ & 7;
+        mNameSubject.onNext(NAMES[index]);
+        mPwdSubject.onNext(PASSWORDS[index]);
+        return mValid;
+    }
+
+    @Benchmark
+    public boolean flowableInput() {
+        int index = mIndex++ & 7;
+        mNameInput.onNext(NAMES[index]);
+        mPwdInput.onNext(PASSWORDS[index]);
+        return mValid;
+    }
+}
@@ -0,0 +1,106 @@
+package com.potato.rxjavasample.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * 基准测试用的本地HTTP服务，所有请求都返回同一个响应体，支持keep-alive。
+ * <p>
+ * 没有直接用MockWebServer：它分两次写响应头和响应体，又没有打开TCP_NODELAY，
+ * 复用连接时会撞上Nagle算法和延迟ACK，每个请求白白多出40ms左右，测出来的是TCP栈而不是客户端。
+ */
+final class LocalHttpServer {
+    private final byte[] mResponse;
+    private ServerSocket mServerSocket;
+
+    LocalHttpServer(String body) {
+        byte[] bodyBytes = utf8(body);
+        byte[] header = utf8("HTTP/1.1 200 OK\r\n"
+                + "Content-Type: application/json; charset=utf-8\r\n"
+                + "Content-Length: " + bodyBytes.length + "\r\n\r\n");
+        mResponse = new byte[header.length + bodyBytes.length];
+        System.arraycopy(header, 0, mResponse, 0, header.length);
+        System.arraycopy(bodyBytes, 0, mResponse, header.length, bodyBytes.length);
+    }
+
+    String start() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptThread = new Thread("LocalHttpServer-accept") {
+            @Override
+            public void run() {
+                while (!mServerSocket.isClosed()) {
+                    try {
+                        serve(mServerSocket.accept());
+                    } catch (IOException e) {
+                        //服务关闭
+                    }
+                }
+            }
+        };
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + "/";
+    }
+
+    void shutdown() throws IOException {
+        mServerSocket.close();
+    }
+
+    private void serve(final Socket socket) throws SocketException {
+        socket.setTcpNoDelay(true);
+        Thread connectionThread = new Thread("LocalHttpServer-connection") {
+            @Override
+            public void run() {
+                try {
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    OutputStream out = socket.getOutputStream();
+                    while (skipRequest(in)) {
+                        out.write(mResponse);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    //客户端断开连接
+                } finally {
+                    try {
+                        socket.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        };
+        connectionThread.setDaemon(true);
+        connectionThread.start();
+    }
+
+    //GET请求没有请求体，读到空行即为一个完整的请求
+    private static boolean skipRequest(InputStream in) throws IOException {
+        int matched = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            if ((matched % 2 == 0 && b == '\r') || (matched % 2 == 1 && b == '\n')) {
+                matched++;
+                if (matched == 4) {
+                    return true;
+                }
+            } else {
+                matched = b == '\r' ? 1 : 0;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] utf8(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.potato.rxjavasample.benchmark;
+
+import com.google.gson.Gson;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsEntity;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+import com.potato.rxjavasample.Retrofig_RxJava2.json.EntityTypeAdapterFactory;
+import com.potato.rxjavasample.Retrofig_RxJava2.json.NewsResultStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * 对比一页新闻数据的解析耗时和每页分配的字节数（gc.alloc.rate.norm）：
+ * reflectiveGson：修改前GsonConverterFactory.create()使用的反射解析；
+ * streamingAdapter：注册了EntityTypeAdapterFactory之后的解析；
+ * streamingPerItem：NewsResultStream逐条发送的解析模式。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NewsDecodeBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private String mJson;
+    private Gson mReflectiveGson;
+    private Gson mAdapterGson;
+
+    @Setup
+    public void setUp() {
+        mJson = NewsFixtures.pageJson(pageSize);
+        mReflectiveGson = new Gson();
+        mAdapterGson = EntityTypeAdapterFactory.createGson();
+    }
+
+    @Benchmark
+    public NewsEntity reflectiveGson() {
+        return mReflectiveGson.fromJson(mJson, NewsEntity.class);
+    }
+
+    @Benchmark
+    public NewsEntity streamingAdapter() {
+        return mAdapterGson.fromJson(mJson, NewsEntity.class);
+    }
+
+    @Benchmark
+    public NewsResultEntity streamingPerItem() {
+        return NewsResultStream.parse(ResponseBody.create(JSON, mJson)).blockingLast();
+    }
+}
@@ -0,0 +1,31 @@
+package com.potato.rxjavasample.benchmark;
+
+/**
+ * 基准测试用的gank.io接口返回数据
+ */
+final class NewsFixtures {
+
+    private NewsFixtures() {
+    }
+
+    static String pageJson(int count) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"error\":false,\"results\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"_id\":\"5e0bfb0b6e7524f833c3f2a").append(i).append("\",")
+                    .append("\"createdAt\":\"2019-12-31T14:43:55.744Z\",")
+                    .append("\"desc\":\"RxJava2 实战知识梳理 第").append(i).append("篇\",")
+                    .append("\"publishedAt\":\"2020-01-02T08:00:00.0Z\",")
+                    .append("\"source\":\"web\",")
+                    .append("\"type\":\"Android\",")
+                    .append("\"url\":\"https://www.jianshu.com/p/c935d0860186\",")
+                    .append("\"used\":true,")
+                    .append("\"who\":\"potato\"}");
+        }
+        builder.append("]}");
+        return builder.toString();
+    }
+}
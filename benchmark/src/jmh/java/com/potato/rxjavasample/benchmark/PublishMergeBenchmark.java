@@ -0,0 +1,134 @@
+package com.potato.rxjavasample.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.TestScheduler;
+
+/**
+ * PublishMergeActivity中缓存和网络两个数据源的几种组合方式，一次操作 = 订阅并等到两个数据源都结束：
+ * concat、concatEager、merge、publish（merge(network, cache.takeUntil(network))）。
+ * 缓存耗时10ms、网络耗时200ms，时间使用TestScheduler。
+ * 辅助计数器firstDataMillis是订阅到第一次展示数据的虚拟时间之和，emitted是展示的次数，
+ * 两者除以操作数分别得到平均首屏时间和每次加载展示的次数。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PublishMergeBenchmark {
+    private static final long CACHE_MILLIS = 10;
+    private static final long NETWORK_MILLIS = 200;
+    //两个数据源都结束所需的时间
+    private static final long LOAD_MILLIS = CACHE_MILLIS + NETWORK_MILLIS;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long firstDataMillis;
+        public long emitted;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            firstDataMillis = 0;
+            emitted = 0;
+        }
+    }
+
+    private TestScheduler mScheduler;
+    private List<String> mCacheData;
+    private List<String> mNetworkData;
+    private long mSubscribeTime;
+    private long mFirstDataTime;
+    private int mEmitted;
+    private Consumer<List<String>> mConsumer;
+
+    @Setup
+    public void setUp() {
+        mScheduler = new TestScheduler();
+        mCacheData = new ArrayList<>();
+        mNetworkData = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            mCacheData.add("cache" + i);
+            mNetworkData.add("network" + i);
+        }
+        mConsumer = new Consumer<List<String>>() {
+            @Override
+            public void accept(List<String> data) throws Exception {
+                if (mEmitted++ == 0) {
+                    mFirstDataTime = mScheduler.now(TimeUnit.MILLISECONDS);
+                }
+            }
+        };
+    }
+
+    @Benchmark
+    public long concat(Counters counters) {
+        return load(Observable.concat(getCache(), getNetwork()), counters);
+    }
+
+    @Benchmark
+    public long concatEager(Counters counters) {
+        List<Observable<List<String>>> observables = new ArrayList<>(2);
+        observables.add(getCache());
+        observables.add(getNetwork());
+        return load(Observable.concatEager(observables), counters);
+    }
+
+    @Benchmark
+    public long merge(Counters counters) {
+        return load(Observable.merge(getCache(), getNetwork()), counters);
+    }
+
+    @Benchmark
+    public long publish(Counters counters) {
+        return load(getNetwork().publish(new Function<Observable<List<String>>, ObservableSource<List<String>>>() {
+            @Override
+            public ObservableSource<List<String>> apply(Observable<List<String>> network) throws Exception {
+                return Observable.merge(network, getCache().takeUntil(network));
+            }
+        }), counters);
+    }
+
+    private Observable<List<String>> getCache() {
+        return Observable.timer(CACHE_MILLIS, TimeUnit.MILLISECONDS, mScheduler).map(new Function<Long, List<String>>() {
+            @Override
+            public List<String> apply(Long tick) throws Exception {
+                return mCacheData;
+            }
+        });
+    }
+
+    private Observable<List<String>> getNetwork() {
+        return Observable.timer(NETWORK_MILLIS, TimeUnit.MILLISECONDS, mScheduler).map(new Function<Long, List<String>>() {
+            @Override
+            public List<String> apply(Long tick) throws Exception {
+                return mNetworkData;
+            }
+        });
+    }
+
+    private long load(Observable<List<String>> observable, Counters counters) {
+        mSubscribeTime = mScheduler.now(TimeUnit.MILLISECONDS);
+        mEmitted = 0;
+        observable.subscribe(mConsumer);
+        mScheduler.advanceTimeBy(LOAD_MILLIS, TimeUnit.MILLISECONDS);
+        counters.firstDataMillis += mFirstDataTime - mSubscribeTime;
+        counters.emitted += mEmitted;
+        return mFirstDataTime;
+    }
+}
@@ -0,0 +1,124 @@
+package com.potato.rxjavasample.benchmark;
+
+import com.potato.rxjavasample.retry.RetryPolicy;
+import com.potato.rxjavasample.retry.RetryTransformer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.TestScheduler;
+
+/**
+ * RetryActivity的retryWhen重试，一次操作 = 订阅一个前failures次都失败的请求，直到成功或放弃。
+ * 失败时交替等待2000ms和4000ms，最多重试4次，时间使用TestScheduler，因此只衡量重订阅本身的开销，
+ * 包括每次重试创建的timer和retryWhen内部的Subject。
+ * retryPolicy：同样的请求使用RetryPolicy，按异常类型分类，等待时间在2000 ~ 4000ms内随机，另外还有每次订阅新建的重试状态。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RetryBackoffBenchmark {
+    private static final int MAX_RETRY = 4;
+    //足够完成所有的重试
+    private static final long TOTAL_WAIT_MILLIS = MAX_RETRY * 4000;
+
+    @Param({"0", "2", "4"})
+    public int failures;
+
+    private TestScheduler mScheduler;
+    private int mAttempt;
+    private String mResult;
+    private Consumer<String> mOnNext;
+    private Consumer<Throwable> mOnError;
+    private RetryTransformer<String> mRetry;
+
+    @Setup
+    public void setUp() {
+        mScheduler = new TestScheduler();
+        mOnNext = new Consumer<String>() {
+            @Override
+            public void accept(String s) throws Exception {
+                mResult = s;
+            }
+        };
+        mOnError = new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable throwable) throws Exception {
+                mResult = throwable.getMessage();
+            }
+        };
+        //每次等待最多4000ms，TOTAL_WAIT_MILLIS足够完成所有的重试
+        mRetry = RetryPolicy.decorrelatedJitter(4000, TimeUnit.MILLISECONDS)
+                .retryOn(IOException.class, 2000, TimeUnit.MILLISECONDS)
+                .withMaxRetries(MAX_RETRY)
+                .transformer(mScheduler, new Random(1));
+    }
+
+    @Benchmark
+    public String retryWhen() {
+        mAttempt = 0;
+        mResult = null;
+        Observable.create(new ObservableOnSubscribe<String>() {
+            @Override
+            public void subscribe(ObservableEmitter<String> emitter) throws Exception {
+                if (mAttempt++ < failures) {
+                    emitter.onError(new Throwable(mAttempt % 2 == 1 ? "wait_short" : "wait_long"));
+                } else {
+                    emitter.onNext("Work Success");
+                    emitter.onComplete();
+                }
+            }
+        }).retryWhen(new Function<Observable<Throwable>, ObservableSource<?>>() {
+            private int mRetryCount;
+
+            @Override
+            public ObservableSource<?> apply(Observable<Throwable> throwableObservable) throws Exception {
+                return throwableObservable.flatMap(new Function<Throwable, ObservableSource<?>>() {
+                    @Override
+                    public ObservableSource<?> apply(Throwable throwable) throws Exception {
+                        long waitTime = "wait_short".equals(throwable.getMessage()) ? 2000 : 4000;
+                        mRetryCount++;
+                        return mRetryCount <= MAX_RETRY ? Observable.timer(waitTime, TimeUnit.MILLISECONDS, mScheduler) : Observable.error(throwable);
+                    }
+                });
+            }
+        }).subscribe(mOnNext, mOnError);
+        mScheduler.advanceTimeBy(TOTAL_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        return mResult;
+    }
+
+    @Benchmark
+    public String retryPolicy() {
+        mAttempt = 0;
+        mResult = null;
+        Observable.create(new ObservableOnSubscribe<String>() {
+            @Override
+            public void subscribe(ObservableEmitter<String> emitter) throws Exception {
+                if (mAttempt++ < failures) {
+                    emitter.onError(new IOException("wait"));
+                } else {
+                    emitter.onNext("Work Success");
+                    emitter.onComplete();
+                }
+            }
+        }).compose(mRetry).subscribe(mOnNext, mOnError);
+        mScheduler.advanceTimeBy(TOTAL_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        return mResult;
+    }
+}
@@ -0,0 +1,145 @@
+package com.potato.rxjavasample.benchmark;
+
+import com.potato.rxjavasample.search.AdaptiveDebounce;
+import com.potato.rxjavasample.search.SimulatedSearchBackend;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.PublishSubject;
+
+/**
+ * SearchActivity的 debounce + switchMap，一次操作 = 以keyGapMillis的间隔输入一个完整的词，直到最后的结果返回：
+ * fixedDebounce：修改前固定200ms的debounce；
+ * adaptiveDebounce：AdaptiveDebounce。
+ * 时间使用TestScheduler，后台耗时100 ~ 600ms。除了吞吐量和每次操作的耗时，
+ * 还通过辅助计数器输出每个词发出的请求数（issued）、展示的结果数（shown），
+ * 以及最后一次按键到最终结果展示的虚拟时间之和（waitMillis，除以操作数得到平均等待时间）。
+ * 一次操作结束时还没有展示任何结果则不计入waitMillis。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchPipelineBenchmark {
+    private static final String[] WORDS = {"rxjava", "retrofit", "observable", "switchmap", "debounce"};
+    //两个词之间的停顿，超过AdaptiveDebounce统计按键间隔的范围
+    private static final long PAUSE_MILLIS = 3000;
+
+    @Param({"60", "250"})
+    public long keyGapMillis;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long issued;
+        public long shown;
+        public long waitMillis;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            issued = 0;
+            shown = 0;
+            waitMillis = 0;
+        }
+    }
+
+    private TestScheduler mFixedScheduler;
+    private TestScheduler mAdaptiveScheduler;
+    private PublishSubject<String> mFixedInput;
+    private PublishSubject<String> mAdaptiveInput;
+    private Disposable mFixedDisposable;
+    private Disposable mAdaptiveDisposable;
+    private Counters mCounters;
+    private long mLastKeyTime;
+    private long mLastShownTime;
+    private int mWordIndex;
+
+    @Setup
+    public void setUp() {
+        mFixedScheduler = new TestScheduler();
+        mFixedInput = PublishSubject.create();
+        mFixedDisposable = search(mFixedInput.debounce(200, TimeUnit.MILLISECONDS, mFixedScheduler), mFixedScheduler);
+
+        mAdaptiveScheduler = new TestScheduler();
+        mAdaptiveInput = PublishSubject.create();
+        AdaptiveDebounce<String> debounce = new AdaptiveDebounce<>(50, 600, 200, mAdaptiveScheduler);
+        mAdaptiveDisposable = search(mAdaptiveInput.compose(debounce), mAdaptiveScheduler);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFixedDisposable.dispose();
+        mAdaptiveDisposable.dispose();
+    }
+
+    @Benchmark
+    public long fixedDebounce(Counters counters) {
+        return type(mFixedInput, mFixedScheduler, counters);
+    }
+
+    @Benchmark
+    public long adaptiveDebounce(Counters counters) {
+        return type(mAdaptiveInput, mAdaptiveScheduler, counters);
+    }
+
+    private Disposable search(Observable<String> debounced, final TestScheduler scheduler) {
+        final SimulatedSearchBackend backend = new SimulatedSearchBackend(scheduler, 100, 600, 20);
+        return debounced.filter(new Predicate<String>() {
+            @Override
+            public boolean test(String s) throws Exception {
+                return s.length() > 0;
+            }
+        }).doOnNext(new Consumer<String>() {
+            @Override
+            public void accept(String s) throws Exception {
+                mCounters.issued++;
+            }
+        }).switchMap(new Function<String, ObservableSource<List<String>>>() {
+            @Override
+            public ObservableSource<List<String>> apply(String s) throws Exception {
+                return backend.search(s);
+            }
+        }).subscribe(new Consumer<List<String>>() {
+            @Override
+            public void accept(List<String> results) throws Exception {
+                mCounters.shown++;
+                mLastShownTime = scheduler.now(TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    //中间结果不计入等待时间，只统计最后一次按键之后展示的结果
+    private long type(PublishSubject<String> input, TestScheduler scheduler, Counters counters) {
+        mCounters = counters;
+        String word = WORDS[mWordIndex++ % WORDS.length];
+        for (int i = 1; i <= word.length(); i++) {
+            input.onNext(word.substring(0, i));
+            mLastKeyTime = scheduler.now(TimeUnit.MILLISECONDS);
+            scheduler.advanceTimeBy(keyGapMillis, TimeUnit.MILLISECONDS);
+        }
+        scheduler.advanceTimeBy(PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+        if (mLastShownTime >= mLastKeyTime) {
+            counters.waitMillis += mLastShownTime - mLastKeyTime;
+        }
+        return scheduler.now(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,110 @@
+package com.potato.rxjavasample.benchmark;
+
+import com.potato.rxjavasample.schedulers.HashedWheelScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * TimerActivity中的timer/interval，同时有大量定时任务时HashedWheelScheduler（wheel，每格1ms）和Schedulers.computation()的对比：
+ * timerFire：订阅timers个1 ~ 20ms的Observable.timer，直到全部到期；
+ * scheduleAndCancel：加入timers个1s后的任务再全部取消，类似请求在超时之前就返回了，只衡量加入和取消的开销；
+ * intervalTicks：timers个20ms的interval各收到一次数据后取消。
+ * 每次操作分配的字节数见gc profiler的 gc.alloc.rate.norm。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TimerSchedulerBenchmark {
+    private static final long MAX_DELAY_MILLIS = 20;
+
+    @Param({"wheel", "computation"})
+    public String scheduler;
+
+    @Param({"1000", "100000"})
+    public int timers;
+
+    private Scheduler mScheduler;
+    private long[] mDelays;
+    private Disposable[] mDisposables;
+    private volatile CountDownLatch mLatch;
+    private Consumer<Long> mOnTimer;
+    private Runnable mNoop;
+
+    @Setup
+    public void setUp() {
+        mScheduler = "wheel".equals(scheduler) ? new HashedWheelScheduler(1, TimeUnit.MILLISECONDS, 512) : Schedulers.computation();
+        mDelays = new long[timers];
+        Random random = new Random(1);
+        for (int i = 0; i < timers; i++) {
+            mDelays[i] = 1 + random.nextInt((int) MAX_DELAY_MILLIS);
+        }
+        mDisposables = new Disposable[timers];
+        mOnTimer = new Consumer<Long>() {
+            @Override
+            public void accept(Long tick) throws Exception {
+                mLatch.countDown();
+            }
+        };
+        mNoop = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mScheduler instanceof HashedWheelScheduler) {
+            mScheduler.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void timerFire() throws InterruptedException {
+        mLatch = new CountDownLatch(timers);
+        for (int i = 0; i < timers; i++) {
+            Observable.timer(mDelays[i], TimeUnit.MILLISECONDS, mScheduler).subscribe(mOnTimer);
+        }
+        mLatch.await();
+    }
+
+    @Benchmark
+    public void scheduleAndCancel() {
+        for (int i = 0; i < timers; i++) {
+            mDisposables[i] = mScheduler.scheduleDirect(mNoop, 1, TimeUnit.SECONDS);
+        }
+        for (int i = 0; i < timers; i++) {
+            mDisposables[i].dispose();
+        }
+    }
+
+    @Benchmark
+    public void intervalTicks() throws InterruptedException {
+        mLatch = new CountDownLatch(timers);
+        for (int i = 0; i < timers; i++) {
+            mDisposables[i] = Observable.interval(MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS, mScheduler).subscribe(mOnTimer);
+        }
+        mLatch.await();
+        for (int i = 0; i < timers; i++) {
+            mDisposables[i].dispose();
+        }
+    }
+}
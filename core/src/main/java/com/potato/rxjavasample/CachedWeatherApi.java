@@ -0,0 +1,107 @@
+package com.potato.rxjavasample;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Consumer;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * 带过期时间的天气缓存，按cityId缓存最近一次请求的结果
+ * <p>
+ * 定位模块会反复在CITY_ARRAY中的几个城市之间切换，网络状态变化时也会重新请求，
+ * 在有效期内的城市直接返回缓存，不再发起网络请求；过期之后才重新请求并刷新缓存。
+ * 缓存的城市数有上限，超过时淘汰最久未使用的城市。
+ */
+public class CachedWeatherApi implements WeatherApi {
+    private final WeatherApi mDelegate;
+    private final long mTtlNanos;
+    private final Map<Long, Entry> mEntries;
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    public CachedWeatherApi(WeatherApi delegate, long ttl, TimeUnit unit, final int maxEntries) {
+        mDelegate = delegate;
+        mTtlNanos = unit.toNanos(ttl);
+        mEntries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Observable<WeatherEnity> getWeather(final long cityID) {
+        return Observable.defer(new Callable<ObservableSource<WeatherEnity>>() {
+            @Override
+            public ObservableSource<WeatherEnity> call() throws Exception {
+                WeatherEnity cached = getFresh(cityID);
+                if (cached != null) {
+                    mHitCount.incrementAndGet();
+                    return Observable.just(cached);
+                }
+                mMissCount.incrementAndGet();
+                return mDelegate.getWeather(cityID).doOnNext(new Consumer<WeatherEnity>() {
+                    @Override
+                    public void accept(WeatherEnity weatherEnity) throws Exception {
+                        put(cityID, weatherEnity);
+                    }
+                });
+            }
+        });
+    }
+
+    //条件请求本身就能避免重复下载，不经过缓存
+    @Override
+    public Observable<Response<ResponseBody>> getWeatherResponse(long cityID) {
+        return mDelegate.getWeatherResponse(cityID);
+    }
+
+    /**
+     * 命中缓存的次数，即节省的网络请求次数
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    private synchronized WeatherEnity getFresh(long cityId) {
+        Entry entry = mEntries.get(cityId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.createTime > mTtlNanos) {
+            mEntries.remove(cityId);
+            return null;
+        }
+        return entry.weather;
+    }
+
+    private synchronized void put(long cityId, WeatherEnity weather) {
+        mEntries.put(cityId, new Entry(weather, System.nanoTime()));
+    }
+
+    private static class Entry {
+        final WeatherEnity weather;
+        final long createTime;
+
+        Entry(WeatherEnity weather, long createTime) {
+            this.weather = weather;
+            this.createTime = createTime;
+        }
+    }
+}
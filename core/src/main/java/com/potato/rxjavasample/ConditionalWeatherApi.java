@@ -0,0 +1,39 @@
+package com.potato.rxjavasample;
+
+import com.potato.rxjavasample.conditional.ChangeDetector;
+
+import io.reactivex.Observable;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * 通过条件请求获取天气
+ * <p>
+ * getWeather改为请求getWeatherResponse：天气没有变化时服务端只返回304，响应体和上一次相同时也不再解析。
+ * 放在CachedWeatherApi里面时，缓存过期之后的请求也只有内容变化时才需要下载和解析；
+ * 这时ChangeDetector应该使用reuseUnchanged，内容没有变化时返回的是同一个WeatherEnity对象（缓存命中时也是），
+ * 展示前用distinctUntilChanged()就可以跳过没有变化的界面刷新。
+ */
+public class ConditionalWeatherApi implements WeatherApi {
+    private final WeatherApi mDelegate;
+    private final ChangeDetector<WeatherEnity> mChangeDetector;
+
+    public ConditionalWeatherApi(WeatherApi delegate, ChangeDetector<WeatherEnity> changeDetector) {
+        mDelegate = delegate;
+        mChangeDetector = changeDetector;
+    }
+
+    @Override
+    public Observable<WeatherEnity> getWeather(long cityID) {
+        return mDelegate.getWeatherResponse(cityID).compose(mChangeDetector);
+    }
+
+    @Override
+    public Observable<Response<ResponseBody>> getWeatherResponse(long cityID) {
+        return mDelegate.getWeatherResponse(cityID);
+    }
+
+    public ChangeDetector<WeatherEnity> getChangeDetector() {
+        return mChangeDetector;
+    }
+}
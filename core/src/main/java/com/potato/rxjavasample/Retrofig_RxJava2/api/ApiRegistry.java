@@ -0,0 +1,140 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.jakewharton.retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import com.potato.rxjavasample.Retrofig_RxJava2.json.EntityTypeAdapterFactory;
+import com.potato.rxjavasample.conditional.ConditionalRequestInterceptor;
+import com.potato.rxjavasample.retry.RetryBudget;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import retrofit2.CallAdapter;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * 进程内共享的网络客户端注册表
+ * <p>
+ * 之前每次请求都会 new Retrofit.Builder()，这样每次都会创建新的OkHttpClient（连接池、线程池都无法复用），
+ * 并且Retrofit对接口注解的解析结果也是缓存在Retrofit实例上的，每次新建实例都要重新解析一遍。
+ * <p>
+ * 这里所有的API共享同一个OkHttpClient（即同一个ConnectionPool和Dispatcher），
+ * 每个baseUrl只创建一次Retrofit，每个baseUrl + 接口只创建一次动态代理，调用方拿到的都是缓存好的实例。
+ */
+public final class ApiRegistry {
+    public static final String GANK_BASE_URL = "http://gank.io";
+    public static final String WEATHER_BASE_URL = "http://www.weather.com.cn/";
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS = 16;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+    //最多记住多少个url的ETag/Last-Modified
+    private static final int MAX_CONDITIONAL_URLS = 64;
+    //所有请求共用的重试预算：重试最多增加10%的请求量，最多连续重试10次
+    private static final double RETRY_BUDGET_RATIO = 0.1;
+    private static final int RETRY_BUDGET_TOKENS = 10;
+
+    private static volatile ApiRegistry sInstance;
+
+    private final OkHttpClient mClient;
+    private final ConditionalRequestInterceptor mConditionalInterceptor;
+    private final RetryBudget mRetryBudget = new RetryBudget(RETRY_BUDGET_RATIO, RETRY_BUDGET_TOKENS);
+    private final Gson mGson;
+    private final Converter.Factory mConverterFactory;
+    private final CallAdapter.Factory mCallAdapterFactory;
+    private final Map<String, Retrofit> mRetrofits = new ConcurrentHashMap<>();
+    private final Map<String, Object> mServices = new ConcurrentHashMap<>();
+
+    public static ApiRegistry getInstance() {
+        if (sInstance == null) {
+            synchronized (ApiRegistry.class) {
+                if (sInstance == null) {
+                    ConditionalRequestInterceptor interceptor = new ConditionalRequestInterceptor(MAX_CONDITIONAL_URLS);
+                    sInstance = new ApiRegistry(createClient(interceptor), interceptor);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private static OkHttpClient createClient(ConditionalRequestInterceptor interceptor) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .addInterceptor(interceptor)
+                .build();
+    }
+
+    private ApiRegistry(OkHttpClient client, ConditionalRequestInterceptor conditionalInterceptor) {
+        mClient = client;
+        mConditionalInterceptor = conditionalInterceptor;
+        mGson = EntityTypeAdapterFactory.createGson();
+        mConverterFactory = GsonConverterFactory.create(mGson);
+        mCallAdapterFactory = RxJava2CallAdapterFactory.create();
+    }
+
+    public OkHttpClient getClient() {
+        return mClient;
+    }
+
+    public ConditionalRequestInterceptor getConditionalInterceptor() {
+        return mConditionalInterceptor;
+    }
+
+    /**
+     * 所有数据流的RetryPolicy都使用这一个预算，后台故障时不会因为各自重试而把请求量放大
+     */
+    public RetryBudget getRetryBudget() {
+        return mRetryBudget;
+    }
+
+    /**
+     * 和Retrofit使用同一套TypeAdapter，ChangeDetector用它来解析条件请求的响应体
+     */
+    public <T> TypeAdapter<T> getAdapter(Class<T> type) {
+        return mGson.getAdapter(type);
+    }
+
+    /**
+     * 获取baseUrl对应的接口实例，同一个baseUrl + 接口只会创建一次。
+     */
+    public <T> T create(String baseUrl, Class<T> service) {
+        String key = baseUrl + "#" + service.getName();
+        Object api = mServices.get(key);
+        if (api == null) {
+            synchronized (mServices) {
+                api = mServices.get(key);
+                if (api == null) {
+                    api = getRetrofit(baseUrl).create(service);
+                    mServices.put(key, api);
+                }
+            }
+        }
+        return service.cast(api);
+    }
+
+    private Retrofit getRetrofit(String baseUrl) {
+        Retrofit retrofit = mRetrofits.get(baseUrl);
+        if (retrofit == null) {
+            retrofit = new Retrofit.Builder()
+                    .baseUrl(baseUrl)
+                    .client(mClient)
+                    .addConverterFactory(mConverterFactory)
+                    .addCallAdapterFactory(mCallAdapterFactory)
+                    .build();
+            mRetrofits.put(baseUrl, retrofit);
+        }
+        return retrofit;
+    }
+}
@@ -0,0 +1,27 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.api;
+
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsEntity;
+import com.potato.rxjavasample.conditional.ConditionalRequestInterceptor;
+
+import io.reactivex.Observable;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Path;
+import retrofit2.http.Streaming;
+
+public interface NewApi {
+    @GET("api/data/{category}/{count}/{page}")
+    Observable<NewsEntity> getNews(@Path("category") String category, @Path("count") int count, @Path("page") int page);
+
+    //不缓冲响应体，配合NewsResultStream边下载边解析
+    @Streaming
+    @GET("api/data/{category}/{count}/{page}")
+    Observable<ResponseBody> getNewsStream(@Path("category") String category, @Path("count") int count, @Path("page") int page);
+
+    //条件请求，内容没有变化时返回304，交给ChangeDetector解析
+    @Headers(ConditionalRequestInterceptor.ENABLE_HEADER)
+    @GET("api/data/{category}/{count}/{page}")
+    Observable<Response<ResponseBody>> getNewsResponse(@Path("category") String category, @Path("count") int count, @Path("page") int page);
+}
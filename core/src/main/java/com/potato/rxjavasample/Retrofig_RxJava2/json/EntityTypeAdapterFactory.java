@@ -0,0 +1,43 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsEntity;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+import com.potato.rxjavasample.WeatherEnity;
+
+/**
+ * 注册接口实体的流式TypeAdapter
+ * <p>
+ * Gson默认的ReflectiveTypeAdapterFactory需要通过反射创建对象、逐个字段赋值，
+ * 这里为NewsEntity、NewsResultEntity和WeatherEnity提供手写的TypeAdapter，
+ * 解析时直接按字段名调用setter，其他类型仍然交给Gson默认的处理方式。
+ */
+public class EntityTypeAdapterFactory implements TypeAdapterFactory {
+    private final NewsResultEntityTypeAdapter mNewsResultAdapter = new NewsResultEntityTypeAdapter();
+    private final NewsEntityTypeAdapter mNewsAdapter = new NewsEntityTypeAdapter(mNewsResultAdapter);
+    private final WeatherEnityTypeAdapter mWeatherAdapter = new WeatherEnityTypeAdapter();
+
+    public static Gson createGson() {
+        return new GsonBuilder().registerTypeAdapterFactory(new EntityTypeAdapterFactory()).create();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == NewsResultEntity.class) {
+            return (TypeAdapter<T>) mNewsResultAdapter;
+        }
+        if (rawType == NewsEntity.class) {
+            return (TypeAdapter<T>) mNewsAdapter;
+        }
+        if (rawType == WeatherEnity.class) {
+            return (TypeAdapter<T>) mWeatherAdapter;
+        }
+        return null;
+    }
+}
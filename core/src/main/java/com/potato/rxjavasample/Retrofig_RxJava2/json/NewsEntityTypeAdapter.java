@@ -0,0 +1,81 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsEntity;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NewsEntity的流式解析，results中的每一项交给NewsResultEntityTypeAdapter。
+ */
+public class NewsEntityTypeAdapter extends TypeAdapter<NewsEntity> {
+    private final NewsResultEntityTypeAdapter mResultAdapter;
+
+    public NewsEntityTypeAdapter(NewsResultEntityTypeAdapter resultAdapter) {
+        mResultAdapter = resultAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, NewsEntity value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("error").value(value.isError());
+        out.name("results");
+        List<NewsResultEntity> results = value.getResults();
+        if (results == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (NewsResultEntity entity : results) {
+                mResultAdapter.write(out, entity);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public NewsEntity read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        NewsEntity entity = new NewsEntity();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "error":
+                    entity.setError(in.nextBoolean());
+                    break;
+                case "results":
+                    List<NewsResultEntity> results = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        results.add(mResultAdapter.read(in));
+                    }
+                    in.endArray();
+                    entity.setResults(results);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return entity;
+    }
+}
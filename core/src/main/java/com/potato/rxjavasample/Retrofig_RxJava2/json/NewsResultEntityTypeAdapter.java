@@ -0,0 +1,86 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+
+import java.io.IOException;
+
+/**
+ * NewsResultEntity的流式解析，按字段名直接调用setter，不经过反射。
+ * isCache只是本地标记，不参与序列化。
+ */
+public class NewsResultEntityTypeAdapter extends TypeAdapter<NewsResultEntity> {
+
+    @Override
+    public void write(JsonWriter out, NewsResultEntity value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("_id").value(value.get_id());
+        out.name("createdAt").value(value.getCreatedAt());
+        out.name("desc").value(value.getDesc());
+        out.name("publishedAt").value(value.getPublishedAt());
+        out.name("source").value(value.getSource());
+        out.name("type").value(value.getType());
+        out.name("url").value(value.getUrl());
+        out.name("used").value(value.isUsed());
+        out.name("who").value(value.getWho());
+        out.endObject();
+    }
+
+    @Override
+    public NewsResultEntity read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        NewsResultEntity entity = new NewsResultEntity();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    entity.set_id(in.nextString());
+                    break;
+                case "createdAt":
+                    entity.setCreatedAt(in.nextString());
+                    break;
+                case "desc":
+                    entity.setDesc(in.nextString());
+                    break;
+                case "publishedAt":
+                    entity.setPublishedAt(in.nextString());
+                    break;
+                case "source":
+                    entity.setSource(in.nextString());
+                    break;
+                case "type":
+                    entity.setType(in.nextString());
+                    break;
+                case "url":
+                    entity.setUrl(in.nextString());
+                    break;
+                case "used":
+                    entity.setUsed(in.nextBoolean());
+                    break;
+                case "who":
+                    entity.setWho(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return entity;
+    }
+}
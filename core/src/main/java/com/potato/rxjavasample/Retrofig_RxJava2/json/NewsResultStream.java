@@ -0,0 +1,87 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.json;
+
+import com.google.gson.stream.JsonReader;
+import com.potato.rxjavasample.Retrofig_RxJava2.api.NewApi;
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+
+import java.io.IOException;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Function;
+import okhttp3.ResponseBody;
+
+/**
+ * 边下载边解析gank.io的分页数据
+ * <p>
+ * 普通模式下需要等整个响应体下载完、整个results列表都解析完，订阅者才能收到数据；
+ * 这里直接在响应流上使用JsonReader，每解析完results中的一项就发送一次，
+ * 第一屏的数据不需要等待整页下载完成就可以开始展示。取消订阅时会关闭响应体，停止下载。
+ */
+public class NewsResultStream {
+    private static final NewsResultEntityTypeAdapter ADAPTER = new NewsResultEntityTypeAdapter();
+
+    private NewsResultStream() {
+    }
+
+    public static Observable<NewsResultEntity> getNews(NewApi api, String category, int count, int page) {
+        return api.getNewsStream(category, count, page).flatMap(new Function<ResponseBody, ObservableSource<NewsResultEntity>>() {
+            @Override
+            public ObservableSource<NewsResultEntity> apply(ResponseBody body) throws Exception {
+                return parse(body);
+            }
+        });
+    }
+
+    public static Observable<NewsResultEntity> parse(final ResponseBody body) {
+        return Observable.create(new ObservableOnSubscribe<NewsResultEntity>() {
+            @Override
+            public void subscribe(ObservableEmitter<NewsResultEntity> emitter) throws Exception {
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        body.close();
+                    }
+                });
+                JsonReader reader = new JsonReader(body.charStream());
+                try {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if ("error".equals(name) && reader.nextBoolean()) {
+                            emitter.onError(new IOException("gank.io返回错误"));
+                            return;
+                        } else if ("results".equals(name)) {
+                            reader.beginArray();
+                            while (reader.hasNext() && !emitter.isDisposed()) {
+                                NewsResultEntity entity = ADAPTER.read(reader);
+                                //results中的null元素跳过，不能让整页以NullPointerException结束
+                                if (entity != null) {
+                                    emitter.onNext(entity);
+                                }
+                            }
+                            if (emitter.isDisposed()) {
+                                return;
+                            }
+                            reader.endArray();
+                        } else if (!"error".equals(name)) {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    emitter.onComplete();
+                } catch (IOException e) {
+                    //取消订阅时关闭响应体也会抛出IOException，此时不需要再通知下游
+                    if (!emitter.isDisposed()) {
+                        emitter.onError(e);
+                    }
+                } finally {
+                    body.close();
+                }
+            }
+        });
+    }
+}
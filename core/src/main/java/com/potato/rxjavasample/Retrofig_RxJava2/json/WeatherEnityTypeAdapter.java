@@ -0,0 +1,87 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.potato.rxjavasample.WeatherEnity;
+
+import java.io.IOException;
+
+/**
+ * WeatherEnity的流式解析，weatherinfo中只读取界面用到的字段，其余字段直接跳过。
+ */
+public class WeatherEnityTypeAdapter extends TypeAdapter<WeatherEnity> {
+
+    @Override
+    public void write(JsonWriter out, WeatherEnity value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("weatherinfo");
+        WeatherEnity.WeatherInfo info = value.getWeatherinfo();
+        if (info == null) {
+            out.nullValue();
+        } else {
+            out.beginObject();
+            out.name("city").value(info.getCity());
+            out.name("temp").value(info.getTemp());
+            out.name("WD").value(info.getWD());
+            out.name("WS").value(info.getWS());
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public WeatherEnity read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        WeatherEnity weather = new WeatherEnity();
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("weatherinfo".equals(in.nextName()) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                weather.setWeatherinfo(readInfo(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return weather;
+    }
+
+    private static WeatherEnity.WeatherInfo readInfo(JsonReader in) throws IOException {
+        WeatherEnity.WeatherInfo info = new WeatherEnity.WeatherInfo();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "city":
+                    info.setCity(in.nextString());
+                    break;
+                case "temp":
+                    info.setTemp(in.nextString());
+                    break;
+                case "WD":
+                    info.setWD(in.nextString());
+                    break;
+                case "WS":
+                    info.setWS(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return info;
+    }
+}
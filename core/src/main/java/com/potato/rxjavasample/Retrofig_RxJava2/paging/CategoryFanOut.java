@@ -0,0 +1,165 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.paging;
+
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.exceptions.CompositeException;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Function;
+
+/**
+ * 同时请求多个分类，合并成一页数据
+ * <p>
+ * 之前用zip合并固定的两个分类：整页要等最慢的分类返回，任意一个分类失败整页都失败。
+ * 这里每个分类是一个独立的请求，最多同时进行maxConcurrency个，每返回一个分类（成功或失败）就发送一次当前的部分结果，
+ * 失败的分类只记录在Page中，不影响其他分类。只有所有分类都失败时才会发送错误。
+ * <p>
+ * 每个分类的请求都会subscribeOn(scheduler)，Retrofit的同步调用也可以并行执行。
+ */
+public class CategoryFanOut {
+    private final Scheduler mScheduler;
+    private final int mMaxConcurrency;
+
+    public CategoryFanOut(Scheduler scheduler, int maxConcurrency) {
+        mScheduler = scheduler;
+        mMaxConcurrency = Math.max(maxConcurrency, 1);
+    }
+
+    /**
+     * @param categories 要请求的分类，合并后的数据按这个顺序排列
+     * @param fetcher    请求单个分类的数据，只取第一次发送的数据
+     */
+    public Observable<Page> fetch(final List<String> categories, final Function<String, Observable<List<NewsResultEntity>>> fetcher) {
+        if (categories.isEmpty()) {
+            return Observable.just(new Page(categories));
+        }
+        return Observable.range(0, categories.size())
+                .flatMap(new Function<Integer, ObservableSource<Result>>() {
+                    @Override
+                    public ObservableSource<Result> apply(Integer index) throws Exception {
+                        return fetchOne(index, categories.get(index), fetcher);
+                    }
+                }, false, mMaxConcurrency)
+                .scan(new Page(categories), new BiFunction<Page, Result, Page>() {
+                    @Override
+                    public Page apply(Page page, Result result) throws Exception {
+                        return page.with(result);
+                    }
+                })
+                .skip(1)
+                .map(new Function<Page, Page>() {
+                    @Override
+                    public Page apply(Page page) throws Exception {
+                        if (page.isComplete() && page.getSucceededCount() == 0) {
+                            throw new CompositeException(page.getFailures().values());
+                        }
+                        return page;
+                    }
+                });
+    }
+
+    private Observable<Result> fetchOne(final int index, final String category, Function<String, Observable<List<NewsResultEntity>>> fetcher) {
+        Observable<List<NewsResultEntity>> source;
+        try {
+            source = fetcher.apply(category);
+        } catch (Exception e) {
+            return Observable.just(new Result(index, null, e));
+        }
+        return source.first(Collections.<NewsResultEntity>emptyList())
+                .map(new Function<List<NewsResultEntity>, Result>() {
+                    @Override
+                    public Result apply(List<NewsResultEntity> results) throws Exception {
+                        return new Result(index, results, null);
+                    }
+                })
+                .onErrorReturn(new Function<Throwable, Result>() {
+                    @Override
+                    public Result apply(Throwable throwable) throws Exception {
+                        return new Result(index, null, throwable);
+                    }
+                })
+                .toObservable()
+                .subscribeOn(mScheduler);
+    }
+
+    private static class Result {
+        final int index;
+        final List<NewsResultEntity> results;
+        final Throwable error;
+
+        Result(int index, List<NewsResultEntity> results, Throwable error) {
+            this.index = index;
+            this.results = results;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 某一时刻已经返回的分类合并后的数据，不可修改
+     */
+    public static class Page {
+        private final List<String> mCategories;
+        private final List<List<NewsResultEntity>> mSlots;
+        private final Map<String, Throwable> mFailures;
+        private final int mCompletedCount;
+
+        Page(List<String> categories) {
+            this(categories, new ArrayList<List<NewsResultEntity>>(Collections.<List<NewsResultEntity>>nCopies(categories.size(), null)),
+                    new LinkedHashMap<String, Throwable>(), 0);
+        }
+
+        private Page(List<String> categories, List<List<NewsResultEntity>> slots, Map<String, Throwable> failures, int completedCount) {
+            mCategories = categories;
+            mSlots = slots;
+            mFailures = failures;
+            mCompletedCount = completedCount;
+        }
+
+        Page with(Result result) {
+            List<List<NewsResultEntity>> slots = new ArrayList<>(mSlots);
+            Map<String, Throwable> failures = new LinkedHashMap<>(mFailures);
+            if (result.error != null) {
+                failures.put(mCategories.get(result.index), result.error);
+            } else {
+                slots.set(result.index, result.results);
+            }
+            return new Page(mCategories, slots, failures, mCompletedCount + 1);
+        }
+
+        /**
+         * 已经成功返回的分类的数据，按分类的顺序排列
+         */
+        public List<NewsResultEntity> getResults() {
+            List<NewsResultEntity> results = new ArrayList<>();
+            for (List<NewsResultEntity> slot : mSlots) {
+                if (slot != null) {
+                    results.addAll(slot);
+                }
+            }
+            return results;
+        }
+
+        public Map<String, Throwable> getFailures() {
+            return Collections.unmodifiableMap(mFailures);
+        }
+
+        public int getSucceededCount() {
+            return mCompletedCount - mFailures.size();
+        }
+
+        /**
+         * 所有分类都已经返回（成功或失败）
+         */
+        public boolean isComplete() {
+            return mCompletedCount == mCategories.size();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.potato.rxjavasample;
+
+import com.potato.rxjavasample.conditional.ConditionalRequestInterceptor;
+
+import io.reactivex.Observable;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Path;
+
+/**
+ * Created by li.zhirong on 2020/1/20
+ */
+public interface WeatherApi {
+    @GET("adat/sk/{cityId}.html")
+    Observable<WeatherEnity> getWeather(@Path("cityId") long cityID);
+
+    //条件请求，内容没有变化时返回304，交给ChangeDetector解析
+    @Headers(ConditionalRequestInterceptor.ENABLE_HEADER)
+    @GET("adat/sk/{cityId}.html")
+    Observable<Response<ResponseBody>> getWeatherResponse(@Path("cityId") long cityID);
+}
+
@@ -0,0 +1,217 @@
+package com.potato.rxjavasample.conditional;
+
+import com.google.gson.TypeAdapter;
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+import retrofit2.Response;
+
+/**
+ * 根据响应内容决定是否需要解析和通知下游
+ * <p>
+ * 上游是带有ConditionalRequestInterceptor.ENABLE_HEADER的接口返回的 Response&lt;ResponseBody&gt;，
+ * 按请求的url记住上一次响应体的sha256、大小、解析耗时以及解析结果：
+ * 304或者响应体的sha256和上一次相同时直接使用上一次的解析结果，不再解析。
+ * <p>
+ * skipUnchanged：结果和上一次发送给下游的相同时不发送，适合只展示最新结果的界面（轮询、刷新）；
+ * 切换到另一个url时，即使那个url的内容没有变化也会发送它缓存的结果。
+ * reuseUnchanged：每次都发送，内容没有变化时发送的是缓存的同一个对象，适合需要每次都有结果的分页加载。
+ * <p>
+ * ConditionalRequestInterceptor是进程内共享的，它记住的url不一定在这个ChangeDetector中有结果
+ * （新建的界面、结果已经被淘汰）。这时收到的304没有可以使用的结果：让interceptor忘掉这个url，
+ * 然后重新订阅上游一次，发出不带If-None-Match的请求。所以上游应该是一次请求，重新订阅就是重新请求。
+ * 这里淘汰结果时也会让interceptor忘掉对应的url，下次直接发出普通的请求。
+ */
+public class ChangeDetector<T> implements ObservableTransformer<Response<ResponseBody>, T> {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final TypeAdapter<T> mAdapter;
+    private final ConditionalRequestInterceptor mInterceptor;
+    private final boolean mSkipUnchanged;
+    private final Scheduler mClock;
+    private final long mStartMillis;
+    private final Map<String, Entry<T>> mEntries;
+    private ByteString mLastEmitted;
+
+    private long mResponses;
+    private long mNotModified;
+    private long mUnchanged;
+    private long mDecoded;
+    private long mReceivedBytes;
+    private long mSavedBytes;
+    private long mDecodeNanos;
+    private long mSavedDecodeNanos;
+    private long mMissing;
+
+    public static <T> ChangeDetector<T> skipUnchanged(TypeAdapter<T> adapter, ConditionalRequestInterceptor interceptor,
+                                                      int maxEntries, Scheduler clock) {
+        return new ChangeDetector<>(adapter, interceptor, true, maxEntries, clock);
+    }
+
+    public static <T> ChangeDetector<T> reuseUnchanged(TypeAdapter<T> adapter, ConditionalRequestInterceptor interceptor,
+                                                       int maxEntries, Scheduler clock) {
+        return new ChangeDetector<>(adapter, interceptor, false, maxEntries, clock);
+    }
+
+    /**
+     * @param interceptor 上游请求使用的ConditionalRequestInterceptor
+     * @param maxEntries  最多记住多少个url的结果
+     * @param clock       只用来计算统计的时长
+     */
+    private ChangeDetector(TypeAdapter<T> adapter, ConditionalRequestInterceptor interceptor, boolean skipUnchanged,
+                           final int maxEntries, Scheduler clock) {
+        mAdapter = adapter;
+        mInterceptor = interceptor;
+        mSkipUnchanged = skipUnchanged;
+        mClock = clock;
+        mStartMillis = clock.now(TimeUnit.MILLISECONDS);
+        mEntries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                if (size() > maxEntries) {
+                    //结果没有了，304也就没有用了
+                    mInterceptor.forget(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public ObservableSource<T> apply(Observable<Response<ResponseBody>> upstream) {
+        return upstream.concatMap(new Function<Response<ResponseBody>, ObservableSource<T>>() {
+            @Override
+            public ObservableSource<T> apply(Response<ResponseBody> response) throws Exception {
+                T value = onResponse(response);
+                return value != null ? Observable.just(value) : Observable.<T>empty();
+            }
+        }).retry(1, new Predicate<Throwable>() {
+            @Override
+            public boolean test(Throwable throwable) throws Exception {
+                return throwable instanceof MissingEntryException;
+            }
+        });
+    }
+
+    //返回null表示不需要发送给下游
+    private T onResponse(Response<ResponseBody> response) throws Exception {
+        String key = response.raw().request().url().toString();
+        if (response.code() == 304) {
+            synchronized (this) {
+                mResponses++;
+                Entry<T> entry = mEntries.get(key);
+                if (entry == null) {
+                    //interceptor记得这个url，这里却没有结果，忘掉验证信息之后重新请求一次
+                    mMissing++;
+                    mInterceptor.forget(key);
+                    throw new MissingEntryException(key);
+                }
+                mNotModified++;
+                mSavedBytes += entry.length;
+                mSavedDecodeNanos += entry.decodeNanos;
+                return emit(entry);
+            }
+        }
+        if (!response.isSuccessful()) {
+            throw new HttpException(response);
+        }
+        byte[] bytes;
+        ResponseBody body = response.body();
+        try {
+            bytes = body.bytes();
+        } finally {
+            body.close();
+        }
+        ByteString hash = ByteString.of(bytes).sha256();
+        synchronized (this) {
+            mResponses++;
+            mReceivedBytes += bytes.length;
+            Entry<T> entry = mEntries.get(key);
+            if (entry != null && entry.hash.equals(hash)) {
+                mUnchanged++;
+                mSavedDecodeNanos += entry.decodeNanos;
+                return emit(entry);
+            }
+        }
+        long start = System.nanoTime();
+        T value = mAdapter.fromJson(new InputStreamReader(new ByteArrayInputStream(bytes), UTF_8));
+        long decodeNanos = System.nanoTime() - start;
+        if (value == null) {
+            throw new NullPointerException("Response body decoded to null: " + key);
+        }
+        synchronized (this) {
+            mDecoded++;
+            mDecodeNanos += decodeNanos;
+            Entry<T> entry = new Entry<>(hash, bytes.length, decodeNanos, value);
+            mEntries.put(key, entry);
+            return emit(entry);
+        }
+    }
+
+    //在锁内调用
+    private T emit(Entry<T> entry) {
+        if (mSkipUnchanged && entry.hash.equals(mLastEmitted)) {
+            return null;
+        }
+        mLastEmitted = entry.hash;
+        return entry.value;
+    }
+
+    public synchronized ChangeStats getStats() {
+        return new ChangeStats(mResponses, mNotModified, mUnchanged, mDecoded, mReceivedBytes, mSavedBytes,
+                mDecodeNanos, mSavedDecodeNanos, mClock.now(TimeUnit.MILLISECONDS) - mStartMillis);
+    }
+
+    /**
+     * 收到304但没有对应结果、需要重新请求的次数
+     */
+    public synchronized long getMissingCount() {
+        return mMissing;
+    }
+
+    @Override
+    public String toString() {
+        return getStats() + ", missing=" + getMissingCount();
+    }
+
+    /**
+     * 304但是没有可以使用的结果，重新订阅上游
+     */
+    private static final class MissingEntryException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        MissingEntryException(String url) {
+            super("304 without a cached result: " + url);
+        }
+    }
+
+    private static class Entry<T> {
+        final ByteString hash;
+        final long length;
+        final long decodeNanos;
+        final T value;
+
+        Entry(ByteString hash, long length, long decodeNanos, T value) {
+            this.hash = hash;
+            this.length = length;
+            this.decodeNanos = decodeNanos;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.potato.rxjavasample.conditional;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChangeDetector的统计快照，节省的字节数和解析时间可以按每小时换算
+ */
+public class ChangeStats {
+    private final long mResponses;
+    private final long mNotModified;
+    private final long mUnchanged;
+    private final long mDecoded;
+    private final long mReceivedBytes;
+    private final long mSavedBytes;
+    private final long mDecodeNanos;
+    private final long mSavedDecodeNanos;
+    private final long mElapsedMillis;
+
+    ChangeStats(long responses, long notModified, long unchanged, long decoded, long receivedBytes, long savedBytes,
+                long decodeNanos, long savedDecodeNanos, long elapsedMillis) {
+        mResponses = responses;
+        mNotModified = notModified;
+        mUnchanged = unchanged;
+        mDecoded = decoded;
+        mReceivedBytes = receivedBytes;
+        mSavedBytes = savedBytes;
+        mDecodeNanos = decodeNanos;
+        mSavedDecodeNanos = savedDecodeNanos;
+        mElapsedMillis = elapsedMillis;
+    }
+
+    public long getResponses() {
+        return mResponses;
+    }
+
+    /**
+     * 304的次数
+     */
+    public long getNotModified() {
+        return mNotModified;
+    }
+
+    /**
+     * 返回了响应体，但是和上一次的内容相同的次数
+     */
+    public long getUnchanged() {
+        return mUnchanged;
+    }
+
+    public long getDecoded() {
+        return mDecoded;
+    }
+
+    public long getReceivedBytes() {
+        return mReceivedBytes;
+    }
+
+    /**
+     * 304时按上一次响应体的大小计算
+     */
+    public long getSavedBytes() {
+        return mSavedBytes;
+    }
+
+    public long getDecodeNanos() {
+        return mDecodeNanos;
+    }
+
+    /**
+     * 没有解析的响应，按上一次解析同一个url的耗时计算
+     */
+    public long getSavedDecodeNanos() {
+        return mSavedDecodeNanos;
+    }
+
+    public long getElapsedMillis() {
+        return mElapsedMillis;
+    }
+
+    public long getSavedBytesPerHour() {
+        return perHour(mSavedBytes);
+    }
+
+    public long getSavedDecodeMillisPerHour() {
+        return perHour(TimeUnit.NANOSECONDS.toMillis(mSavedDecodeNanos));
+    }
+
+    private long perHour(long value) {
+        if (mElapsedMillis <= 0) {
+            return value;
+        }
+        return (long) (value * (double) TimeUnit.HOURS.toMillis(1) / mElapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeStats{responses=" + mResponses + ", notModified=" + mNotModified + ", unchanged=" + mUnchanged
+                + ", decoded=" + mDecoded + ", received=" + mReceivedBytes + "B, saved=" + mSavedBytes + "B"
+                + ", savedDecode=" + TimeUnit.NANOSECONDS.toMillis(mSavedDecodeNanos) + "ms"
+                + ", perHour: saved=" + getSavedBytesPerHour() + "B, savedDecode=" + getSavedDecodeMillisPerHour() + "ms}";
+    }
+}
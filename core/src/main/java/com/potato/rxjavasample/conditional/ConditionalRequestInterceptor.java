@@ -0,0 +1,120 @@
+package com.potato.rxjavasample.conditional;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 条件请求：记住每个url上一次200响应的ETag和Last-Modified，下次请求同一个url时带上If-None-Match和If-Modified-Since，
+ * 服务端的内容没有变化时只返回一个没有响应体的304。
+ * <p>
+ * 只处理带有ENABLE_HEADER的GET请求（接口方法上加 @Headers(ENABLE_HEADER)），这个头不会发送给服务端。
+ * 304在Retrofit中不算成功的响应，所以只能用在返回 Response&lt;ResponseBody&gt; 并交给ChangeDetector处理的接口上，
+ * 直接返回实体的接口收到304会以HttpException结束。
+ * <p>
+ * 记住的url是所有请求共享的，ChangeDetector没有某个url的结果时会调用forget，之后这个url重新发出普通的请求。
+ */
+public class ConditionalRequestInterceptor implements Interceptor {
+    public static final String HEADER_NAME = "X-Conditional-Request";
+    public static final String ENABLE_HEADER = HEADER_NAME + ": true";
+
+    private final Map<String, Validators> mValidators;
+    private final AtomicLong mConditionalCount = new AtomicLong();
+    private final AtomicLong mNotModifiedCount = new AtomicLong();
+
+    /**
+     * @param maxEntries 最多记住多少个url，超过时淘汰最久未使用的
+     */
+    public ConditionalRequestInterceptor(final int maxEntries) {
+        mValidators = new LinkedHashMap<String, Validators>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Validators> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.header(HEADER_NAME) == null) {
+            return chain.proceed(request);
+        }
+        Request.Builder builder = request.newBuilder().removeHeader(HEADER_NAME);
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(builder.build());
+        }
+        String key = request.url().toString();
+        Validators validators = get(key);
+        if (validators != null) {
+            if (validators.etag != null) {
+                builder.header("If-None-Match", validators.etag);
+            }
+            if (validators.lastModified != null) {
+                builder.header("If-Modified-Since", validators.lastModified);
+            }
+            mConditionalCount.incrementAndGet();
+        }
+        Response response = chain.proceed(builder.build());
+        if (response.code() == 304) {
+            mNotModifiedCount.incrementAndGet();
+        } else if (response.isSuccessful()) {
+            put(key, response.header("ETag"), response.header("Last-Modified"));
+        }
+        return response;
+    }
+
+    /**
+     * 带上了验证信息的请求数
+     */
+    public long getConditionalCount() {
+        return mConditionalCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    /**
+     * 不再为url发送条件请求，ChangeDetector中没有url对应的结果时调用
+     */
+    public synchronized void forget(String url) {
+        mValidators.remove(url);
+    }
+
+    public synchronized void clear() {
+        mValidators.clear();
+    }
+
+    private synchronized Validators get(String key) {
+        return mValidators.get(key);
+    }
+
+    private synchronized void put(String key, String etag, String lastModified) {
+        if (etag == null && lastModified == null) {
+            mValidators.remove(key);
+        } else {
+            mValidators.put(key, new Validators(etag, lastModified));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConditionalRequestInterceptor{conditional=" + mConditionalCount + ", notModified=" + mNotModifiedCount + "}";
+    }
+
+    private static class Validators {
+        final String etag;
+        final String lastModified;
+
+        Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+}
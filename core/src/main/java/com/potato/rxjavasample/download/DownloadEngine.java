@@ -0,0 +1,326 @@
+package com.potato.rxjavasample.download;
+
+import com.potato.rxjavasample.schedulers.SchedulerProvider;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Cancellable;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 支持断点续传的下载
+ * <p>
+ * 响应体边读边通过FileChannel写入 target + ".part"，读写使用池化复用的ByteBuffer，不会把整个文件读到内存中；
+ * 下载完成后再重命名为target。取消订阅会取消请求，已经写入的部分保留在.part文件中，
+ * 下次下载同一个target时用Range请求从.part的长度继续下载，并通过If-Range带上第一次响应的ETag（或Last-Modified），
+ * 服务端的文件已经变化时会返回完整的200响应，这时从头开始写。
+ * <p>
+ * 进度按progressInterval采样：开始时、每隔progressInterval、完成时各发送一次，和读取的次数无关。
+ * 下载在io线程上进行，取消订阅之后io线程关闭.part文件时才调用onStopped。
+ */
+public class DownloadEngine implements Downloader {
+    private static final String PART_SUFFIX = ".part";
+    //保存ETag或Last-Modified，续传时用来确认服务端的文件没有变化
+    private static final String VALIDATOR_SUFFIX = ".validator";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+    //一次下载的状态：还没有在io线程上开始、正在运行、已经停止
+    private static final int NOT_STARTED = 0;
+    private static final int RUNNING = 1;
+    private static final int STOPPED = 2;
+    private static final Action NO_ACTION = new Action() {
+        @Override
+        public void run() throws Exception {
+        }
+    };
+
+    private final OkHttpClient mClient;
+    private final SchedulerProvider mSchedulers;
+    private final long mProgressIntervalMillis;
+    private final int mBufferSize;
+    private final ArrayDeque<ByteBuffer> mBufferPool = new ArrayDeque<>();
+
+    public DownloadEngine(OkHttpClient client, SchedulerProvider schedulers, long progressInterval, TimeUnit unit) {
+        this(client, schedulers, progressInterval, unit, DEFAULT_BUFFER_SIZE);
+    }
+
+    public DownloadEngine(OkHttpClient client, SchedulerProvider schedulers, long progressInterval, TimeUnit unit, int bufferSize) {
+        mClient = client;
+        mSchedulers = schedulers;
+        mProgressIntervalMillis = unit.toMillis(progressInterval);
+        mBufferSize = bufferSize;
+    }
+
+    public Observable<DownloadProgress> download(String url, File target) {
+        return download(url, target, NO_ACTION);
+    }
+
+    @Override
+    public Observable<DownloadProgress> download(final String url, final File target, final Action onStopped) {
+        return Observable.defer(new Callable<ObservableSource<DownloadProgress>>() {
+            @Override
+            public ObservableSource<DownloadProgress> call() throws Exception {
+                final AtomicInteger state = new AtomicInteger(NOT_STARTED);
+                return Observable.create(new ObservableOnSubscribe<DownloadProgress>() {
+                    @Override
+                    public void subscribe(ObservableEmitter<DownloadProgress> emitter) throws Exception {
+                        if (!state.compareAndSet(NOT_STARTED, RUNNING)) {
+                            return;
+                        }
+                        try {
+                            run(url, target, emitter);
+                        } catch (IOException e) {
+                            //取消请求时读写会抛出IOException，这时下游已经不需要结果了
+                            if (!emitter.isDisposed()) {
+                                emitter.onError(e);
+                            }
+                        } finally {
+                            //.part文件已经关闭
+                            state.set(STOPPED);
+                            onStopped.run();
+                        }
+                    }
+                }).subscribeOn(mSchedulers.io()).doOnDispose(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        //还没有在io线程上开始就被取消，之后也不会再开始
+                        if (state.compareAndSet(NOT_STARTED, STOPPED)) {
+                            onStopped.run();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    public static File getPartFile(File target) {
+        return new File(target.getPath() + PART_SUFFIX);
+    }
+
+    private void run(String url, File target, ObservableEmitter<DownloadProgress> emitter) throws IOException {
+        File part = getPartFile(target);
+        File validatorFile = new File(target.getPath() + VALIDATOR_SUFFIX);
+        long offset = part.exists() ? part.length() : 0;
+        String validator = offset > 0 ? readValidator(validatorFile) : null;
+        //416时从头再请求一次
+        for (int attempt = 0; attempt < 2 && !emitter.isDisposed(); attempt++) {
+            Request.Builder builder = new Request.Builder().url(url);
+            if (offset > 0) {
+                builder.header("Range", "bytes=" + offset + "-");
+                if (validator != null) {
+                    builder.header("If-Range", validator);
+                }
+            }
+            final Call call = mClient.newCall(builder.build());
+            emitter.setCancellable(new Cancellable() {
+                @Override
+                public void cancel() throws Exception {
+                    call.cancel();
+                }
+            });
+            Response response = call.execute();
+            try {
+                int code = response.code();
+                if (code == 416) {
+                    //Range超出了文件长度：本地已经是完整的文件，或者服务端的文件变短了
+                    long total = parseContentRangeTotal(response.header("Content-Range"));
+                    if (total == offset) {
+                        finish(part, validatorFile, target);
+                        emitter.onNext(new DownloadProgress(offset, total, offset, true));
+                        emitter.onComplete();
+                        return;
+                    }
+                    offset = 0;
+                    validator = null;
+                    continue;
+                }
+                if (!response.isSuccessful()) {
+                    throw new IOException("HTTP " + code + " " + response.message());
+                }
+                long start = 0;
+                long total = response.body().contentLength();
+                if (code == 206) {
+                    start = parseContentRangeStart(response.header("Content-Range"));
+                    total = parseContentRangeTotal(response.header("Content-Range"));
+                    if (start != offset) {
+                        throw new IOException("Unexpected Content-Range " + response.header("Content-Range") + " for offset " + offset);
+                    }
+                } else {
+                    //服务端不支持Range或者文件已经变化，返回了完整的文件
+                    writeValidator(validatorFile, response.header("ETag") != null ? response.header("ETag") : response.header("Last-Modified"));
+                }
+                write(response.body(), part, start, total, emitter);
+                if (emitter.isDisposed()) {
+                    return;
+                }
+                finish(part, validatorFile, target);
+                emitter.onNext(new DownloadProgress(total >= 0 ? total : part.length(), total, start, true));
+                emitter.onComplete();
+                return;
+            } finally {
+                response.body().close();
+            }
+        }
+    }
+
+    private void write(ResponseBody body, File part, long start, long total, ObservableEmitter<DownloadProgress> emitter) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        RandomAccessFile file = new RandomAccessFile(part, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            //从头下载时丢弃之前的内容
+            channel.truncate(start);
+            channel.position(start);
+            InputStream input = body.byteStream();
+            long downloaded = start;
+            long lastProgress = now();
+            emitter.onNext(new DownloadProgress(downloaded, total, start, false));
+            int read;
+            //直接读到ByteBuffer的数组中，再整块写入FileChannel
+            while ((read = input.read(buffer.array(), 0, buffer.capacity())) != -1) {
+                buffer.clear();
+                buffer.limit(read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                downloaded += read;
+                long now = now();
+                if (now - lastProgress >= mProgressIntervalMillis) {
+                    lastProgress = now;
+                    emitter.onNext(new DownloadProgress(downloaded, total, start, false));
+                }
+                if (emitter.isDisposed()) {
+                    return;
+                }
+            }
+            if (total >= 0 && downloaded != total) {
+                throw new IOException("Unexpected end of body: " + downloaded + "/" + total);
+            }
+        } finally {
+            file.close();
+            releaseBuffer(buffer);
+        }
+    }
+
+    private long now() {
+        return mSchedulers.computation().now(TimeUnit.MILLISECONDS);
+    }
+
+    private static void finish(File part, File validatorFile, File target) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot delete " + target);
+        }
+        if (!part.renameTo(target)) {
+            throw new IOException("Cannot rename " + part + " to " + target);
+        }
+        validatorFile.delete();
+    }
+
+    private ByteBuffer acquireBuffer() {
+        synchronized (mBufferPool) {
+            ByteBuffer buffer = mBufferPool.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocate(mBufferSize);
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        synchronized (mBufferPool) {
+            if (mBufferPool.size() < MAX_POOLED_BUFFERS) {
+                mBufferPool.push(buffer);
+            }
+        }
+    }
+
+    //Content-Range: bytes 100-199/200
+    private static long parseContentRangeStart(String contentRange) throws IOException {
+        try {
+            int space = contentRange.indexOf(' ');
+            int dash = contentRange.indexOf('-', space);
+            return Long.parseLong(contentRange.substring(space + 1, dash).trim());
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid Content-Range " + contentRange);
+        }
+    }
+
+    //Content-Range: bytes 100-199/200 或 bytes */200，长度未知（*）时返回-1
+    private static long parseContentRangeTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        try {
+            return slash >= 0 ? Long.parseLong(contentRange.substring(slash + 1).trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readValidator(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = input.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+            return offset > 0 ? new String(bytes, 0, offset, UTF_8) : null;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    private static void writeValidator(File file, String validator) throws IOException {
+        if (validator == null) {
+            file.delete();
+            return;
+        }
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(validator.getBytes(UTF_8));
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void closeQuietly(InputStream input) {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
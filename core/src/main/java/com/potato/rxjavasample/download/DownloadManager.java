@@ -0,0 +1,268 @@
+package com.potato.rxjavasample.download;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Action;
+import io.reactivex.observers.DisposableObserver;
+import io.reactivex.subjects.BehaviorSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * 下载队列
+ * <p>
+ * 同一时间最多有maxConcurrent个下载在进行，其余的按优先级排队（优先级高的先开始，相同优先级先来先开始），
+ * 这样不管提交了多少下载，占用的io线程和带宽都是有上限的。
+ * 同一个target同时只有一个下载任务：重复提交时返回已有任务的状态，如果新的优先级更高，排队中的任务会提前。
+ * <p>
+ * 每个任务的状态通过BehaviorSubject发送，后订阅的也能马上收到当前状态，任务结束（完成、失败、取消）后onComplete。
+ * 下载由DownloadManager持有，取消订阅状态不会停止下载，需要调用cancel或cancelAll。
+ * <p>
+ * 取消后下载线程可能还在写.part文件，直到Downloader调用onStopped之前，这个下载仍然占用名额，
+ * 同一个target新提交的下载会排队等它停下来，不会有两个线程同时写同一个文件。
+ */
+public class DownloadManager {
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    private final Downloader mDownloader;
+    private final int mMaxConcurrent;
+    private final PriorityQueue<Task> mPending = new PriorityQueue<>();
+    //target路径 -> 排队中或者正在下载的任务
+    private final Map<String, Task> mTasks = new HashMap<>();
+    //target路径 -> 下载线程还没有停止的任务，包括已经取消的
+    private final Map<String, Task> mActive = new HashMap<>();
+    private int mRunning;
+    private long mSequence;
+
+    public DownloadManager(Downloader downloader, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent > 0 required but it was " + maxConcurrent);
+        }
+        mDownloader = downloader;
+        mMaxConcurrent = maxConcurrent;
+    }
+
+    public Observable<DownloadState> enqueue(String url, File target) {
+        return enqueue(url, target, PRIORITY_NORMAL);
+    }
+
+    /**
+     * 提交下载，返回这个任务的状态
+     */
+    public Observable<DownloadState> enqueue(String url, File target, int priority) {
+        Task task;
+        synchronized (this) {
+            String key = target.getAbsolutePath();
+            task = mTasks.get(key);
+            if (task == null) {
+                task = new Task(url, target, priority, mSequence++);
+                mTasks.put(key, task);
+                mPending.add(task);
+            } else if (priority > task.mPriority && mPending.remove(task)) {
+                task.mPriority = priority;
+                mPending.add(task);
+            }
+        }
+        drain();
+        return task.mState.hide();
+    }
+
+    /**
+     * 取消排队中或者正在进行的下载，已经下载的部分保留，下次可以续传
+     */
+    public void cancel(File target) {
+        Task task;
+        synchronized (this) {
+            task = mTasks.remove(target.getAbsolutePath());
+            if (task == null) {
+                return;
+            }
+            mPending.remove(task);
+        }
+        //正在下载的任务在onStopped之后才释放名额
+        task.cancel();
+    }
+
+    public void cancelAll() {
+        List<Task> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(mTasks.values());
+            mTasks.clear();
+            mPending.clear();
+        }
+        for (Task task : tasks) {
+            task.cancel();
+        }
+    }
+
+    public synchronized int getRunningCount() {
+        return mRunning;
+    }
+
+    public synchronized int getQueuedCount() {
+        return mPending.size();
+    }
+
+    //有空闲名额时开始排在最前面的任务，在锁外面订阅，避免同步发送的状态回调到这里时持有锁
+    private void drain() {
+        while (true) {
+            Task next;
+            synchronized (this) {
+                if (mRunning >= mMaxConcurrent) {
+                    return;
+                }
+                next = pollStartable();
+                if (next == null) {
+                    return;
+                }
+                mRunning++;
+                mActive.put(next.mKey, next);
+            }
+            next.start();
+        }
+    }
+
+    //排在最前面、并且同一个target上一次的下载已经停止的任务，在锁内调用
+    private Task pollStartable() {
+        List<Task> blocked = null;
+        Task next;
+        while ((next = mPending.poll()) != null && mActive.containsKey(next.mKey)) {
+            if (blocked == null) {
+                blocked = new ArrayList<>();
+            }
+            blocked.add(next);
+        }
+        if (blocked != null) {
+            mPending.addAll(blocked);
+        }
+        return next;
+    }
+
+    //下载线程已经停止，释放名额
+    private void onTaskStopped(Task task) {
+        synchronized (this) {
+            mRunning--;
+            if (mActive.get(task.mKey) == task) {
+                mActive.remove(task.mKey);
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DownloadManager{running=" + mRunning + "/" + mMaxConcurrent + ", queued=" + mPending.size() + "}";
+    }
+
+    private class Task implements Comparable<Task> {
+        private final String mUrl;
+        private final File mTarget;
+        private final String mKey;
+        private final long mSequence;
+        //下载线程和调用cancel的线程都会发送状态
+        private final Subject<DownloadState> mState;
+        private int mPriority;
+        private volatile DownloadProgress mLastProgress;
+        //只在锁内读写
+        private DisposableObserver<DownloadProgress> mObserver;
+        private boolean mFinished;
+
+        Task(String url, File target, int priority, long sequence) {
+            mUrl = url;
+            mTarget = target;
+            mKey = target.getAbsolutePath();
+            mPriority = priority;
+            mSequence = sequence;
+            mState = BehaviorSubject.createDefault(new DownloadState(target, DownloadState.Status.QUEUED, null, null)).toSerialized();
+        }
+
+        void start() {
+            DisposableObserver<DownloadProgress> observer = new DisposableObserver<DownloadProgress>() {
+                @Override
+                protected void onStart() {
+                    mState.onNext(new DownloadState(mTarget, DownloadState.Status.RUNNING, null, null));
+                }
+
+                @Override
+                public void onNext(DownloadProgress progress) {
+                    mLastProgress = progress;
+                    mState.onNext(new DownloadState(mTarget, DownloadState.Status.RUNNING, progress, null));
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    finish(new DownloadState(mTarget, DownloadState.Status.FAILED, mLastProgress, e));
+                }
+
+                @Override
+                public void onComplete() {
+                    finish(new DownloadState(mTarget, DownloadState.Status.COMPLETED, mLastProgress, null));
+                }
+            };
+            boolean cancelled;
+            synchronized (DownloadManager.this) {
+                cancelled = mFinished;
+                if (!cancelled) {
+                    mObserver = observer;
+                }
+            }
+            if (cancelled) {
+                //开始之前已经被取消，下载线程没有开始过
+                onTaskStopped(this);
+                return;
+            }
+            mDownloader.download(mUrl, mTarget, new Action() {
+                @Override
+                public void run() throws Exception {
+                    onTaskStopped(Task.this);
+                }
+            }).subscribe(observer);
+        }
+
+        void cancel() {
+            DisposableObserver<DownloadProgress> observer;
+            synchronized (DownloadManager.this) {
+                if (mFinished) {
+                    return;
+                }
+                mFinished = true;
+                observer = mObserver;
+            }
+            if (observer != null) {
+                observer.dispose();
+            }
+            mState.onNext(new DownloadState(mTarget, DownloadState.Status.CANCELLED, mLastProgress, null));
+            mState.onComplete();
+        }
+
+        private void finish(DownloadState state) {
+            synchronized (DownloadManager.this) {
+                if (mFinished) {
+                    return;
+                }
+                mFinished = true;
+                //已经结束的任务不再合并重复的提交，名额在onStopped之后才释放
+                if (mTasks.get(mKey) == this) {
+                    mTasks.remove(mKey);
+                }
+            }
+            mState.onNext(state);
+            mState.onComplete();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (mPriority != other.mPriority) {
+                return mPriority > other.mPriority ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.potato.rxjavasample.download;
+
+/**
+ * 下载进度，字节数包括之前已经下载、这次续传跳过的部分
+ */
+public class DownloadProgress {
+    private final long mDownloadedBytes;
+    private final long mTotalBytes;
+    private final long mResumedFrom;
+    private final boolean mDone;
+
+    /**
+     * @param totalBytes  文件总大小，服务端没有返回长度时为-1
+     * @param resumedFrom 这次从哪个位置开始续传，从头下载时为0
+     */
+    public DownloadProgress(long downloadedBytes, long totalBytes, long resumedFrom, boolean done) {
+        mDownloadedBytes = downloadedBytes;
+        mTotalBytes = totalBytes;
+        mResumedFrom = resumedFrom;
+        mDone = done;
+    }
+
+    public long getDownloadedBytes() {
+        return mDownloadedBytes;
+    }
+
+    public long getTotalBytes() {
+        return mTotalBytes;
+    }
+
+    public long getResumedFrom() {
+        return mResumedFrom;
+    }
+
+    public boolean isDone() {
+        return mDone;
+    }
+
+    /**
+     * 0 ~ 100，总大小未知时为-1
+     */
+    public int getPercent() {
+        if (mDone) {
+            return 100;
+        }
+        return mTotalBytes > 0 ? (int) (mDownloadedBytes * 100 / mTotalBytes) : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadProgress{downloaded=" + mDownloadedBytes + ", total=" + mTotalBytes
+                + ", resumedFrom=" + mResumedFrom + ", done=" + mDone + "}";
+    }
+}
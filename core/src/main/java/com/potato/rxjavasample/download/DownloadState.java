@@ -0,0 +1,61 @@
+package com.potato.rxjavasample.download;
+
+import java.io.File;
+
+/**
+ * DownloadManager中一个下载任务的状态
+ */
+public class DownloadState {
+
+    public enum Status {
+        //等待空闲的下载名额
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    private final File mTarget;
+    private final Status mStatus;
+    private final DownloadProgress mProgress;
+    private final Throwable mError;
+
+    /**
+     * @param progress 还没有开始下载时为null
+     * @param error    只有FAILED时不为null
+     */
+    public DownloadState(File target, Status status, DownloadProgress progress, Throwable error) {
+        mTarget = target;
+        mStatus = status;
+        mProgress = progress;
+        mError = error;
+    }
+
+    public File getTarget() {
+        return mTarget;
+    }
+
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    public DownloadProgress getProgress() {
+        return mProgress;
+    }
+
+    public Throwable getError() {
+        return mError;
+    }
+
+    public boolean isTerminal() {
+        return mStatus == Status.COMPLETED || mStatus == Status.FAILED || mStatus == Status.CANCELLED;
+    }
+
+    @Override
+    public String toString() {
+        return "DownloadState{" + mTarget.getName() + ", " + mStatus
+                + (mProgress != null ? ", " + mProgress : "")
+                + (mError != null ? ", error=" + mError : "") + "}";
+    }
+}
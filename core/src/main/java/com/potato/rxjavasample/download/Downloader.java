@@ -0,0 +1,19 @@
+package com.potato.rxjavasample.download;
+
+import java.io.File;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Action;
+
+/**
+ * 把url下载到target，发送下载进度
+ */
+public interface Downloader {
+
+    /**
+     * 取消订阅之后，下载线程可能还在读写target的文件，直到它真正停下来之前不能开始同一个target的下一次下载
+     *
+     * @param onStopped 下载线程不再访问文件之后调用，完成、失败、取消（包括还没有开始就被取消）都会调用，并且只调用一次
+     */
+    Observable<DownloadProgress> download(String url, File target, Action onStopped);
+}
@@ -0,0 +1,126 @@
+package com.potato.rxjavasample.flow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.BackpressureOverflowStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+/**
+ * 支持背压的输入流，用来代替PublishSubject
+ * <p>
+ * PublishSubject没有背压，生产者比消费者快时，数据会在observeOn等操作符的队列中无限堆积。
+ * 这里用PublishProcessor接收数据，再按照指定的策略处理下游来不及消费的数据：
+ * <ul>
+ * <li>{@link #latest()}：只保留最新的一个，适合输入框内容、定位结果、网络状态这类只关心最新值的数据；</li>
+ * <li>{@link #drop()}：下游没有请求时直接丢弃新数据；</li>
+ * <li>{@link #buffer(int)}：最多缓存capacity个，满了之后丢弃最旧的。</li>
+ * </ul>
+ * 同时统计收到、丢弃、已发送和当前排队中的数据个数。onNext可以在任意线程调用。
+ * <p>
+ * 这些策略只有在下游每次只请求少量数据时才会起作用：merge、combineLatest、observeOn默认会预取128个，
+ * 数据都排在它们的队列里，这里永远不会丢弃；debounce请求的是无限多个，被覆盖的数据由debounce自己丢弃，这里的统计也不会变化。
+ * 所以要把来不及处理的地方的请求数降下来，例如 flatMap(mapper, 1) 直接接在flowable()后面，
+ * 或者合并多个输入时使用 Flowable.merge(sources, maxConcurrency, 1)，每个输入在merge中最多排队一个。
+ */
+public class FlowableInput<T> {
+    public enum Strategy {
+        LATEST, DROP, BUFFER
+    }
+
+    private final FlowableProcessor<T> mProcessor = PublishProcessor.<T>create().toSerialized();
+    private final Strategy mStrategy;
+    private final int mCapacity;
+    private final AtomicLong mReceivedCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+
+    public static <T> FlowableInput<T> latest() {
+        return new FlowableInput<>(Strategy.LATEST, 1);
+    }
+
+    public static <T> FlowableInput<T> drop() {
+        return new FlowableInput<>(Strategy.DROP, 0);
+    }
+
+    public static <T> FlowableInput<T> buffer(int capacity) {
+        return new FlowableInput<>(Strategy.BUFFER, capacity);
+    }
+
+    private FlowableInput(Strategy strategy, int capacity) {
+        mStrategy = strategy;
+        mCapacity = capacity;
+    }
+
+    public void onNext(T value) {
+        mReceivedCount.incrementAndGet();
+        if (!mProcessor.hasSubscribers()) {
+            //和PublishSubject一样，没有订阅者时数据直接丢弃
+            mDroppedCount.incrementAndGet();
+            return;
+        }
+        mProcessor.onNext(value);
+    }
+
+    public Flowable<T> flowable() {
+        Flowable<T> flowable;
+        if (mStrategy == Strategy.DROP) {
+            flowable = mProcessor.onBackpressureDrop(new Consumer<T>() {
+                @Override
+                public void accept(T t) throws Exception {
+                    mDroppedCount.incrementAndGet();
+                }
+            });
+        } else {
+            //LATEST相当于容量为1、满了丢弃最旧数据的缓冲区，这样也能统计到被覆盖的数据
+            flowable = mProcessor.onBackpressureBuffer(mCapacity, new Action() {
+                @Override
+                public void run() throws Exception {
+                    mDroppedCount.incrementAndGet();
+                }
+            }, BackpressureOverflowStrategy.DROP_OLDEST);
+        }
+        return flowable.doOnNext(new Consumer<T>() {
+            @Override
+            public void accept(T t) throws Exception {
+                mDeliveredCount.incrementAndGet();
+            }
+        });
+    }
+
+    public Strategy getStrategy() {
+        return mStrategy;
+    }
+
+    public long getReceivedCount() {
+        return mReceivedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    /**
+     * 已经收到但还没有发送给下游的数据个数
+     */
+    public long getQueuedCount() {
+        return Math.max(0, mReceivedCount.get() - mDroppedCount.get() - mDeliveredCount.get());
+    }
+
+    @Override
+    public String toString() {
+        return "FlowableInput{strategy=" + mStrategy
+                + (mStrategy == Strategy.BUFFER ? ", capacity=" + mCapacity : "")
+                + ", received=" + mReceivedCount.get()
+                + ", dropped=" + mDroppedCount.get()
+                + ", delivered=" + mDeliveredCount.get()
+                + ", queued=" + getQueuedCount() + "}";
+    }
+}
@@ -0,0 +1,11 @@
+package com.potato.rxjavasample.flow;
+
+/**
+ * 显示帧的时钟，App中由Choreographer（API 16以下用Handler）实现，测试中可以手动触发
+ */
+public interface FrameClock {
+    /**
+     * 在下一帧开始时执行一次action，可以在任意线程调用，action在帧所在的线程（主线程）上执行
+     */
+    void postFrameCallback(Runnable action);
+}
@@ -0,0 +1,154 @@
+package com.potato.rxjavasample.flow;
+
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.functions.Consumer;
+import io.reactivex.observers.DisposableObserver;
+import io.reactivex.subscribers.DisposableSubscriber;
+
+/**
+ * 按帧合并的observeOn：只保留最新的值，每一帧最多在主线程上发送一次
+ * <p>
+ * 用来代替进度这类高频更新的observeOn(AndroidSchedulers.mainThread())，
+ * 主线程上的工作量从每个事件一次变成每一帧一次。
+ * onComplete和onError也在帧上发送，发送之前先把还没有发送的最新值发出去，最终的状态不会丢失。
+ * 同一个实例可以被多次订阅，received和delivered是所有订阅的总和。
+ */
+public class FrameConflate<T> implements ObservableTransformer<T, T>, FlowableTransformer<T, T> {
+    private final FrameClock mClock;
+    private final AtomicLong mReceivedCount = new AtomicLong();
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+
+    public FrameConflate(FrameClock clock) {
+        mClock = clock;
+    }
+
+    @Override
+    public ObservableSource<T> apply(final Observable<T> upstream) {
+        return Observable.create(new ObservableOnSubscribe<T>() {
+            @Override
+            public void subscribe(final ObservableEmitter<T> emitter) throws Exception {
+                final FrameConflater<T> conflater = new FrameConflater<>(mClock, new Consumer<T>() {
+                    @Override
+                    public void accept(T t) throws Exception {
+                        if (!emitter.isDisposed()) {
+                            mDeliveredCount.incrementAndGet();
+                            emitter.onNext(t);
+                        }
+                    }
+                });
+                DisposableObserver<T> observer = new DisposableObserver<T>() {
+                    @Override
+                    public void onNext(T t) {
+                        mReceivedCount.incrementAndGet();
+                        conflater.submit(t);
+                    }
+
+                    @Override
+                    public void onError(final Throwable e) {
+                        mClock.postFrameCallback(new Runnable() {
+                            @Override
+                            public void run() {
+                                conflater.flush();
+                                if (!emitter.isDisposed()) {
+                                    emitter.onError(e);
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        mClock.postFrameCallback(new Runnable() {
+                            @Override
+                            public void run() {
+                                conflater.flush();
+                                emitter.onComplete();
+                            }
+                        });
+                    }
+                };
+                //下游取消订阅时同时取消对上游的订阅
+                emitter.setDisposable(observer);
+                upstream.subscribe(observer);
+            }
+        });
+    }
+
+    @Override
+    public Publisher<T> apply(final Flowable<T> upstream) {
+        //下游处理不过来时同样只保留最新的一个
+        return Flowable.create(new FlowableOnSubscribe<T>() {
+            @Override
+            public void subscribe(final FlowableEmitter<T> emitter) throws Exception {
+                final FrameConflater<T> conflater = new FrameConflater<>(mClock, new Consumer<T>() {
+                    @Override
+                    public void accept(T t) throws Exception {
+                        if (!emitter.isCancelled()) {
+                            mDeliveredCount.incrementAndGet();
+                            emitter.onNext(t);
+                        }
+                    }
+                });
+                DisposableSubscriber<T> subscriber = new DisposableSubscriber<T>() {
+                    @Override
+                    public void onNext(T t) {
+                        mReceivedCount.incrementAndGet();
+                        conflater.submit(t);
+                    }
+
+                    @Override
+                    public void onError(final Throwable e) {
+                        mClock.postFrameCallback(new Runnable() {
+                            @Override
+                            public void run() {
+                                conflater.flush();
+                                if (!emitter.isCancelled()) {
+                                    emitter.onError(e);
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        mClock.postFrameCallback(new Runnable() {
+                            @Override
+                            public void run() {
+                                conflater.flush();
+                                emitter.onComplete();
+                            }
+                        });
+                    }
+                };
+                emitter.setDisposable(subscriber);
+                upstream.subscribe(subscriber);
+            }
+        }, BackpressureStrategy.LATEST);
+    }
+
+    public long getReceivedCount() {
+        return mReceivedCount.get();
+    }
+
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FrameConflate{received=" + mReceivedCount.get() + ", delivered=" + mDeliveredCount.get() + "}";
+    }
+}
@@ -0,0 +1,82 @@
+package com.potato.rxjavasample.flow;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.functions.Consumer;
+
+/**
+ * 合并高频的更新，每一帧最多交付一次最新的值
+ * <p>
+ * submit可以在任意线程上调用，只保存最新的值；只有第一次submit时才向FrameClock请求一帧，
+ * 这一帧到来之前的其他submit只覆盖保存的值。帧到来时把最新的值交给consumer，
+ * 之后如果没有新的值就不再请求帧，空闲时没有任何开销。
+ * 值不能为null。
+ */
+public class FrameConflater<T> {
+    private final FrameClock mClock;
+    private final Consumer<? super T> mConsumer;
+    private final AtomicReference<T> mLatest = new AtomicReference<>();
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    private final AtomicLong mReceivedCount = new AtomicLong();
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+    private final Runnable mFrame = new Runnable() {
+        @Override
+        public void run() {
+            //先清除标记再取值，取值之后submit的值会请求下一帧
+            mScheduled.set(false);
+            flush();
+        }
+    };
+
+    public FrameConflater(FrameClock clock, Consumer<? super T> consumer) {
+        mClock = clock;
+        mConsumer = consumer;
+    }
+
+    public void submit(T value) {
+        mReceivedCount.incrementAndGet();
+        mLatest.set(value);
+        if (mScheduled.compareAndSet(false, true)) {
+            mClock.postFrameCallback(mFrame);
+        }
+    }
+
+    /**
+     * 不等下一帧，立即交付还没有交付的值，需要在帧所在的线程上调用，例如任务结束时保证最终的进度被展示
+     */
+    public void flush() {
+        T value = mLatest.getAndSet(null);
+        if (value == null) {
+            return;
+        }
+        mDeliveredCount.incrementAndGet();
+        try {
+            mConsumer.accept(value);
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /**
+     * 丢弃还没有交付的值，已经请求的帧到来时什么都不做
+     */
+    public void clear() {
+        mLatest.set(null);
+    }
+
+    public long getReceivedCount() {
+        return mReceivedCount.get();
+    }
+
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FrameConflater{received=" + mReceivedCount.get() + ", delivered=" + mDeliveredCount.get() + "}";
+    }
+}
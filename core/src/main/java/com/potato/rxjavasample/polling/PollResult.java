@@ -0,0 +1,67 @@
+package com.potato.rxjavasample.polling;
+
+/**
+ * 一次轮询的结果
+ */
+public class PollResult<T> {
+    private final T mValue;
+    private final boolean mChanged;
+    private final long mDurationMillis;
+    private final long mNextPeriodMillis;
+    private final long mSkippedPeriods;
+    private final boolean mOverrun;
+
+    PollResult(T value, boolean changed, long durationMillis, long nextPeriodMillis, long skippedPeriods, boolean overrun) {
+        mValue = value;
+        mChanged = changed;
+        mDurationMillis = durationMillis;
+        mNextPeriodMillis = nextPeriodMillis;
+        mSkippedPeriods = skippedPeriods;
+        mOverrun = overrun;
+    }
+
+    public T getValue() {
+        return mValue;
+    }
+
+    /**
+     * 和上一次的结果不同（equals），第一次总是true
+     */
+    public boolean isChanged() {
+        return mChanged;
+    }
+
+    /**
+     * work的耗时
+     */
+    public long getDurationMillis() {
+        return mDurationMillis;
+    }
+
+    /**
+     * 退避之后的period，不包括抖动
+     */
+    public long getNextPeriodMillis() {
+        return mNextPeriodMillis;
+    }
+
+    /**
+     * FIXED_RATE时因为这次work超时而跳过的周期数
+     */
+    public long getSkippedPeriods() {
+        return mSkippedPeriods;
+    }
+
+    /**
+     * work的耗时超过了period
+     */
+    public boolean isOverrun() {
+        return mOverrun;
+    }
+
+    @Override
+    public String toString() {
+        return "PollResult{value=" + mValue + ", changed=" + mChanged + ", duration=" + mDurationMillis
+                + "ms, nextPeriod=" + mNextPeriodMillis + "ms" + (mOverrun ? ", overrun, skipped=" + mSkippedPeriods : "") + "}";
+    }
+}
@@ -0,0 +1,235 @@
+package com.potato.rxjavasample.polling;
+
+import com.potato.rxjavasample.schedulers.SchedulerProvider;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.SerialDisposable;
+import io.reactivex.exceptions.Exceptions;
+
+/**
+ * 共享计时线程的轮询
+ * <p>
+ * 用interval/timer实现时每个轮询都有自己的计时；这里所有轮询的计时都在同一个Worker上
+ * （computation中的一个Worker固定在一个线程上），到期后work在io线程上执行，执行完再回到计时线程安排下一次。
+ * 时间安排见PollingSchedule：固定频率/固定时延、随机抖动、结果不变时退避。
+ * <p>
+ * pause之后到期的轮询不会执行work，只记下错过了；resume时错过的轮询在 [0, jitter * period] 内随机的时间后各执行一次，
+ * 不会补上暂停期间的所有次数。界面不可见时pause，可见时resume。
+ * <p>
+ * work抛出异常时这个轮询以onError结束，结果在ui线程上发送。
+ */
+public class PollingEngine implements Disposable {
+    private final SchedulerProvider mSchedulers;
+    private final Scheduler.Worker mTimer;
+    private final Random mRandom;
+    private final Set<Poller<?>> mPollers = new CopyOnWriteArraySet<>();
+    private volatile boolean mPaused;
+
+    public PollingEngine(SchedulerProvider schedulers) {
+        this(schedulers, new Random());
+    }
+
+    public PollingEngine(SchedulerProvider schedulers, Random random) {
+        mSchedulers = schedulers;
+        mTimer = schedulers.computation().createWorker();
+        mRandom = random;
+    }
+
+    /**
+     * 订阅后立即执行第一次
+     */
+    public <T> Observable<PollResult<T>> poll(final Callable<T> work, final PollingSchedule schedule) {
+        return Observable.create(new ObservableOnSubscribe<PollResult<T>>() {
+            @Override
+            public void subscribe(ObservableEmitter<PollResult<T>> emitter) throws Exception {
+                Poller<T> poller = new Poller<>(work, schedule, emitter);
+                emitter.setDisposable(poller);
+                mPollers.add(poller);
+                poller.start();
+            }
+        }).observeOn(mSchedulers.ui());
+    }
+
+    public void pause() {
+        mPaused = true;
+    }
+
+    public void resume() {
+        if (!mPaused) {
+            return;
+        }
+        mPaused = false;
+        mTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                for (Poller<?> poller : mPollers) {
+                    poller.onResume();
+                }
+            }
+        });
+    }
+
+    public boolean isPaused() {
+        return mPaused;
+    }
+
+    public int getPollerCount() {
+        return mPollers.size();
+    }
+
+    @Override
+    public void dispose() {
+        mTimer.dispose();
+        for (Poller<?> poller : mPollers) {
+            poller.dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return mTimer.isDisposed();
+    }
+
+    private long now() {
+        return mTimer.now(TimeUnit.MILLISECONDS);
+    }
+
+    //在 period * (1 ± jitter) 内随机
+    private long jitter(long periodMillis, double jitter) {
+        if (jitter == 0) {
+            return periodMillis;
+        }
+        return periodMillis + (long) ((mRandom.nextDouble() * 2 - 1) * jitter * periodMillis);
+    }
+
+    /**
+     * 计时回调（run）在计时线程上，work在io线程上，两者交替执行，不会同时访问下面的状态
+     */
+    private class Poller<T> implements Runnable, Disposable {
+        private final Callable<T> mWork;
+        private final PollingSchedule mSchedule;
+        private final ObservableEmitter<PollResult<T>> mEmitter;
+        //等待中的计时或者正在执行的work
+        private final SerialDisposable mTask = new SerialDisposable();
+        private final Runnable mRunWork = new Runnable() {
+            @Override
+            public void run() {
+                runWork();
+            }
+        };
+        private volatile boolean mDisposed;
+        //FIXED_RATE时这一次按计划应该开始的时间，不包括抖动
+        private long mScheduledAt;
+        private long mPeriodMillis;
+        private T mLast;
+        private boolean mHasLast;
+        private boolean mMissedWhilePaused;
+
+        Poller(Callable<T> work, PollingSchedule schedule, ObservableEmitter<PollResult<T>> emitter) {
+            mWork = work;
+            mSchedule = schedule;
+            mEmitter = emitter;
+            mPeriodMillis = schedule.getPeriodMillis();
+        }
+
+        void start() {
+            mTask.replace(mTimer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    mScheduledAt = now();
+                    Poller.this.run();
+                }
+            }));
+        }
+
+        //计时到期
+        @Override
+        public void run() {
+            if (mDisposed) {
+                return;
+            }
+            if (mPaused) {
+                mMissedWhilePaused = true;
+                return;
+            }
+            mTask.replace(mSchedulers.io().scheduleDirect(mRunWork));
+        }
+
+        void onResume() {
+            if (mDisposed || !mMissedWhilePaused) {
+                return;
+            }
+            mMissedWhilePaused = false;
+            long delay = (long) (mRandom.nextDouble() * mSchedule.getJitter() * mPeriodMillis);
+            mScheduledAt = now() + delay;
+            mTask.replace(mTimer.schedule(this, delay, TimeUnit.MILLISECONDS));
+        }
+
+        private void runWork() {
+            long start = now();
+            T value;
+            try {
+                value = mWork.call();
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                //取消订阅时会中断work，这时的异常不需要发送
+                if (!mDisposed) {
+                    mEmitter.onError(e);
+                }
+                return;
+            }
+            long end = now();
+            if (mDisposed) {
+                return;
+            }
+            long duration = end - start;
+            boolean overrun = duration > mPeriodMillis;
+            boolean changed = !mHasLast || (value == null ? mLast != null : !value.equals(mLast));
+            mLast = value;
+            mHasLast = true;
+            mPeriodMillis = changed ? mSchedule.getPeriodMillis() : mSchedule.backOff(mPeriodMillis);
+
+            long delay;
+            long skipped = 0;
+            if (mSchedule.getMode() == PollingSchedule.Mode.FIXED_RATE) {
+                long next = mScheduledAt + mPeriodMillis;
+                if (next < end) {
+                    //work超时，跳过已经错过的周期
+                    skipped = (end - next) / mPeriodMillis + 1;
+                    next += skipped * mPeriodMillis;
+                }
+                mScheduledAt = next;
+                //抖动只影响这一次的开始时间，不会累积到之后的计划时间上
+                delay = Math.max(0, next - end + jitter(mPeriodMillis, mSchedule.getJitter()) - mPeriodMillis);
+            } else {
+                delay = jitter(mPeriodMillis, mSchedule.getJitter());
+            }
+            mEmitter.onNext(new PollResult<>(value, changed, duration, mPeriodMillis, skipped, overrun));
+            if (!mDisposed) {
+                mTask.replace(mTimer.schedule(this, delay, TimeUnit.MILLISECONDS));
+            }
+        }
+
+        @Override
+        public void dispose() {
+            mDisposed = true;
+            mTask.dispose();
+            mPollers.remove(this);
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return mDisposed;
+        }
+    }
+}
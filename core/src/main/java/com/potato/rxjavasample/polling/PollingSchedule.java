@@ -0,0 +1,95 @@
+package com.potato.rxjavasample.polling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PollingEngine中一个轮询的时间安排，不可变，withXxx返回新的实例
+ * <p>
+ * FIXED_RATE：按计划的开始时间计算下一次，work耗时不影响频率，work超过period时跳过错过的周期，不会连续补执行。
+ * FIXED_DELAY：上一次work结束后再等待period。
+ * <p>
+ * 抖动：每次等待时间在 period * (1 ± jitter) 内随机，避免多个轮询（或多台设备）在同一时刻同时请求。
+ * 退避：结果和上一次相同时，period乘以backoffMultiplier，最多到maxPeriod；结果变化后恢复为最初的period。
+ */
+public class PollingSchedule {
+
+    public enum Mode {
+        FIXED_RATE,
+        FIXED_DELAY
+    }
+
+    private final Mode mMode;
+    private final long mPeriodMillis;
+    private final double mJitter;
+    private final double mBackoffMultiplier;
+    private final long mMaxPeriodMillis;
+
+    private PollingSchedule(Mode mode, long periodMillis, double jitter, double backoffMultiplier, long maxPeriodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("period > 0 required but it was " + periodMillis);
+        }
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("0 <= jitter < 1 required but it was " + jitter);
+        }
+        if (backoffMultiplier < 1) {
+            throw new IllegalArgumentException("backoffMultiplier >= 1 required but it was " + backoffMultiplier);
+        }
+        mMode = mode;
+        mPeriodMillis = periodMillis;
+        mJitter = jitter;
+        mBackoffMultiplier = backoffMultiplier;
+        mMaxPeriodMillis = Math.max(periodMillis, maxPeriodMillis);
+    }
+
+    public static PollingSchedule fixedRate(long period, TimeUnit unit) {
+        long millis = unit.toMillis(period);
+        return new PollingSchedule(Mode.FIXED_RATE, millis, 0, 1, millis);
+    }
+
+    public static PollingSchedule fixedDelay(long period, TimeUnit unit) {
+        long millis = unit.toMillis(period);
+        return new PollingSchedule(Mode.FIXED_DELAY, millis, 0, 1, millis);
+    }
+
+    /**
+     * @param jitter 0 ~ 1，0.1表示在period的±10%内随机
+     */
+    public PollingSchedule withJitter(double jitter) {
+        return new PollingSchedule(mMode, mPeriodMillis, jitter, mBackoffMultiplier, mMaxPeriodMillis);
+    }
+
+    public PollingSchedule withBackoff(double multiplier, long maxPeriod, TimeUnit unit) {
+        return new PollingSchedule(mMode, mPeriodMillis, mJitter, multiplier, unit.toMillis(maxPeriod));
+    }
+
+    public Mode getMode() {
+        return mMode;
+    }
+
+    public long getPeriodMillis() {
+        return mPeriodMillis;
+    }
+
+    public double getJitter() {
+        return mJitter;
+    }
+
+    public double getBackoffMultiplier() {
+        return mBackoffMultiplier;
+    }
+
+    public long getMaxPeriodMillis() {
+        return mMaxPeriodMillis;
+    }
+
+    //结果没有变化时的下一个period
+    long backOff(long currentPeriodMillis) {
+        return Math.min(mMaxPeriodMillis, (long) (currentPeriodMillis * mBackoffMultiplier));
+    }
+
+    @Override
+    public String toString() {
+        return "PollingSchedule{" + mMode + ", period=" + mPeriodMillis + "ms, jitter=" + mJitter
+                + ", backoff=" + mBackoffMultiplier + " up to " + mMaxPeriodMillis + "ms}";
+    }
+}
@@ -0,0 +1,79 @@
+package com.potato.rxjavasample.retry;
+
+/**
+ * 多个数据流共享的重试预算，避免后台故障时所有客户端一起重试，把请求量放大好几倍
+ * <p>
+ * 令牌桶：每个新的请求（第一次订阅）放入retryRatio个令牌，最多maxTokens个，每次重试取走一个，取不到就不再重试。
+ * 后台正常时很少重试，桶是满的，偶尔的失败可以立即重试；后台故障时令牌很快用完，
+ * 之后重试的次数不会超过新请求数的retryRatio倍，例如0.1表示重试最多增加10%的请求量。
+ */
+public class RetryBudget {
+    private final double mRetryRatio;
+    private final double mMaxTokens;
+    private double mTokens;
+    private long mRequests;
+    private long mRetries;
+    private long mRejected;
+
+    /**
+     * @param retryRatio 每个新请求可以换来的重试次数，0 ~ 1
+     * @param maxTokens  最多可以连续重试的次数，初始时桶是满的
+     */
+    public RetryBudget(double retryRatio, int maxTokens) {
+        if (retryRatio < 0 || retryRatio > 1) {
+            throw new IllegalArgumentException("0 <= retryRatio <= 1 required but it was " + retryRatio);
+        }
+        if (maxTokens < 0) {
+            throw new IllegalArgumentException("maxTokens >= 0 required but it was " + maxTokens);
+        }
+        mRetryRatio = retryRatio;
+        mMaxTokens = maxTokens;
+        mTokens = maxTokens;
+    }
+
+    /**
+     * 发起一个新的请求，重试不算
+     */
+    public synchronized void onRequest() {
+        mRequests++;
+        mTokens = Math.min(mMaxTokens, mTokens + mRetryRatio);
+    }
+
+    /**
+     * @return 预算足够时取走一个令牌并返回true，否则返回false，不应该再重试
+     */
+    public synchronized boolean tryRetry() {
+        if (mTokens >= 1) {
+            mTokens -= 1;
+            mRetries++;
+            return true;
+        }
+        mRejected++;
+        return false;
+    }
+
+    public synchronized double getTokens() {
+        return mTokens;
+    }
+
+    public synchronized long getRequestCount() {
+        return mRequests;
+    }
+
+    public synchronized long getRetryCount() {
+        return mRetries;
+    }
+
+    /**
+     * 因为预算用完而放弃的重试次数
+     */
+    public synchronized long getRejectedCount() {
+        return mRejected;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RetryBudget{tokens=" + mTokens + "/" + mMaxTokens + ", requests=" + mRequests
+                + ", retries=" + mRetries + ", rejected=" + mRejected + "}";
+    }
+}
@@ -0,0 +1,28 @@
+package com.potato.rxjavasample.retry;
+
+import com.potato.rxjavasample.schedulers.SchedulerProvider;
+
+import io.reactivex.Observable;
+
+/**
+ * RetryActivity中的重试，线程和计时都来自SchedulerProvider
+ * <p>
+ * 按RetryPolicy对异常类型分类，使用带抖动的退避，并且可以限制总时间、共用重试预算；
+ * source在io线程上订阅，结果在ui线程上发送。
+ */
+public class RetryPipeline {
+    private final SchedulerProvider mSchedulers;
+
+    public RetryPipeline(SchedulerProvider schedulers) {
+        mSchedulers = schedulers;
+    }
+
+    /**
+     * 按policy重试，等待使用computation()计时，见RetryPolicy
+     */
+    public <T> Observable<T> retry(Observable<T> source, RetryPolicy policy) {
+        return source.subscribeOn(mSchedulers.io())
+                .compose(policy.<T>transformer(mSchedulers.computation()))
+                .observeOn(mSchedulers.ui());
+    }
+}
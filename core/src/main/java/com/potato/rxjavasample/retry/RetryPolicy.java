@@ -0,0 +1,150 @@
+package com.potato.rxjavasample.retry;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+
+/**
+ * 重试策略，不可变，withXxx/retryOn返回新的实例，可以在多个数据流之间共用
+ * <p>
+ * 分类：只有retryOn登记过的异常类型（包括子类）才会重试，按登记的顺序匹配第一个，每种类型有自己的初始等待时间；
+ * 没有登记的异常直接传给下游。例如超时可以很快重试，服务器繁忙需要等久一点，参数错误重试多少次都没用。
+ * <p>
+ * 退避：使用decorrelated jitter，每次等待时间在 [base, 上一次等待时间 * 3] 之间随机，最多maxDelay，
+ * 第一次重试时把上一次等待时间当作base，即在 [base, base * 3] 之间随机。
+ * 等待时间整体上指数增长，同时每个客户端从第一次重试开始时间就是分散的，同时失败的客户端不会在同一时刻一起重试。
+ * <p>
+ * 以下任何一个条件满足时都不再重试，下游收到最后一次的错误：
+ * 超过maxRetries次；从第一次订阅开始，加上这次等待之后会超过maxElapsed；共享的RetryBudget已经用完。
+ * <p>
+ * 重试计数、上一次等待时间和开始时间在每次订阅时重新开始，同一个数据流可以被订阅多次。
+ */
+public class RetryPolicy {
+    private static final int DEFAULT_MAX_RETRIES = 3;
+
+    private final Map<Class<? extends Throwable>, Long> mBaseDelays;
+    private final long mMaxDelayMillis;
+    private final int mMaxRetries;
+    private final long mMaxElapsedMillis;
+    private final RetryBudget mBudget;
+
+    private RetryPolicy(Map<Class<? extends Throwable>, Long> baseDelays, long maxDelayMillis, int maxRetries,
+                        long maxElapsedMillis, RetryBudget budget) {
+        if (maxDelayMillis <= 0) {
+            throw new IllegalArgumentException("maxDelay > 0 required but it was " + maxDelayMillis);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries >= 0 required but it was " + maxRetries);
+        }
+        if (maxElapsedMillis <= 0) {
+            throw new IllegalArgumentException("maxElapsed > 0 required but it was " + maxElapsedMillis);
+        }
+        mBaseDelays = baseDelays;
+        mMaxDelayMillis = maxDelayMillis;
+        mMaxRetries = maxRetries;
+        mMaxElapsedMillis = maxElapsedMillis;
+        mBudget = budget;
+    }
+
+    /**
+     * 还没有登记任何异常类型，默认最多重试3次，不限制总时间，不使用预算
+     *
+     * @param maxDelay 每次等待时间的上限
+     */
+    public static RetryPolicy decorrelatedJitter(long maxDelay, TimeUnit unit) {
+        return new RetryPolicy(Collections.<Class<? extends Throwable>, Long>emptyMap(), unit.toMillis(maxDelay),
+                DEFAULT_MAX_RETRIES, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * 重试type以及它的子类，第一次等待baseDelay，已经登记过的类型会更新baseDelay
+     */
+    public RetryPolicy retryOn(Class<? extends Throwable> type, long baseDelay, TimeUnit unit) {
+        long millis = unit.toMillis(baseDelay);
+        if (millis <= 0) {
+            throw new IllegalArgumentException("baseDelay > 0 required but it was " + millis);
+        }
+        Map<Class<? extends Throwable>, Long> baseDelays = new LinkedHashMap<>(mBaseDelays);
+        baseDelays.put(type, millis);
+        return new RetryPolicy(Collections.unmodifiableMap(baseDelays), mMaxDelayMillis, mMaxRetries, mMaxElapsedMillis, mBudget);
+    }
+
+    public RetryPolicy withMaxRetries(int maxRetries) {
+        return new RetryPolicy(mBaseDelays, mMaxDelayMillis, maxRetries, mMaxElapsedMillis, mBudget);
+    }
+
+    public RetryPolicy withMaxElapsed(long maxElapsed, TimeUnit unit) {
+        return new RetryPolicy(mBaseDelays, mMaxDelayMillis, mMaxRetries, unit.toMillis(maxElapsed), mBudget);
+    }
+
+    /**
+     * @param budget 可以被多个RetryPolicy共用，null表示不限制
+     */
+    public RetryPolicy withBudget(RetryBudget budget) {
+        return new RetryPolicy(mBaseDelays, mMaxDelayMillis, mMaxRetries, mMaxElapsedMillis, budget);
+    }
+
+    /**
+     * @param timer 等待和计算总时间使用的Scheduler
+     */
+    public <T> RetryTransformer<T> transformer(Scheduler timer) {
+        return transformer(timer, new Random());
+    }
+
+    public <T> RetryTransformer<T> transformer(Scheduler timer, Random random) {
+        return new RetryTransformer<>(this, timer, random);
+    }
+
+    public long getMaxDelayMillis() {
+        return mMaxDelayMillis;
+    }
+
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    public long getMaxElapsedMillis() {
+        return mMaxElapsedMillis;
+    }
+
+    public RetryBudget getBudget() {
+        return mBudget;
+    }
+
+    //error对应的初始等待时间，不重试时返回-1
+    long baseDelayMillis(Throwable error) {
+        for (Map.Entry<Class<? extends Throwable>, Long> entry : mBaseDelays.entrySet()) {
+            if (entry.getKey().isInstance(error)) {
+                return entry.getValue();
+            }
+        }
+        return -1;
+    }
+
+    //decorrelated jitter：在 [base, previous * 3] 内随机，最多maxDelay，第一次重试时previous为0，按base计算
+    long nextDelayMillis(long baseMillis, long previousMillis, Random random) {
+        long base = Math.min(baseMillis, mMaxDelayMillis);
+        long upper = Math.min(mMaxDelayMillis, Math.max(base, previousMillis) * 3);
+        return base + (long) (random.nextDouble() * (upper - base));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RetryPolicy{");
+        for (Map.Entry<Class<? extends Throwable>, Long> entry : mBaseDelays.entrySet()) {
+            builder.append(entry.getKey().getSimpleName()).append("=").append(entry.getValue()).append("ms, ");
+        }
+        builder.append("maxDelay=").append(mMaxDelayMillis).append("ms, maxRetries=").append(mMaxRetries);
+        if (mMaxElapsedMillis != Long.MAX_VALUE) {
+            builder.append(", maxElapsed=").append(mMaxElapsedMillis).append("ms");
+        }
+        if (mBudget != null) {
+            builder.append(", ").append(mBudget);
+        }
+        return builder.append("}").toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.potato.rxjavasample.retry;
+
+import org.reactivestreams.Publisher;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+
+/**
+ * 按RetryPolicy重试的retryWhen，通过compose使用，Observable和Flowable都可以
+ * <p>
+ * retryWhen的Function在每次订阅时调用一次，每次订阅的重试状态都在这里新建，不会和其他订阅共用。
+ */
+public final class RetryTransformer<T> implements ObservableTransformer<T, T>, FlowableTransformer<T, T> {
+    private final RetryPolicy mPolicy;
+    private final Scheduler mTimer;
+    private final Random mRandom;
+
+    RetryTransformer(RetryPolicy policy, Scheduler timer, Random random) {
+        mPolicy = policy;
+        mTimer = timer;
+        mRandom = random;
+    }
+
+    @Override
+    public ObservableSource<T> apply(Observable<T> upstream) {
+        return upstream.retryWhen(new Function<Observable<Throwable>, ObservableSource<?>>() {
+            @Override
+            public ObservableSource<?> apply(Observable<Throwable> errors) throws Exception {
+                final Attempts attempts = new Attempts();
+                return errors.flatMap(new Function<Throwable, ObservableSource<?>>() {
+                    @Override
+                    public ObservableSource<?> apply(Throwable throwable) throws Exception {
+                        long delay = attempts.nextDelayMillis(throwable);
+                        return delay >= 0 ? Observable.timer(delay, TimeUnit.MILLISECONDS, mTimer) : Observable.error(throwable);
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public Publisher<T> apply(Flowable<T> upstream) {
+        return upstream.retryWhen(new Function<Flowable<Throwable>, Publisher<?>>() {
+            @Override
+            public Publisher<?> apply(Flowable<Throwable> errors) throws Exception {
+                final Attempts attempts = new Attempts();
+                return errors.flatMap(new Function<Throwable, Publisher<?>>() {
+                    @Override
+                    public Publisher<?> apply(Throwable throwable) throws Exception {
+                        long delay = attempts.nextDelayMillis(throwable);
+                        return delay >= 0 ? Flowable.timer(delay, TimeUnit.MILLISECONDS, mTimer) : Flowable.error(throwable);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 一次订阅的重试状态，错误是依次到达的，不需要同步
+     */
+    private final class Attempts {
+        private final long mStartMillis;
+        private int mRetries;
+        private long mPreviousDelayMillis;
+
+        Attempts() {
+            mStartMillis = mTimer.now(TimeUnit.MILLISECONDS);
+            RetryBudget budget = mPolicy.getBudget();
+            if (budget != null) {
+                budget.onRequest();
+            }
+        }
+
+        //返回重试前需要等待的毫秒数，-1表示不再重试
+        long nextDelayMillis(Throwable error) {
+            long base = mPolicy.baseDelayMillis(error);
+            if (base < 0 || mRetries >= mPolicy.getMaxRetries()) {
+                return -1;
+            }
+            long delay = mPolicy.nextDelayMillis(base, mPreviousDelayMillis, mRandom);
+            long elapsed = mTimer.now(TimeUnit.MILLISECONDS) - mStartMillis;
+            if (delay > mPolicy.getMaxElapsedMillis() - elapsed) {
+                return -1;
+            }
+            //前面的条件都满足、确定要重试时才消耗预算
+            RetryBudget budget = mPolicy.getBudget();
+            if (budget != null && !budget.tryRetry()) {
+                return -1;
+            }
+            mRetries++;
+            mPreviousDelayMillis = delay;
+            return delay;
+        }
+    }
+}
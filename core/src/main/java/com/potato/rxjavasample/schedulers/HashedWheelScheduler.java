@@ -0,0 +1,337 @@
+package com.potato.rxjavasample.schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * 基于哈希时间轮的Scheduler，可以直接传给interval、timer、delay等操作符
+ * <p>
+ * 所有定时任务都在同一个线程上：时间被分成tickDuration长的格子，wheelSize个格子组成一圈，
+ * 任务按到期时间放进对应的格子（双向链表），超过一圈的记下还要转几圈。线程每过一格只检查这一格里的任务，
+ * 加入和取消都是O(1)，和等待中的任务数无关，十万个定时任务也只需要一个线程。
+ * 代价是精度：任务会在到期后的第一个格子边界上执行，最多晚一个tickDuration，延时为0的任务也是在当前这一格结束时执行。
+ * 同一格内的任务按加入的顺序执行，不同格的按格子的先后执行，所以同一个Worker的任务按到期时间（精确到格）和加入顺序执行。
+ * <p>
+ * 和Schedulers.computation()相比：
+ * scheduleDirect/schedulePeriodicallyDirect不创建Worker，周期任务每次执行后复用同一个节点重新放回时间轮，没有额外的对象分配；
+ * 取消只做一个标记，节点在下一次经过它所在的格子时移除（最多一圈），任务引用在取消时立即释放。
+ * Worker被dispose之后，它还没有执行的任务同样在经过所在格子时移除。
+ * <p>
+ * 任务都在时间轮线程上执行，不能阻塞，耗时的工作需要observeOn到其他线程。
+ */
+public final class HashedWheelScheduler extends Scheduler {
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+    //每次循环最多从队列中取出的任务数，避免不停加入任务时时间轮无法前进
+    private static final int MAX_TRANSFER_PER_LOOP = 100000;
+
+    private final long mTickNanos;
+    private final int mMask;
+    private final Bucket[] mWheel;
+    private final long mStartNanos;
+    //其他线程加入的任务
+    private final Queue<Timeout> mPending = new ConcurrentLinkedQueue<>();
+    //时间轮线程自己加入的任务（周期任务、在任务中再次调度），只在时间轮线程上访问
+    private final ArrayDeque<Timeout> mLocalPending = new ArrayDeque<>();
+    private final Thread mThread;
+    private volatile boolean mShutdown;
+    //只在时间轮线程上修改
+    private long mTick;
+    private volatile int mWheelCount;
+
+    /**
+     * @param tickDuration 每一格的时长，即定时的精度
+     * @param wheelSize    一圈的格子数，会向上取整为2的幂；tickDuration * wheelSize 以内的任务不需要转圈
+     */
+    public HashedWheelScheduler(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration > 0 required but it was " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("0 < wheelSize <= 2^30 required but it was " + wheelSize);
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        mTickNanos = unit.toNanos(tickDuration);
+        mMask = size - 1;
+        mWheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            mWheel[i] = new Bucket();
+        }
+        mStartNanos = System.nanoTime();
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "RxHashedWheel-" + THREAD_INDEX.incrementAndGet());
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new WheelWorker();
+    }
+
+    @Override
+    public Disposable scheduleDirect(Runnable run, long delay, TimeUnit unit) {
+        Timeout timeout = add(RxJavaPlugins.onSchedule(run), unit.toNanos(delay), 0, null);
+        return timeout != null ? timeout : Disposables.disposed();
+    }
+
+    @Override
+    public Disposable schedulePeriodicallyDirect(Runnable run, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            return super.schedulePeriodicallyDirect(run, initialDelay, period, unit);
+        }
+        Timeout timeout = add(RxJavaPlugins.onSchedule(run), unit.toNanos(initialDelay), unit.toNanos(period), null);
+        return timeout != null ? timeout : Disposables.disposed();
+    }
+
+    /**
+     * 停止时间轮线程，还没有执行的任务都不会再执行
+     */
+    @Override
+    public void shutdown() {
+        mShutdown = true;
+        LockSupport.unpark(mThread);
+    }
+
+    /**
+     * 已经放进时间轮、还没有到期的任务数（包括已经取消但还没有移除的）
+     */
+    public int getWheelCount() {
+        return mWheelCount;
+    }
+
+    public long getTickNanos() {
+        return mTickNanos;
+    }
+
+    //已经shutdown时返回null
+    private Timeout add(Runnable run, long delayNanos, long periodNanos, WheelWorker worker) {
+        if (mShutdown) {
+            return null;
+        }
+        Timeout timeout = new Timeout(run, elapsedNanos() + Math.max(0, delayNanos), periodNanos, worker);
+        //任务最早也要在当前这一格结束时执行，时间轮线程在那之前一定会醒来取走它，不需要唤醒
+        if (Thread.currentThread() == mThread) {
+            mLocalPending.offer(timeout);
+        } else {
+            mPending.offer(timeout);
+        }
+        return timeout;
+    }
+
+    private long elapsedNanos() {
+        return System.nanoTime() - mStartNanos;
+    }
+
+    private void loop() {
+        while (!mShutdown) {
+            //先把新任务放进时间轮，再处理到期的格子，同一格内先加入的任务先执行
+            transfer();
+            long now = elapsedNanos();
+            long tickDeadline = (mTick + 1) * mTickNanos;
+            if (now >= tickDeadline) {
+                mTick++;
+                expire(mWheel[(int) (mTick & mMask)]);
+                continue;
+            }
+            if (mPending.isEmpty() && mLocalPending.isEmpty()) {
+                LockSupport.parkNanos(this, tickDeadline - now);
+            }
+        }
+    }
+
+    //把新加入的任务放进时间轮，所在的格子已经处理过的（线程落后时）直接执行
+    private void transfer() {
+        for (int i = 0; i < MAX_TRANSFER_PER_LOOP; i++) {
+            //其他线程先加入的任务先执行
+            Timeout timeout = mPending.poll();
+            if (timeout == null) {
+                timeout = mLocalPending.poll();
+                if (timeout == null) {
+                    return;
+                }
+            }
+            if (timeout.isDisposed()) {
+                continue;
+            }
+            //到期时间所在的格子，即使已经到期，只要这一格还没有处理，就放进去排在之前的任务后面，不能提前执行
+            long ticks = (timeout.deadline + mTickNanos - 1) / mTickNanos;
+            if (ticks <= mTick) {
+                timeout.fire();
+                continue;
+            }
+            timeout.rounds = (ticks - mTick - 1) / mWheel.length;
+            mWheel[(int) (ticks & mMask)].add(timeout);
+            mWheelCount++;
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.isDisposed()) {
+                bucket.remove(timeout);
+                mWheelCount--;
+            } else if (timeout.rounds <= 0) {
+                bucket.remove(timeout);
+                mWheelCount--;
+                //周期任务在fire中重新放进mLocalPending，下一次transfer时才会放回时间轮
+                timeout.fire();
+            } else {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private static final class Bucket {
+        Timeout head;
+        Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * 时间轮中的一个任务，自身就是返回给调用方的Disposable
+     */
+    private final class Timeout extends AtomicInteger implements Disposable {
+        private static final long serialVersionUID = 1L;
+        static final int WAITING = 0;
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+
+        private final long period;
+        private final WheelWorker worker;
+        private volatile Runnable task;
+        //以下字段只在时间轮线程上访问
+        long deadline;
+        long rounds;
+        Bucket bucket;
+        Timeout prev;
+        Timeout next;
+
+        Timeout(Runnable task, long deadline, long period, WheelWorker worker) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+            this.worker = worker;
+        }
+
+        void fire() {
+            if (!compareAndSet(WAITING, RUNNING)) {
+                return;
+            }
+            Runnable run = task;
+            if (run == null || (worker != null && worker.mDisposed)) {
+                lazySet(DONE);
+                return;
+            }
+            try {
+                run.run();
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                lazySet(DONE);
+                task = null;
+                RxJavaPlugins.onError(e);
+                return;
+            }
+            if (period > 0 && compareAndSet(RUNNING, WAITING)) {
+                //按计划的时间累加，不受执行耗时影响
+                deadline += period;
+                mLocalPending.offer(this);
+            } else {
+                lazySet(DONE);
+                task = null;
+            }
+        }
+
+        @Override
+        public void dispose() {
+            //正在执行的周期任务执行完后不会再放回时间轮
+            getAndSet(DONE);
+            task = null;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return get() == DONE || (worker != null && worker.mDisposed);
+        }
+    }
+
+    private final class WheelWorker extends Worker {
+        private volatile boolean mDisposed;
+
+        @Override
+        public Disposable schedule(Runnable run, long delay, TimeUnit unit) {
+            if (mDisposed) {
+                return Disposables.disposed();
+            }
+            Timeout timeout = add(RxJavaPlugins.onSchedule(run), unit.toNanos(delay), 0, this);
+            return timeout != null ? timeout : Disposables.disposed();
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable run, long initialDelay, long period, TimeUnit unit) {
+            if (period <= 0) {
+                return super.schedulePeriodically(run, initialDelay, period, unit);
+            }
+            if (mDisposed) {
+                return Disposables.disposed();
+            }
+            Timeout timeout = add(RxJavaPlugins.onSchedule(run), unit.toNanos(initialDelay), unit.toNanos(period), this);
+            return timeout != null ? timeout : Disposables.disposed();
+        }
+
+        @Override
+        public void dispose() {
+            mDisposed = true;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return mDisposed;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.potato.rxjavasample.schedulers;
+
+import io.reactivex.Scheduler;
+
+/**
+ * 数据流中用到的线程
+ * <p>
+ * core模块中的逻辑不直接引用Schedulers.io()和AndroidSchedulers.mainThread()，而是通过这个接口获取，
+ * App中使用AndroidSchedulerProvider；测试中使用core测试代码里的TestSchedulerProvider，
+ * 所有的线程切换和计时都在同一个TestScheduler上进行，可以用虚拟时间驱动。
+ */
+public interface SchedulerProvider {
+    /**
+     * 网络请求、磁盘读写等阻塞的任务
+     */
+    Scheduler io();
+
+    /**
+     * 计时以及计算任务，debounce、timer、interval等操作符默认使用的线程
+     */
+    Scheduler computation();
+
+    /**
+     * 展示结果的线程，App中是主线程
+     */
+    Scheduler ui();
+}
@@ -0,0 +1,197 @@
+package com.potato.rxjavasample.search;
+
+import org.reactivestreams.Publisher;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+
+/**
+ * 根据输入速度和后台耗时自动调整等待时间的debounce
+ * <p>
+ * 固定200ms的debounce对打字慢的用户来说太长：他们两次按键的间隔远大于后台的耗时，请求早发出去也不会被后面的输入打断，等待是多余的；
+ * 对打字快的用户又太短：稍微停顿一下就发出了请求，紧接着的按键又让switchMap把这个请求丢掉了。
+ * <p>
+ * 这里用指数加权平均统计按键间隔（和TCP估算RTO的方式一样，同时统计平均值和平均偏差），以及后台请求的耗时：
+ * <ul>
+ * <li>按键间隔的平均值大于后台耗时时，用最短的等待时间，请求可以在下一次按键之前返回；</li>
+ * <li>否则等待 平均间隔 + 4 * 平均偏差（至少是平均间隔的1.5倍），也就是等到比平时明显更长的停顿才发出请求。</li>
+ * </ul>
+ * 等待时间限制在minWindow ~ maxWindow之间。时间都从scheduler获取，可以用TestScheduler测试。
+ */
+public class AdaptiveDebounce<T> implements ObservableTransformer<T, T>, FlowableTransformer<T, T> {
+    //超过这个间隔的按键认为是重新开始输入，不参与统计
+    private static final long SESSION_GAP_MILLIS = 2000;
+    private static final double GAP_WEIGHT = 0.125;
+    private static final double DEVIATION_WEIGHT = 0.25;
+    private static final double LATENCY_WEIGHT = 0.125;
+    private static final int DEVIATION_FACTOR = 4;
+
+    private final long mMinWindow;
+    private final long mMaxWindow;
+    private final long mInitialWindow;
+    private final Scheduler mScheduler;
+
+    private long mLastKeyTime = -1;
+    private double mGap = -1;
+    private double mGapDeviation;
+    private double mLatency = -1;
+    private long mWindow;
+
+    private long mKeyCount;
+    private long mIssuedCount;
+    private long mShownCount;
+
+    /**
+     * @param minWindow     最短等待时间，毫秒
+     * @param maxWindow     最长等待时间，毫秒
+     * @param initialWindow 还没有统计数据时的等待时间，毫秒
+     */
+    public AdaptiveDebounce(long minWindow, long maxWindow, long initialWindow, Scheduler scheduler) {
+        mMinWindow = minWindow;
+        mMaxWindow = maxWindow;
+        mInitialWindow = initialWindow;
+        mWindow = clamp(initialWindow);
+        mScheduler = scheduler;
+    }
+
+    @Override
+    public ObservableSource<T> apply(Observable<T> upstream) {
+        return upstream.doOnNext(new Consumer<T>() {
+            @Override
+            public void accept(T t) throws Exception {
+                onKey();
+            }
+        }).debounce(new Function<T, ObservableSource<Long>>() {
+            @Override
+            public ObservableSource<Long> apply(T t) throws Exception {
+                return Observable.timer(getWindow(), TimeUnit.MILLISECONDS, mScheduler);
+            }
+        });
+    }
+
+    @Override
+    public Publisher<T> apply(Flowable<T> upstream) {
+        return upstream.doOnNext(new Consumer<T>() {
+            @Override
+            public void accept(T t) throws Exception {
+                onKey();
+            }
+        }).debounce(new Function<T, Publisher<Long>>() {
+            @Override
+            public Publisher<Long> apply(T t) throws Exception {
+                return Flowable.timer(getWindow(), TimeUnit.MILLISECONDS, mScheduler);
+            }
+        });
+    }
+
+    /**
+     * 统计后台请求耗时：从订阅到正常结束的时间，被switchMap取消的请求不统计
+     * <p>
+     * 只能用在真正访问后台的Observable上，缓存命中的结果几乎不耗时，计入后会把平均耗时拉低到0，
+     * 按键间隔总是大于这个耗时，等待时间就会一直是最短的。
+     */
+    public <R> ObservableTransformer<R, R> measureLatency() {
+        return new ObservableTransformer<R, R>() {
+            @Override
+            public ObservableSource<R> apply(final Observable<R> upstream) {
+                return Observable.defer(new Callable<ObservableSource<R>>() {
+                    @Override
+                    public ObservableSource<R> call() throws Exception {
+                        final long start = mScheduler.now(TimeUnit.MILLISECONDS);
+                        return upstream.doOnComplete(new Action() {
+                            @Override
+                            public void run() throws Exception {
+                                recordLatency(mScheduler.now(TimeUnit.MILLISECONDS) - start);
+                            }
+                        });
+                    }
+                });
+            }
+        };
+    }
+
+    public synchronized void recordLatency(long millis) {
+        mLatency = mLatency < 0 ? millis : mLatency + LATENCY_WEIGHT * (millis - mLatency);
+        updateWindow();
+    }
+
+    /**
+     * 关键词真正用于搜索时调用，debounce之后被过滤掉的关键词（例如空关键词）不应该计入
+     */
+    public synchronized void onIssued() {
+        mIssuedCount++;
+    }
+
+    /**
+     * 请求的结果真正展示给用户时调用
+     */
+    public synchronized void onResultShown() {
+        mShownCount++;
+    }
+
+    public synchronized long getWindow() {
+        return mWindow;
+    }
+
+    public synchronized long getIssuedCount() {
+        return mIssuedCount;
+    }
+
+    public synchronized long getShownCount() {
+        return mShownCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveDebounce{window=" + mWindow
+                + ", gap=" + String.format(Locale.US, "%.0f±%.0f", mGap, mGapDeviation)
+                + ", latency=" + String.format(Locale.US, "%.0f", mLatency)
+                + ", keys=" + mKeyCount
+                + ", issued=" + mIssuedCount
+                + ", shown=" + mShownCount + "}";
+    }
+
+    private synchronized void onKey() {
+        long now = mScheduler.now(TimeUnit.MILLISECONDS);
+        mKeyCount++;
+        if (mLastKeyTime >= 0) {
+            long gap = now - mLastKeyTime;
+            if (gap <= SESSION_GAP_MILLIS) {
+                if (mGap < 0) {
+                    mGap = gap;
+                    mGapDeviation = gap / 2.0;
+                } else {
+                    mGapDeviation += DEVIATION_WEIGHT * (Math.abs(gap - mGap) - mGapDeviation);
+                    mGap += GAP_WEIGHT * (gap - mGap);
+                }
+                updateWindow();
+            }
+        }
+        mLastKeyTime = now;
+    }
+
+    private void updateWindow() {
+        if (mGap < 0) {
+            mWindow = clamp(mInitialWindow);
+        } else if (mLatency >= 0 && mGap > mLatency) {
+            mWindow = mMinWindow;
+        } else {
+            mWindow = clamp((long) (mGap + Math.max(DEVIATION_FACTOR * mGapDeviation, mGap / 2)));
+        }
+    }
+
+    private long clamp(long window) {
+        return Math.max(mMinWindow, Math.min(mMaxWindow, window));
+    }
+}
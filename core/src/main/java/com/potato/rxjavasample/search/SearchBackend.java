@@ -0,0 +1,13 @@
+package com.potato.rxjavasample.search;
+
+import java.util.List;
+
+import io.reactivex.Observable;
+
+/**
+ * 搜索联想的数据来源，返回和关键词相关的联想词
+ */
+public interface SearchBackend {
+
+    Observable<List<String>> search(String query);
+}
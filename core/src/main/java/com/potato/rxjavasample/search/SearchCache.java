@@ -0,0 +1,201 @@
+package com.potato.rxjavasample.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+
+/**
+ * 搜索联想结果的LRU缓存，按估算的字节数计算容量
+ * <p>
+ * 用户删掉一个字符再重新输入时，关键词完全相同，直接返回缓存，不再请求后台；
+ * 新的关键词是某个已缓存关键词的延长（例如缓存了"rx"，输入了"rxj"）时，
+ * 先用缓存的结果在本地过滤出以新关键词开头的词立即展示，同时仍然请求后台，后台的结果返回后再替换。
+ * <p>
+ * 本地过滤的前提是后台的匹配规则为前缀匹配；后台可能会截断结果数量，所以本地过滤的结果只作为临时展示。
+ */
+public class SearchCache {
+    //对象头和引用的粗略估算值，只用于计算缓存容量
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int STRING_OVERHEAD = 40;
+    private static final ObservableTransformer<List<String>, List<String>> UNCHANGED = new ObservableTransformer<List<String>, List<String>>() {
+        @Override
+        public ObservableSource<List<String>> apply(Observable<List<String>> upstream) {
+            return upstream;
+        }
+    };
+
+    private final SearchBackend mBackend;
+    private final long mMaxBytes;
+    private final LinkedHashMap<String, List<String>> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mBytes;
+
+    private long mRequestCount;
+    private long mHitCount;
+    private long mPrefixHitCount;
+    private long mMissCount;
+
+    public SearchCache(SearchBackend backend, long maxBytes) {
+        mBackend = backend;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * 完全命中时只发送一次缓存结果；前缀命中时先发送本地过滤的结果，再发送后台结果；未命中时只发送后台结果。
+     */
+    public Observable<SearchResult> search(String query) {
+        return search(query, UNCHANGED);
+    }
+
+    /**
+     * @param remote 只作用在后台请求上，完全命中和本地过滤的结果不经过它，例如用来统计后台耗时
+     */
+    public Observable<SearchResult> search(final String query, final ObservableTransformer<List<String>, List<String>> remote) {
+        return Observable.defer(new Callable<ObservableSource<SearchResult>>() {
+            @Override
+            public ObservableSource<SearchResult> call() throws Exception {
+                final String key = normalize(query);
+                List<String> cached;
+                List<String> local = null;
+                synchronized (SearchCache.this) {
+                    mRequestCount++;
+                    cached = mEntries.get(key);
+                    if (cached != null) {
+                        mHitCount++;
+                    } else {
+                        local = filterLongestPrefix(key);
+                        if (local != null) {
+                            mPrefixHitCount++;
+                        } else {
+                            mMissCount++;
+                        }
+                    }
+                }
+                if (cached != null) {
+                    return Observable.just(new SearchResult(query, cached, false));
+                }
+                Observable<SearchResult> results = mBackend.search(query)
+                        .compose(remote)
+                        .doOnNext(new Consumer<List<String>>() {
+                            @Override
+                            public void accept(List<String> results) throws Exception {
+                                put(key, results);
+                            }
+                        })
+                        .map(new Function<List<String>, SearchResult>() {
+                            @Override
+                            public SearchResult apply(List<String> results) throws Exception {
+                                return new SearchResult(query, results, false);
+                            }
+                        });
+                if (local != null) {
+                    return results.startWith(new SearchResult(query, local, true));
+                }
+                return results;
+            }
+        });
+    }
+
+    public synchronized void put(String query, List<String> results) {
+        String key = normalize(query);
+        List<String> copy = Collections.unmodifiableList(new ArrayList<>(results));
+        List<String> previous = mEntries.put(key, copy);
+        if (previous != null) {
+            mBytes -= sizeOf(key, previous);
+        }
+        mBytes += sizeOf(key, copy);
+        trim();
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mBytes = 0;
+    }
+
+    /**
+     * 完全命中和前缀命中占所有请求的比例
+     */
+    public synchronized double getHitRate() {
+        return mRequestCount == 0 ? 0 : (double) (mHitCount + mPrefixHitCount) / mRequestCount;
+    }
+
+    /**
+     * 完全命中的次数，即节省的后台请求次数
+     */
+    public synchronized long getSavedCalls() {
+        return mHitCount;
+    }
+
+    /**
+     * 前缀命中的次数，这些请求仍然会访问后台，但可以先展示本地过滤的结果
+     */
+    public synchronized long getPrefixHitCount() {
+        return mPrefixHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SearchCache{requests=" + mRequestCount
+                + ", hits=" + mHitCount
+                + ", prefixHits=" + mPrefixHitCount
+                + ", misses=" + mMissCount
+                + ", hitRate=" + String.format(Locale.US, "%.2f", getHitRate())
+                + ", bytes=" + mBytes + "}";
+    }
+
+    //从长到短查找已缓存的前缀，找到后过滤出以key开头的词
+    private List<String> filterLongestPrefix(String key) {
+        for (int end = key.length() - 1; end > 0; end--) {
+            List<String> results = mEntries.get(key.substring(0, end));
+            if (results != null) {
+                List<String> filtered = new ArrayList<>();
+                for (String result : results) {
+                    if (result.toLowerCase(Locale.US).startsWith(key)) {
+                        filtered.add(result);
+                    }
+                }
+                return filtered;
+            }
+        }
+        return null;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, List<String>>> iterator = mEntries.entrySet().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, List<String>> eldest = iterator.next();
+            mBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    private static String normalize(String query) {
+        return query.toLowerCase(Locale.US);
+    }
+
+    private static long sizeOf(String key, List<String> results) {
+        long size = ENTRY_OVERHEAD + STRING_OVERHEAD + 2 * key.length();
+        for (String result : results) {
+            size += STRING_OVERHEAD + 2 * result.length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,76 @@
+package com.potato.rxjavasample.search;
+
+import com.potato.rxjavasample.flow.FlowableInput;
+import com.potato.rxjavasample.schedulers.SchedulerProvider;
+
+import org.reactivestreams.Publisher;
+
+import java.util.List;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+
+/**
+ * SearchActivity的搜索联想：输入 -> AdaptiveDebounce -> 过滤空关键词 -> switchMap到SearchCache -> ui线程
+ * <p>
+ * 过滤之后的关键词计为一次搜索，只统计真正访问后台的耗时，完全命中缓存的结果不计入耗时；
+ * 网络结果在ui线程上发送时通知AdaptiveDebounce结果已经展示，本地过滤的结果不计入。
+ * 计时使用传入AdaptiveDebounce的scheduler，后台请求的线程由SearchBackend决定。
+ */
+public class SearchPipeline {
+    private final FlowableInput<String> mInput;
+    private final AdaptiveDebounce<String> mDebounce;
+    private final SearchCache mCache;
+    private final SchedulerProvider mSchedulers;
+
+    public SearchPipeline(FlowableInput<String> input, AdaptiveDebounce<String> debounce, SearchCache cache, SchedulerProvider schedulers) {
+        mInput = input;
+        mDebounce = debounce;
+        mCache = cache;
+        mSchedulers = schedulers;
+    }
+
+    public void onQueryChanged(String query) {
+        mInput.onNext(query);
+    }
+
+    public Flowable<SearchResult> results() {
+        return mInput.flowable().compose(mDebounce)
+                .filter(new Predicate<String>() {
+                    @Override
+                    public boolean test(String s) throws Exception {
+                        return s.length() > 0;
+                    }
+                })
+                .doOnNext(new Consumer<String>() {
+                    @Override
+                    public void accept(String s) throws Exception {
+                        mDebounce.onIssued();
+                    }
+                })
+                .switchMap(new Function<String, Publisher<SearchResult>>() {
+                    @Override
+                    public Publisher<SearchResult> apply(String s) throws Exception {
+                        //完全命中缓存时不再请求后台，前缀命中时先展示本地过滤的结果
+                        return mCache.search(s, mDebounce.<List<String>>measureLatency()).toFlowable(BackpressureStrategy.LATEST);
+                    }
+                })
+                .observeOn(mSchedulers.ui())
+                .doOnNext(new Consumer<SearchResult>() {
+                    @Override
+                    public void accept(SearchResult result) throws Exception {
+                        if (!result.isLocal()) {
+                            mDebounce.onResultShown();
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public String toString() {
+        return mCache + "，" + mDebounce + "，" + mInput;
+    }
+}
@@ -0,0 +1,33 @@
+package com.potato.rxjavasample.search;
+
+import java.util.List;
+
+/**
+ * 一次搜索联想的结果
+ */
+public class SearchResult {
+    private final String mQuery;
+    private final List<String> mSuggestions;
+    private final boolean mLocal;
+
+    public SearchResult(String query, List<String> suggestions, boolean local) {
+        mQuery = query;
+        mSuggestions = suggestions;
+        mLocal = local;
+    }
+
+    public String getQuery() {
+        return mQuery;
+    }
+
+    public List<String> getSuggestions() {
+        return mSuggestions;
+    }
+
+    /**
+     * 是否是由缓存中更短的关键词的结果在本地过滤得到的，之后还会收到后台返回的结果
+     */
+    public boolean isLocal() {
+        return mLocal;
+    }
+}
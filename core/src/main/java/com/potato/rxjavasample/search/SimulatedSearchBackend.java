@@ -0,0 +1,163 @@
+package com.potato.rxjavasample.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Cancellable;
+
+/**
+ * 模拟的搜索后台：在固定的词表中查找以关键词开头的词，最多返回maxResults个，
+ * 每次请求耗时在minLatency ~ maxLatency毫秒之间随机。
+ * <p>
+ * 之前的实现在io线程上Thread.sleep，被switchMap取消之后仍然占着线程睡完，并且照样调用onNext，
+ * 连续输入时被占用的线程数会随着按键次数增长。这里用scheduler的延时任务模拟耗时，等待期间不占用线程，
+ * 取消时直接移除还没有执行的任务，同时统计完成、取消、浪费和进行中的请求数。
+ */
+public class SimulatedSearchBackend implements SearchBackend {
+    private static final List<String> WORDS = Collections.unmodifiableList(Arrays.asList(
+            "android", "android studio", "androidx", "animation", "annotation", "api", "apk", "app bundle",
+            "activity", "adapter", "async", "asynctask", "backpressure", "behaviorsubject", "binder", "buffer",
+            "bundle", "cache", "callback", "combinelatest", "completable", "compositedisposable", "concat",
+            "concatmap", "constraintlayout", "context", "coroutine", "debounce", "defer", "disposable",
+            "distinct", "doonnext", "filter", "flatmap", "flowable", "fragment", "gradle", "gson", "handler",
+            "handlerthread", "interval", "intent", "java", "json", "kotlin", "layout", "lifecycle", "livedata",
+            "looper", "map", "maybe", "merge", "observable", "observeon", "okhttp", "operator", "publishsubject",
+            "recyclerview", "replay", "retrofit", "retry", "retrywhen", "room", "rxandroid", "rxjava",
+            "rxjava2", "sample", "scan", "scheduler", "service", "single", "startwith", "subject", "subscribeon",
+            "switchmap", "take", "takeuntil", "throttle", "timer", "viewmodel", "window", "zip"));
+
+    private final Scheduler mScheduler;
+    private final long mMinLatency;
+    private final long mMaxLatency;
+    private final int mMaxResults;
+    private final Random mRandom = new Random();
+    private final AtomicLong mCompletedCount = new AtomicLong();
+    private final AtomicLong mCancelledCount = new AtomicLong();
+    private final AtomicLong mWastedCount = new AtomicLong();
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private final AtomicInteger mMaxInFlight = new AtomicInteger();
+
+    public SimulatedSearchBackend(Scheduler scheduler, long minLatency, long maxLatency, int maxResults) {
+        mScheduler = scheduler;
+        mMinLatency = minLatency;
+        mMaxLatency = maxLatency;
+        mMaxResults = maxResults;
+    }
+
+    @Override
+    public Observable<List<String>> search(final String query) {
+        return Observable.create(new ObservableOnSubscribe<List<String>>() {
+            @Override
+            public void subscribe(final ObservableEmitter<List<String>> emitter) throws Exception {
+                final AtomicBoolean finished = new AtomicBoolean();
+                onStart();
+                //不占用线程等待，延时结束后才在scheduler上执行一次匹配；被取消时直接移除还没有执行的任务
+                final Disposable work = mScheduler.scheduleDirect(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!finished.compareAndSet(false, true)) {
+                            return;
+                        }
+                        List<String> results = match(query, mMaxResults);
+                        mInFlight.decrementAndGet();
+                        if (emitter.isDisposed()) {
+                            //结果已经算出来了，但是没有人需要
+                            mWastedCount.incrementAndGet();
+                            return;
+                        }
+                        mCompletedCount.incrementAndGet();
+                        emitter.onNext(results);
+                        emitter.onComplete();
+                    }
+                }, nextLatency(), TimeUnit.MILLISECONDS);
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        if (finished.compareAndSet(false, true)) {
+                            mInFlight.decrementAndGet();
+                            mCancelledCount.incrementAndGet();
+                        }
+                        work.dispose();
+                    }
+                });
+            }
+        });
+    }
+
+    public long getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    /**
+     * 还没有完成就被取消（例如被switchMap切换掉）的请求数
+     */
+    public long getCancelledCount() {
+        return mCancelledCount.get();
+    }
+
+    /**
+     * 已经完成了工作，但是结果已经没有订阅者的请求数
+     */
+    public long getWastedCount() {
+        return mWastedCount.get();
+    }
+
+    /**
+     * 正在进行中的请求数，以及出现过的最大值
+     */
+    public int getInFlightCount() {
+        return mInFlight.get();
+    }
+
+    public int getMaxInFlightCount() {
+        return mMaxInFlight.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SimulatedSearchBackend{completed=" + mCompletedCount.get()
+                + ", cancelled=" + mCancelledCount.get()
+                + ", wasted=" + mWastedCount.get()
+                + ", inFlight=" + mInFlight.get()
+                + ", maxInFlight=" + mMaxInFlight.get() + "}";
+    }
+
+    private void onStart() {
+        int inFlight = mInFlight.incrementAndGet();
+        int max;
+        do {
+            max = mMaxInFlight.get();
+        } while (inFlight > max && !mMaxInFlight.compareAndSet(max, inFlight));
+    }
+
+    static List<String> match(String query, int maxResults) {
+        String prefix = query.toLowerCase(Locale.US);
+        List<String> results = new ArrayList<>();
+        for (String word : WORDS) {
+            if (word.startsWith(prefix)) {
+                results.add(word);
+                if (results.size() >= maxResults) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private synchronized long nextLatency() {
+        return mMinLatency + (long) (mRandom.nextDouble() * (mMaxLatency - mMinLatency));
+    }
+}
@@ -0,0 +1,107 @@
+package com.potato.rxjavasample.sensor;
+
+/**
+ * 固定内存的直方图，用于估算分位数
+ * <p>
+ * 把 [low, high) 平均分成bucketCount个桶，只记录每个桶中数据的个数，超出范围的数据分别计入下溢和上溢。
+ * 不管记录了多少数据，占用的内存都只有bucketCount个long；分位数的误差不超过一个桶的宽度（范围内的数据）。
+ * 两个范围和桶数相同的直方图可以直接相加合并，也可以减去之前合并进来的直方图。
+ * 不是线程安全的，由调用方负责同步。
+ */
+public class HistogramSketch {
+    private final double mLow;
+    private final double mHigh;
+    private final double mBucketWidth;
+    private final long[] mCounts;
+    private long mUnderflow;
+    private long mOverflow;
+    private long mTotal;
+
+    public HistogramSketch(double low, double high, int bucketCount) {
+        if (!(high > low) || bucketCount <= 0) {
+            throw new IllegalArgumentException("low=" + low + ", high=" + high + ", bucketCount=" + bucketCount);
+        }
+        mLow = low;
+        mHigh = high;
+        mBucketWidth = (high - low) / bucketCount;
+        mCounts = new long[bucketCount];
+    }
+
+    public void add(double value) {
+        if (value < mLow) {
+            mUnderflow++;
+        } else if (value >= mHigh) {
+            mOverflow++;
+        } else {
+            int index = (int) ((value - mLow) / mBucketWidth);
+            mCounts[Math.min(index, mCounts.length - 1)]++;
+        }
+        mTotal++;
+    }
+
+    public void merge(HistogramSketch other) {
+        checkCompatible(other);
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] += other.mCounts[i];
+        }
+        mUnderflow += other.mUnderflow;
+        mOverflow += other.mOverflow;
+        mTotal += other.mTotal;
+    }
+
+    /**
+     * 减去之前合并进来的other，用于滑动窗口中移出旧的数据；计数都是整数，结果是精确的
+     */
+    public void subtract(HistogramSketch other) {
+        checkCompatible(other);
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] -= other.mCounts[i];
+        }
+        mUnderflow -= other.mUnderflow;
+        mOverflow -= other.mOverflow;
+        mTotal -= other.mTotal;
+    }
+
+    public void reset() {
+        for (int i = 0; i < mCounts.length; i++) {
+            mCounts[i] = 0;
+        }
+        mUnderflow = 0;
+        mOverflow = 0;
+        mTotal = 0;
+    }
+
+    public long getCount() {
+        return mTotal;
+    }
+
+    /**
+     * 估算分位数，quantile取值0 ~ 1，在桶内按线性分布插值。
+     * 没有数据时返回NaN；落在下溢或上溢中时返回low或high。
+     */
+    public double quantile(double quantile) {
+        if (mTotal == 0) {
+            return Double.NaN;
+        }
+        double rank = Math.max(1, Math.ceil(quantile * mTotal));
+        if (rank <= mUnderflow) {
+            return mLow;
+        }
+        long cumulative = mUnderflow;
+        for (int i = 0; i < mCounts.length; i++) {
+            long count = mCounts[i];
+            if (count > 0 && cumulative + count >= rank) {
+                double fraction = (rank - cumulative - 0.5) / count;
+                return mLow + (i + fraction) * mBucketWidth;
+            }
+            cumulative += count;
+        }
+        return mHigh;
+    }
+
+    private void checkCompatible(HistogramSketch other) {
+        if (other.mCounts.length != mCounts.length || other.mLow != mLow || other.mHigh != mHigh) {
+            throw new IllegalArgumentException("只能合并范围和桶数相同的直方图");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.potato.rxjavasample.sensor;
+
+import java.util.Locale;
+
+/**
+ * 滑动窗口的统计结果：基本的统计值加上估算的p50、p95、p99，不可修改
+ */
+public class PercentileStats {
+    private final WindowStats mStats;
+    private final double mP50;
+    private final double mP95;
+    private final double mP99;
+
+    public PercentileStats(WindowStats stats, double p50, double p95, double p99) {
+        mStats = stats;
+        mP50 = p50;
+        mP95 = p95;
+        mP99 = p99;
+    }
+
+    public WindowStats getStats() {
+        return mStats;
+    }
+
+    public double getP50() {
+        return mP50;
+    }
+
+    public double getP95() {
+        return mP95;
+    }
+
+    public double getP99() {
+        return mP99;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "PercentileStats{%s, p50=%.2f, p95=%.2f, p99=%.2f}", mStats, mP50, mP95, mP99);
+    }
+}
@@ -0,0 +1,213 @@
+package com.potato.rxjavasample.sensor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+
+/**
+ * 滑动（跳跃）窗口统计，例如每1秒统计一次过去10秒的数据，同时估算p50、p95、p99
+ * <p>
+ * 窗口被切分成 window / hop 个小格（pane），每个小格有自己的StatsAccumulator和HistogramSketch，
+ * 另外还有一份整个窗口的StatsAccumulator和HistogramSketch：record同时累加到当前的小格和整个窗口中；
+ * 每过一个hop，直接用整个窗口的数据得到结果，再从整个窗口中减去最旧的小格，清空它作为新的当前小格循环使用。
+ * 最小值和最大值不能相减，用两个单调队列记录已经结束的小格中最小值、最大值的候选，每个小格最多进出队列一次。
+ * 不保存原始数据，每次发送的计算量只和直方图的桶数有关（计算分位数要遍历一次桶），和窗口内的数据量以及小格数都无关。
+ * <p>
+ * 内存不是常数：每个小格都有一个完整的直方图，共 (window / hop + 1) * bucketCount 个long，hop不变时随窗口长度线性增长。
+ * 减去移出的小格需要知道它的每个桶，这部分内存省不掉，所以小格数最多MAX_PANES个，超过时构造方法抛出IllegalArgumentException，
+ * 需要更长的窗口时相应加大hop（发送得更稀疏）或者减少桶数（分位数更粗）。
+ * <p>
+ * 个数和直方图都是整数，相减是精确的；总和和方差是浮点数，相减会累积很小的舍入误差，窗口内没有数据时会清零。
+ * <p>
+ * record可以在任意线程调用；窗口的计时在scheduler上进行。
+ */
+public class SlidingWindowAggregator {
+    public static final int MAX_PANES = 120;
+
+    private final long mHopMillis;
+    private final Scheduler mScheduler;
+    private final StatsAccumulator[] mPaneStats;
+    private final HistogramSketch[] mPaneSketches;
+    //整个窗口的数据，最小值和最大值由下面的两个队列维护
+    private final StatsAccumulator mWindowStats = new StatsAccumulator();
+    private final HistogramSketch mWindowSketch;
+    //已经结束的小格的序号，对应的最小值递增、最大值递减，队首就是这些小格中的最小值、最大值
+    private final PaneQueue mMinPanes;
+    private final PaneQueue mMaxPanes;
+    //当前小格的序号，对小格数取余得到数组下标
+    private long mCurrentSequence;
+    private int mCurrentPane;
+    private long mWindowStart;
+
+    /**
+     * @param window      窗口长度
+     * @param hop         每隔多久发送一次，窗口长度会向上取整为hop的整数倍
+     * @param unit        window和hop的单位
+     * @param low         直方图的下限，和high、bucketCount一起决定分位数的精度
+     * @param high        直方图的上限
+     * @param bucketCount 直方图的桶数
+     */
+    public SlidingWindowAggregator(long window, long hop, TimeUnit unit, double low, double high, int bucketCount, Scheduler scheduler) {
+        mHopMillis = unit.toMillis(hop);
+        mScheduler = scheduler;
+        long panes = Math.max(1, (window + hop - 1) / hop);
+        if (panes > MAX_PANES) {
+            throw new IllegalArgumentException("window / hop <= " + MAX_PANES + " required but it was " + panes);
+        }
+        int paneCount = (int) panes;
+        mPaneStats = new StatsAccumulator[paneCount];
+        mPaneSketches = new HistogramSketch[paneCount];
+        for (int i = 0; i < paneCount; i++) {
+            mPaneStats[i] = new StatsAccumulator();
+            mPaneSketches[i] = new HistogramSketch(low, high, bucketCount);
+        }
+        mWindowSketch = new HistogramSketch(low, high, bucketCount);
+        mMinPanes = new PaneQueue(paneCount);
+        mMaxPanes = new PaneQueue(paneCount);
+    }
+
+    public synchronized void record(double value) {
+        mPaneStats[mCurrentPane].add(value);
+        mPaneSketches[mCurrentPane].add(value);
+        mWindowStats.add(value);
+        mWindowSketch.add(value);
+    }
+
+    /**
+     * 每个hop发送一次过去一个窗口的统计结果，订阅时清空所有数据；
+     * 刚开始的几次发送，窗口内的数据还不满一个窗口长度
+     */
+    public Observable<PercentileStats> windows() {
+        return Observable.defer(new Callable<ObservableSource<PercentileStats>>() {
+            @Override
+            public ObservableSource<PercentileStats> call() throws Exception {
+                start();
+                return Observable.interval(mHopMillis, mHopMillis, TimeUnit.MILLISECONDS, mScheduler)
+                        .map(new Function<Long, PercentileStats>() {
+                            @Override
+                            public PercentileStats apply(Long tick) throws Exception {
+                                return advance();
+                            }
+                        });
+            }
+        });
+    }
+
+    private synchronized void start() {
+        for (int i = 0; i < mPaneStats.length; i++) {
+            mPaneStats[i].reset();
+            mPaneSketches[i].reset();
+        }
+        mWindowStats.reset();
+        mWindowSketch.reset();
+        mMinPanes.clear();
+        mMaxPanes.clear();
+        mCurrentSequence = 0;
+        mCurrentPane = 0;
+        mWindowStart = mScheduler.now(TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized PercentileStats advance() {
+        long now = mScheduler.now(TimeUnit.MILLISECONDS);
+        StatsAccumulator current = mPaneStats[mCurrentPane];
+        double min = 0;
+        double max = 0;
+        if (mWindowStats.getCount() > 0) {
+            min = current.getCount() > 0 ? current.getMin() : Double.POSITIVE_INFINITY;
+            max = current.getCount() > 0 ? current.getMax() : Double.NEGATIVE_INFINITY;
+            if (!mMinPanes.isEmpty()) {
+                min = Math.min(min, paneOf(mMinPanes.first()).getMin());
+                max = Math.max(max, paneOf(mMaxPanes.first()).getMax());
+            }
+        }
+        long start = Math.max(mWindowStart, now - mHopMillis * mPaneStats.length);
+        PercentileStats stats = new PercentileStats(mWindowStats.toStats(start, now, min, max),
+                quantile(0.5, min, max), quantile(0.95, min, max), quantile(0.99, min, max));
+
+        //当前小格结束，队尾不可能再成为最小值、最大值的小格出队
+        if (current.getCount() > 0) {
+            while (!mMinPanes.isEmpty() && paneOf(mMinPanes.last()).getMin() >= current.getMin()) {
+                mMinPanes.removeLast();
+            }
+            mMinPanes.addLast(mCurrentSequence);
+            while (!mMaxPanes.isEmpty() && paneOf(mMaxPanes.last()).getMax() <= current.getMax()) {
+                mMaxPanes.removeLast();
+            }
+            mMaxPanes.addLast(mCurrentSequence);
+        }
+        //最旧的小格从窗口中移出，清空后作为新的当前小格
+        mCurrentSequence++;
+        mCurrentPane = (int) (mCurrentSequence % mPaneStats.length);
+        long leaving = mCurrentSequence - mPaneStats.length;
+        if (!mMinPanes.isEmpty() && mMinPanes.first() == leaving) {
+            mMinPanes.removeFirst();
+        }
+        if (!mMaxPanes.isEmpty() && mMaxPanes.first() == leaving) {
+            mMaxPanes.removeFirst();
+        }
+        mWindowStats.subtract(mPaneStats[mCurrentPane]);
+        mWindowSketch.subtract(mPaneSketches[mCurrentPane]);
+        mPaneStats[mCurrentPane].reset();
+        mPaneSketches[mCurrentPane].reset();
+        return stats;
+    }
+
+    private StatsAccumulator paneOf(long sequence) {
+        return mPaneStats[(int) (sequence % mPaneStats.length)];
+    }
+
+    //直方图的结果限制在实际的最小值和最大值之间
+    private double quantile(double quantile, double min, double max) {
+        if (mWindowStats.getCount() == 0) {
+            return 0;
+        }
+        double value = mWindowSketch.quantile(quantile);
+        return Math.max(min, Math.min(max, value));
+    }
+
+    //容量固定的双端队列，保存小格的序号
+    private static class PaneQueue {
+        private final long[] mSequences;
+        private int mHead;
+        private int mSize;
+
+        PaneQueue(int capacity) {
+            mSequences = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return mSize == 0;
+        }
+
+        long first() {
+            return mSequences[mHead];
+        }
+
+        long last() {
+            return mSequences[(mHead + mSize - 1) % mSequences.length];
+        }
+
+        void addLast(long sequence) {
+            mSequences[(mHead + mSize) % mSequences.length] = sequence;
+            mSize++;
+        }
+
+        void removeFirst() {
+            mHead = (mHead + 1) % mSequences.length;
+            mSize--;
+        }
+
+        void removeLast() {
+            mSize--;
+        }
+
+        void clear() {
+            mHead = 0;
+            mSize = 0;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.potato.rxjavasample.sensor;
+
+/**
+ * 增量计算 个数、总和、最小值、最大值、方差，全部保存在基本类型的字段中，add不会分配任何对象
+ * <p>
+ * 方差使用Welford算法，逐个累加时不会像 平方和 - 和的平方 那样损失精度。
+ * 不是线程安全的，由调用方负责同步。
+ */
+public class StatsAccumulator {
+    private long mCount;
+    private double mSum;
+    private double mMin;
+    private double mMax;
+    private double mMean;
+    private double mM2;
+
+    public void add(double value) {
+        if (mCount == 0) {
+            mMin = value;
+            mMax = value;
+        } else {
+            if (value < mMin) {
+                mMin = value;
+            }
+            if (value > mMax) {
+                mMax = value;
+            }
+        }
+        mCount++;
+        mSum += value;
+        double delta = value - mMean;
+        mMean += delta / mCount;
+        mM2 += delta * (value - mMean);
+    }
+
+    /**
+     * 把另一个累加器的数据合并进来（Chan等人的并行方差算法），other不会被修改
+     */
+    public void merge(StatsAccumulator other) {
+        if (other.mCount == 0) {
+            return;
+        }
+        if (mCount == 0) {
+            mCount = other.mCount;
+            mSum = other.mSum;
+            mMin = other.mMin;
+            mMax = other.mMax;
+            mMean = other.mMean;
+            mM2 = other.mM2;
+            return;
+        }
+        long count = mCount + other.mCount;
+        double delta = other.mMean - mMean;
+        mM2 += other.mM2 + delta * delta * mCount * other.mCount / count;
+        mMean += delta * other.mCount / count;
+        mSum += other.mSum;
+        mMin = Math.min(mMin, other.mMin);
+        mMax = Math.max(mMax, other.mMax);
+        mCount = count;
+    }
+
+    /**
+     * 减去之前合并进来的other，是merge的逆运算，用于滑动窗口中移出旧的数据。
+     * 最小值和最大值无法还原，之后getMin、getMax和toStats(long, long)中的最小值、最大值不再可靠，
+     * 需要由调用方单独维护，再通过toStats(long, long, double, double)传入。
+     */
+    public void subtract(StatsAccumulator other) {
+        if (other.mCount == 0) {
+            return;
+        }
+        long count = mCount - other.mCount;
+        if (count <= 0) {
+            reset();
+            return;
+        }
+        double mean = mMean + (mMean - other.mMean) * other.mCount / count;
+        double delta = other.mMean - mean;
+        //浮点误差可能让结果略小于0
+        mM2 = Math.max(0, mM2 - other.mM2 - delta * delta * count * other.mCount / mCount);
+        mMean = mean;
+        mSum -= other.mSum;
+        mCount = count;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public double getMin() {
+        return mMin;
+    }
+
+    public double getMax() {
+        return mMax;
+    }
+
+    public WindowStats toStats(long startTime, long endTime) {
+        return new WindowStats(startTime, endTime, mCount, mSum, mMin, mMax, mCount == 0 ? 0 : mM2 / mCount);
+    }
+
+    public WindowStats toStats(long startTime, long endTime, double min, double max) {
+        return new WindowStats(startTime, endTime, mCount, mSum, min, max, mCount == 0 ? 0 : mM2 / mCount);
+    }
+
+    public void reset() {
+        mCount = 0;
+        mSum = 0;
+        mMin = 0;
+        mMax = 0;
+        mMean = 0;
+        mM2 = 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.potato.rxjavasample.sensor;
+
+import java.util.Locale;
+
+/**
+ * 一个时间窗口内数据的统计结果，不可修改。窗口内没有数据时，所有统计值都为0。
+ */
+public class WindowStats {
+    private final long mStartTime;
+    private final long mEndTime;
+    private final long mCount;
+    private final double mSum;
+    private final double mMin;
+    private final double mMax;
+    private final double mVariance;
+
+    public WindowStats(long startTime, long endTime, long count, double sum, double min, double max, double variance) {
+        mStartTime = startTime;
+        mEndTime = endTime;
+        mCount = count;
+        mSum = sum;
+        mMin = min;
+        mMax = max;
+        mVariance = variance;
+    }
+
+    /**
+     * 窗口的开始和结束时间，毫秒
+     */
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    public long getEndTime() {
+        return mEndTime;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public double getSum() {
+        return mSum;
+    }
+
+    public double getMean() {
+        return mCount == 0 ? 0 : mSum / mCount;
+    }
+
+    public double getMin() {
+        return mMin;
+    }
+
+    public double getMax() {
+        return mMax;
+    }
+
+    /**
+     * 总体方差
+     */
+    public double getVariance() {
+        return mVariance;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(mVariance);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "WindowStats{count=%d, mean=%.2f, min=%.2f, max=%.2f, stdDev=%.2f, duration=%dms}",
+                mCount, getMean(), mMin, mMax, getStandardDeviation(), mEndTime - mStartTime);
+    }
+}
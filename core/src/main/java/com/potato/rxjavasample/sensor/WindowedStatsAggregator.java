@@ -0,0 +1,66 @@
+package com.potato.rxjavasample.sensor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+
+/**
+ * 按固定时间窗口统计数据，代替 PublishSubject<Double>.buffer(time)
+ * <p>
+ * buffer会把每个数据装箱成Double，每个窗口创建一个新的List，下游还要在主线程上遍历List计算平均值，
+ * 采样频率达到kHz时这些开销都不能忽略。这里通过record(double)直接把数据累加到基本类型的字段中，
+ * 窗口结束时只创建一个WindowStats发送给下游，然后清空累加值开始下一个窗口。
+ * <p>
+ * record可以在任意线程调用；窗口的计时在scheduler上进行。
+ */
+public class WindowedStatsAggregator {
+    private final long mWindowMillis;
+    private final Scheduler mScheduler;
+    private final StatsAccumulator mAccumulator = new StatsAccumulator();
+    private long mWindowStart;
+
+    public WindowedStatsAggregator(long window, TimeUnit unit, Scheduler scheduler) {
+        mWindowMillis = unit.toMillis(window);
+        mScheduler = scheduler;
+    }
+
+    public synchronized void record(double value) {
+        mAccumulator.add(value);
+    }
+
+    /**
+     * 每个窗口结束时发送一次这个窗口的统计结果，订阅时开始第一个窗口
+     */
+    public Observable<WindowStats> windows() {
+        return Observable.defer(new Callable<ObservableSource<WindowStats>>() {
+            @Override
+            public ObservableSource<WindowStats> call() throws Exception {
+                startWindow();
+                return Observable.interval(mWindowMillis, mWindowMillis, TimeUnit.MILLISECONDS, mScheduler)
+                        .map(new Function<Long, WindowStats>() {
+                            @Override
+                            public WindowStats apply(Long tick) throws Exception {
+                                return closeWindow();
+                            }
+                        });
+            }
+        });
+    }
+
+    private synchronized void startWindow() {
+        mAccumulator.reset();
+        mWindowStart = mScheduler.now(TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized WindowStats closeWindow() {
+        long now = mScheduler.now(TimeUnit.MILLISECONDS);
+        WindowStats stats = mAccumulator.toStats(mWindowStart, now);
+        mAccumulator.reset();
+        mWindowStart = now;
+        return stats;
+    }
+}
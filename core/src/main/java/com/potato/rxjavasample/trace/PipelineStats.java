@@ -0,0 +1,40 @@
+package com.potato.rxjavasample.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一条命名数据流中所有被统计的阶段，按照组装的先后顺序排列
+ */
+public class PipelineStats {
+    private final String mName;
+    private final List<StageStats> mStages = new ArrayList<>();
+
+    PipelineStats(String name) {
+        mName = name;
+    }
+
+    synchronized StageStats addStage(String operator, StageStats upstream, boolean asyncBoundary) {
+        StageStats stage = new StageStats(mStages.size() + ":" + operator, upstream, asyncBoundary);
+        mStages.add(stage);
+        return stage;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public synchronized List<StageStats> getStages() {
+        return Collections.unmodifiableList(new ArrayList<>(mStages));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(mName).append(':');
+        for (StageStats stage : getStages()) {
+            builder.append("\n  ").append(stage);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,209 @@
+package com.potato.rxjavasample.trace;
+
+import org.reactivestreams.Subscriber;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Function;
+import io.reactivex.internal.fuseable.HasUpstreamObservableSource;
+import io.reactivex.internal.fuseable.HasUpstreamPublisher;
+import io.reactivex.plugins.RxJavaPlugins;
+
+/**
+ * 通过RxJavaPlugins统计命名数据流中每个操作符的onNext速率、自身耗时、observeOn的排队数和线程切换
+ * <p>
+ * 用法：
+ * <pre>
+ * RxTracer.enable();
+ * RxTracer.beginPipeline("weather");
+ * try {
+ *     //组装数据流
+ * } finally {
+ *     RxTracer.endPipeline();
+ * }
+ * Log.d(TAG, RxTracer.getPipeline("weather").toString());
+ * </pre>
+ * 组装（assembly）hook记录在begin和end之间、在同一个线程上创建的Observable和Flowable操作符，
+ * 订阅（subscribe）hook在这些操作符和下游之间插入统计用的Observer/Subscriber。
+ * flatMap、switchMap等在收到数据之后才创建的内部数据流不在统计范围内。
+ * <p>
+ * 没有调用enable时不会安装任何hook，对数据流没有额外的开销；
+ * enable之后，不属于任何命名数据流的操作符只多一次ThreadLocal读取和一次弱引用表的查询。
+ * 被统计的阶段之间不会再做算子融合，统计结果只适合用来比较各阶段的相对开销。
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public final class RxTracer {
+    private static final ThreadLocal<PipelineStats> CURRENT = new ThreadLocal<>();
+    //操作符 -> 统计，操作符不再被引用时自动移除
+    private static final Map<Object, StageStats> STAGES = new WeakHashMap<>();
+    private static final Map<String, PipelineStats> PIPELINES = new LinkedHashMap<>();
+
+    private static volatile boolean sEnabled;
+    private static volatile boolean sHasStages;
+    //enable之前已经设置的hook，统计之前先调用它们，disable时恢复
+    private static Function sPreviousObservableAssembly;
+    private static Function sPreviousFlowableAssembly;
+    private static BiFunction sPreviousObservableSubscribe;
+    private static BiFunction sPreviousFlowableSubscribe;
+
+    private static final Function<Observable, Observable> OBSERVABLE_ASSEMBLY = new Function<Observable, Observable>() {
+        @Override
+        public Observable apply(Observable observable) throws Exception {
+            Function previous = sPreviousObservableAssembly;
+            if (previous != null) {
+                observable = (Observable) previous.apply(observable);
+            }
+            Object upstream = observable instanceof HasUpstreamObservableSource ? ((HasUpstreamObservableSource) observable).source() : null;
+            onAssembly(observable, upstream);
+            return observable;
+        }
+    };
+
+    private static final Function<Flowable, Flowable> FLOWABLE_ASSEMBLY = new Function<Flowable, Flowable>() {
+        @Override
+        public Flowable apply(Flowable flowable) throws Exception {
+            Function previous = sPreviousFlowableAssembly;
+            if (previous != null) {
+                flowable = (Flowable) previous.apply(flowable);
+            }
+            Object upstream = flowable instanceof HasUpstreamPublisher ? ((HasUpstreamPublisher) flowable).source() : null;
+            onAssembly(flowable, upstream);
+            return flowable;
+        }
+    };
+
+    private static final BiFunction<Observable, Observer, Observer> OBSERVABLE_SUBSCRIBE = new BiFunction<Observable, Observer, Observer>() {
+        @Override
+        public Observer apply(Observable observable, Observer observer) throws Exception {
+            BiFunction previous = sPreviousObservableSubscribe;
+            if (previous != null) {
+                observer = (Observer) previous.apply(observable, observer);
+            }
+            StageStats stage = findStage(observable);
+            return stage != null ? new TracingObserver(stage, observer) : observer;
+        }
+    };
+
+    private static final BiFunction<Flowable, Subscriber, Subscriber> FLOWABLE_SUBSCRIBE = new BiFunction<Flowable, Subscriber, Subscriber>() {
+        @Override
+        public Subscriber apply(Flowable flowable, Subscriber subscriber) throws Exception {
+            BiFunction previous = sPreviousFlowableSubscribe;
+            if (previous != null) {
+                subscriber = (Subscriber) previous.apply(flowable, subscriber);
+            }
+            StageStats stage = findStage(flowable);
+            return stage != null ? new TracingSubscriber(stage, subscriber) : subscriber;
+        }
+    };
+
+    private RxTracer() {
+    }
+
+    public static synchronized void enable() {
+        if (sEnabled) {
+            return;
+        }
+        sPreviousObservableAssembly = RxJavaPlugins.getOnObservableAssembly();
+        sPreviousFlowableAssembly = RxJavaPlugins.getOnFlowableAssembly();
+        sPreviousObservableSubscribe = RxJavaPlugins.getOnObservableSubscribe();
+        sPreviousFlowableSubscribe = RxJavaPlugins.getOnFlowableSubscribe();
+        RxJavaPlugins.setOnObservableAssembly((Function) OBSERVABLE_ASSEMBLY);
+        RxJavaPlugins.setOnFlowableAssembly((Function) FLOWABLE_ASSEMBLY);
+        RxJavaPlugins.setOnObservableSubscribe((BiFunction) OBSERVABLE_SUBSCRIBE);
+        RxJavaPlugins.setOnFlowableSubscribe((BiFunction) FLOWABLE_SUBSCRIBE);
+        sEnabled = true;
+    }
+
+    /**
+     * 恢复enable之前的hook，已经订阅的数据流仍然会继续统计，直到取消订阅
+     */
+    public static synchronized void disable() {
+        if (!sEnabled) {
+            return;
+        }
+        sEnabled = false;
+        RxJavaPlugins.setOnObservableAssembly(sPreviousObservableAssembly);
+        RxJavaPlugins.setOnFlowableAssembly(sPreviousFlowableAssembly);
+        RxJavaPlugins.setOnObservableSubscribe(sPreviousObservableSubscribe);
+        RxJavaPlugins.setOnFlowableSubscribe(sPreviousFlowableSubscribe);
+        sPreviousObservableAssembly = null;
+        sPreviousFlowableAssembly = null;
+        sPreviousObservableSubscribe = null;
+        sPreviousFlowableSubscribe = null;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * 之后在当前线程上组装的操作符都统计到name中，同名的数据流再次组装时替换掉之前的统计
+     */
+    public static void beginPipeline(String name) {
+        if (!sEnabled) {
+            return;
+        }
+        PipelineStats pipeline = new PipelineStats(name);
+        synchronized (PIPELINES) {
+            PIPELINES.put(name, pipeline);
+        }
+        CURRENT.set(pipeline);
+    }
+
+    public static void endPipeline() {
+        CURRENT.remove();
+    }
+
+    public static PipelineStats getPipeline(String name) {
+        synchronized (PIPELINES) {
+            return PIPELINES.get(name);
+        }
+    }
+
+    public static List<PipelineStats> getPipelines() {
+        synchronized (PIPELINES) {
+            return Collections.unmodifiableList(new ArrayList<>(PIPELINES.values()));
+        }
+    }
+
+    public static void reset() {
+        synchronized (PIPELINES) {
+            PIPELINES.clear();
+        }
+        synchronized (STAGES) {
+            STAGES.clear();
+            sHasStages = false;
+        }
+    }
+
+    private static void onAssembly(Object operator, Object upstream) {
+        PipelineStats pipeline = CURRENT.get();
+        if (pipeline == null) {
+            return;
+        }
+        String name = operator.getClass().getSimpleName();
+        synchronized (STAGES) {
+            StageStats upstreamStage = upstream != null ? STAGES.get(upstream) : null;
+            STAGES.put(operator, pipeline.addStage(name, upstreamStage, name.contains("ObserveOn")));
+            sHasStages = true;
+        }
+    }
+
+    private static StageStats findStage(Object operator) {
+        if (!sHasStages) {
+            return null;
+        }
+        synchronized (STAGES) {
+            return STAGES.get(operator);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.potato.rxjavasample.trace;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据流中一个操作符（阶段）的统计
+ * <p>
+ * <ul>
+ * <li>count / rate：这个阶段发出onNext的个数和每秒发出的个数；</li>
+ * <li>selfTime：这个操作符自己处理数据的耗时，即上游阶段发出onNext之后，到这个阶段再次发出（或者返回）之前的时间，
+ * 不包括更下游的阶段。数据源没有上游阶段，耗时为0；</li>
+ * <li>consumerTime：只对最后一个阶段统计，发出onNext之后下游订阅者处理的耗时；</li>
+ * <li>hops：不是在上游阶段的onNext中同步发出、而是由scheduler上的任务发出的次数，即数据在这里换了线程；</li>
+ * <li>queueDepth：只对observeOn统计，上游已经发出但还没有从observeOn发出的数据个数的最大值。</li>
+ * </ul>
+ * 同一个阶段被订阅多次（例如retryWhen重订阅）时数据累加，queueDepth为近似值。
+ */
+public class StageStats {
+    private final String mName;
+    private final StageStats mUpstream;
+    private final boolean mAsyncBoundary;
+    private volatile StageStats mDownstream;
+    private volatile StageStats mAsyncDownstream;
+
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSelfNanos = new AtomicLong();
+    private final AtomicLong mMaxSelfNanos = new AtomicLong();
+    private final AtomicLong mConsumerNanos = new AtomicLong();
+    private final AtomicLong mHops = new AtomicLong();
+    private final AtomicLong mMaxQueueDepth = new AtomicLong();
+    private final AtomicLong mFirstNanos = new AtomicLong();
+    private volatile long mLastNanos;
+
+    StageStats(String name, StageStats upstream, boolean asyncBoundary) {
+        mName = name;
+        mUpstream = upstream;
+        mAsyncBoundary = asyncBoundary;
+        if (upstream != null) {
+            upstream.mDownstream = this;
+            if (asyncBoundary) {
+                upstream.mAsyncDownstream = this;
+            }
+        }
+    }
+
+    /**
+     * @param nested 是否在另一个被统计阶段的onNext中同步发出
+     */
+    void onNext(long now, boolean nested) {
+        long count = mCount.incrementAndGet();
+        mFirstNanos.compareAndSet(0, now);
+        mLastNanos = now;
+        if (!nested && mUpstream != null) {
+            mHops.incrementAndGet();
+        }
+        StageStats async = mAsyncDownstream;
+        if (async != null) {
+            updateMax(async.mMaxQueueDepth, count - async.mCount.get());
+        }
+    }
+
+    /**
+     * 这个阶段发出onNext之后、下一个阶段发出之前的耗时，属于下一个阶段的操作符；没有下一个阶段时属于订阅者
+     */
+    void addDownstreamTime(long nanos) {
+        StageStats downstream = mDownstream;
+        if (downstream != null) {
+            downstream.mSelfNanos.addAndGet(nanos);
+            updateMax(downstream.mMaxSelfNanos, nanos);
+        } else {
+            mConsumerNanos.addAndGet(nanos);
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public boolean isAsyncBoundary() {
+        return mAsyncBoundary;
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * 第一次到最后一次onNext之间的平均速率，每秒
+     */
+    public double getRate() {
+        long count = mCount.get();
+        long duration = mLastNanos - mFirstNanos.get();
+        return count > 1 && duration > 0 ? (count - 1) * (double) TimeUnit.SECONDS.toNanos(1) / duration : 0;
+    }
+
+    public long getSelfTime(TimeUnit unit) {
+        return unit.convert(mSelfNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxSelfTime(TimeUnit unit) {
+        return unit.convert(mMaxSelfNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getConsumerTime(TimeUnit unit) {
+        return unit.convert(mConsumerNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getHops() {
+        return mHops.get();
+    }
+
+    public long getMaxQueueDepth() {
+        return mMaxQueueDepth.get();
+    }
+
+    @Override
+    public String toString() {
+        long count = mCount.get();
+        return mName + "{count=" + count
+                + ", rate=" + String.format("%.1f", getRate()) + "/s"
+                + ", self=" + getSelfTime(TimeUnit.MICROSECONDS) + "us"
+                + ", avgSelf=" + (count > 0 ? getSelfTime(TimeUnit.MICROSECONDS) / count : 0) + "us"
+                + ", maxSelf=" + getMaxSelfTime(TimeUnit.MICROSECONDS) + "us"
+                + (mDownstream == null ? ", consumer=" + getConsumerTime(TimeUnit.MICROSECONDS) + "us" : "")
+                + ", hops=" + mHops.get()
+                + (mAsyncBoundary ? ", maxQueue=" + mMaxQueueDepth.get() : "") + "}";
+    }
+}
@@ -0,0 +1,44 @@
+package com.potato.rxjavasample.trace;
+
+/**
+ * 每个线程上正在执行的onNext嵌套，用来从总耗时中扣掉下游阶段的耗时，得到每个阶段自己的耗时
+ */
+final class TraceStack {
+    private static final ThreadLocal<TraceStack> STACK = new ThreadLocal<TraceStack>() {
+        @Override
+        protected TraceStack initialValue() {
+            return new TraceStack();
+        }
+    };
+
+    private long[] mChildNanos = new long[16];
+    private int mDepth;
+
+    static TraceStack get() {
+        return STACK.get();
+    }
+
+    boolean isEmpty() {
+        return mDepth == 0;
+    }
+
+    void push() {
+        if (mDepth == mChildNanos.length) {
+            long[] grown = new long[mDepth * 2];
+            System.arraycopy(mChildNanos, 0, grown, 0, mDepth);
+            mChildNanos = grown;
+        }
+        mChildNanos[mDepth++] = 0;
+    }
+
+    /**
+     * 结束当前这一层，返回这一层自己的耗时，并把总耗时计入上一层的下游耗时中
+     */
+    long pop(long elapsedNanos) {
+        long child = mChildNanos[--mDepth];
+        if (mDepth > 0) {
+            mChildNanos[mDepth - 1] += elapsedNanos;
+        }
+        return elapsedNanos - child;
+    }
+}
@@ -0,0 +1,60 @@
+package com.potato.rxjavasample.trace;
+
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * 包在被统计阶段和它的下游之间，统计这个阶段发出的onNext
+ * <p>
+ * 自己实现Disposable而不是直接把上游的Disposable交给下游，这样下游不会和上游做算子融合，
+ * 所有数据都会经过onNext。
+ */
+final class TracingObserver<T> implements Observer<T>, Disposable {
+    private final StageStats mStage;
+    private final Observer<? super T> mActual;
+    private Disposable mUpstream;
+
+    TracingObserver(StageStats stage, Observer<? super T> actual) {
+        mStage = stage;
+        mActual = actual;
+    }
+
+    @Override
+    public void onSubscribe(Disposable d) {
+        mUpstream = d;
+        mActual.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(T t) {
+        TraceStack stack = TraceStack.get();
+        long start = System.nanoTime();
+        mStage.onNext(start, !stack.isEmpty());
+        stack.push();
+        try {
+            mActual.onNext(t);
+        } finally {
+            mStage.addDownstreamTime(stack.pop(System.nanoTime() - start));
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        mActual.onError(e);
+    }
+
+    @Override
+    public void onComplete() {
+        mActual.onComplete();
+    }
+
+    @Override
+    public void dispose() {
+        mUpstream.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return mUpstream.isDisposed();
+    }
+}
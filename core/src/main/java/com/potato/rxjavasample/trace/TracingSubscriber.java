@@ -0,0 +1,59 @@
+package com.potato.rxjavasample.trace;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.reactivex.FlowableSubscriber;
+
+/**
+ * TracingObserver对应的Flowable版本，request和cancel直接转发给上游
+ */
+final class TracingSubscriber<T> implements FlowableSubscriber<T>, Subscription {
+    private final StageStats mStage;
+    private final Subscriber<? super T> mActual;
+    private Subscription mUpstream;
+
+    TracingSubscriber(StageStats stage, Subscriber<? super T> actual) {
+        mStage = stage;
+        mActual = actual;
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        mUpstream = s;
+        mActual.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(T t) {
+        TraceStack stack = TraceStack.get();
+        long start = System.nanoTime();
+        mStage.onNext(start, !stack.isEmpty());
+        stack.push();
+        try {
+            mActual.onNext(t);
+        } finally {
+            mStage.addDownstreamTime(stack.pop(System.nanoTime() - start));
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        mActual.onError(t);
+    }
+
+    @Override
+    public void onComplete() {
+        mActual.onComplete();
+    }
+
+    @Override
+    public void request(long n) {
+        mUpstream.request(n);
+    }
+
+    @Override
+    public void cancel() {
+        mUpstream.cancel();
+    }
+}
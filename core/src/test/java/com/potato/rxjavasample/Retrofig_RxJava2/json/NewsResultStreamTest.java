@@ -0,0 +1,24 @@
+package com.potato.rxjavasample.Retrofig_RxJava2.json;
+
+import com.potato.rxjavasample.Retrofig_RxJava2.entity.NewsResultEntity;
+
+import org.junit.Test;
+
+import io.reactivex.observers.TestObserver;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+
+public class NewsResultStreamTest {
+
+    @Test
+    public void nullResultsAreSkipped() {
+        String json = "{\"error\":false,\"results\":[{\"_id\":\"a\",\"desc\":\"first\"},null,{\"_id\":\"b\",\"desc\":\"second\"}]}";
+
+        TestObserver<NewsResultEntity> observer = NewsResultStream.parse(ResponseBody.create(null, json)).test();
+
+        observer.assertNoErrors().assertComplete().assertValueCount(2);
+        assertEquals("a", observer.values().get(0).get_id());
+        assertEquals("b", observer.values().get(1).get_id());
+    }
+}
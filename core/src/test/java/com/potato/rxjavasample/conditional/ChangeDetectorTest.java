@@ -0,0 +1,259 @@
+package com.potato.rxjavasample.conditional;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+import com.jakewharton.retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import com.potato.rxjavasample.Retrofig_RxJava2.json.EntityTypeAdapterFactory;
+import com.potato.rxjavasample.WeatherEnity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ChangeDetectorTest {
+    private static final String BEIJING = "{\"weatherinfo\":{\"city\":\"北京\",\"temp\":\"10\",\"WD\":\"东风\",\"WS\":\"2级\"}}";
+    private static final String BEIJING_WARMER = "{\"weatherinfo\":{\"city\":\"北京\",\"temp\":\"12\",\"WD\":\"东风\",\"WS\":\"2级\"}}";
+    private static final String TIANJIN = "{\"weatherinfo\":{\"city\":\"天津\",\"temp\":\"11\",\"WD\":\"北风\",\"WS\":\"3级\"}}";
+
+    interface Api {
+        @Headers(ConditionalRequestInterceptor.ENABLE_HEADER)
+        @GET("weather/{city}")
+        Observable<Response<ResponseBody>> conditional(@Path("city") String city);
+
+        @GET("weather/{city}")
+        Observable<Response<ResponseBody>> plain(@Path("city") String city);
+    }
+
+    private MockWebServer mServer;
+    private ConditionalRequestInterceptor mInterceptor;
+    private Api mApi;
+    private TestScheduler mClock;
+    private int mDecodeCount;
+    private TypeAdapter<WeatherEnity> mAdapter;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mInterceptor = new ConditionalRequestInterceptor(16);
+        mApi = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .client(new OkHttpClient.Builder().addInterceptor(mInterceptor).build())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build()
+                .create(Api.class);
+        mClock = new TestScheduler();
+        final TypeAdapter<WeatherEnity> delegate = EntityTypeAdapterFactory.createGson().getAdapter(WeatherEnity.class);
+        mAdapter = new TypeAdapter<WeatherEnity>() {
+            @Override
+            public void write(JsonWriter out, WeatherEnity value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            public WeatherEnity read(JsonReader in) throws IOException {
+                mDecodeCount++;
+                return delegate.read(in);
+            }
+        };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    private MockResponse ok(String body, String etag) {
+        MockResponse response = new MockResponse().setBody(body);
+        return etag == null ? response : response.setHeader("ETag", etag);
+    }
+
+    private TestObserver<WeatherEnity> fetch(ChangeDetector<WeatherEnity> detector, String city) {
+        return mApi.conditional(city).compose(detector).test();
+    }
+
+    @Test
+    public void notModifiedSkipsDownloadAndDecode() throws Exception {
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.skipUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        fetch(detector, "beijing").assertValueCount(1).assertComplete();
+        fetch(detector, "beijing").assertNoValues().assertComplete();
+
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+        RecordedRequest second = mServer.takeRequest();
+        assertEquals("\"a\"", second.getHeader("If-None-Match"));
+        assertNull(second.getHeader(ConditionalRequestInterceptor.HEADER_NAME));
+        assertEquals(1, mDecodeCount);
+        ChangeStats stats = detector.getStats();
+        assertEquals(1, stats.getNotModified());
+        assertEquals(BEIJING.getBytes("UTF-8").length, stats.getSavedBytes());
+        assertEquals(1, mInterceptor.getNotModifiedCount());
+    }
+
+    @Test
+    public void lastModifiedIsSentBack() throws Exception {
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.skipUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(ok(BEIJING, null).setHeader("Last-Modified", "Sat, 17 Oct 2026 08:00:00 GMT"));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        fetch(detector, "beijing");
+        fetch(detector, "beijing");
+
+        mServer.takeRequest();
+        assertEquals("Sat, 17 Oct 2026 08:00:00 GMT", mServer.takeRequest().getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void sameBodyIsNotDecodedAgain() {
+        //服务端不支持条件请求，每次都返回完整的响应体
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.skipUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(ok(BEIJING, null));
+        mServer.enqueue(ok(BEIJING, null));
+        mServer.enqueue(ok(BEIJING_WARMER, null));
+
+        fetch(detector, "beijing").assertValueCount(1);
+        fetch(detector, "beijing").assertNoValues();
+        TestObserver<WeatherEnity> changed = fetch(detector, "beijing");
+
+        changed.assertValueCount(1);
+        assertEquals("12", changed.values().get(0).getWeatherinfo().getTemp());
+        assertEquals(2, mDecodeCount);
+        assertEquals(1, detector.getStats().getUnchanged());
+    }
+
+    @Test
+    public void switchingUrlEmitsCachedResult() {
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.skipUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        mServer.enqueue(ok(TIANJIN, "\"b\""));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        TestObserver<WeatherEnity> first = fetch(detector, "beijing");
+        fetch(detector, "tianjin").assertValueCount(1);
+        //界面现在展示的是天津，北京虽然没有变化也要发送
+        TestObserver<WeatherEnity> back = fetch(detector, "beijing");
+
+        back.assertValueCount(1);
+        assertSame(first.values().get(0), back.values().get(0));
+        assertEquals(2, mDecodeCount);
+    }
+
+    @Test
+    public void reuseUnchangedAlwaysEmitsSameInstance() {
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.reuseUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        TestObserver<WeatherEnity> first = fetch(detector, "beijing");
+        TestObserver<WeatherEnity> second = fetch(detector, "beijing");
+
+        second.assertValueCount(1);
+        assertSame(first.values().get(0), second.values().get(0));
+        assertEquals(1, mDecodeCount);
+    }
+
+    @Test
+    public void newDetectorRefetchesWhenInterceptorRemembersUrl() throws Exception {
+        //例如界面重建：interceptor是共享的，还记得ETag，新的ChangeDetector却没有结果
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        fetch(ChangeDetector.reuseUnchanged(mAdapter, mInterceptor, 16, mClock), "beijing").assertValueCount(1);
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.reuseUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        TestObserver<WeatherEnity> refetched = fetch(detector, "beijing");
+        TestObserver<WeatherEnity> cached = fetch(detector, "beijing");
+
+        refetched.assertValueCount(1).assertComplete();
+        cached.assertValueCount(1).assertComplete();
+        assertSame(refetched.values().get(0), cached.values().get(0));
+        mServer.takeRequest();
+        assertEquals("\"a\"", mServer.takeRequest().getHeader("If-None-Match"));
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"a\"", mServer.takeRequest().getHeader("If-None-Match"));
+        assertEquals(1, detector.getMissingCount());
+    }
+
+    @Test
+    public void evictedResultIsNotRequestedConditionally() throws Exception {
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.reuseUnchanged(mAdapter, mInterceptor, 1, mClock);
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        mServer.enqueue(ok(TIANJIN, "\"b\""));
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+
+        fetch(detector, "beijing");
+        //只能记住一个url，北京的结果被淘汰
+        fetch(detector, "tianjin");
+        fetch(detector, "beijing").assertValueCount(1);
+
+        mServer.takeRequest();
+        mServer.takeRequest();
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+        assertEquals(0, detector.getMissingCount());
+    }
+
+    @Test
+    public void plainRequestsAreNotConditional() throws Exception {
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+
+        mApi.plain("beijing").test().assertValueCount(1);
+        mApi.plain("beijing").test().assertValueCount(1);
+
+        mServer.takeRequest();
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void serverErrorIsHttpException() {
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.skipUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+
+        fetch(detector, "beijing").assertError(HttpException.class);
+    }
+
+    @Test
+    public void savingsAreReportedPerHour() {
+        ChangeDetector<WeatherEnity> detector = ChangeDetector.skipUnchanged(mAdapter, mInterceptor, 16, mClock);
+        mServer.enqueue(ok(BEIJING, "\"a\""));
+        fetch(detector, "beijing");
+        //之后每分钟轮询一次，半小时内都没有变化
+        for (int i = 0; i < 30; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(304));
+            mClock.advanceTimeBy(1, TimeUnit.MINUTES);
+            fetch(detector, "beijing");
+        }
+
+        ChangeStats stats = detector.getStats();
+        long bodyBytes = stats.getReceivedBytes();
+        assertEquals(30, stats.getNotModified());
+        assertEquals(30 * bodyBytes, stats.getSavedBytes());
+        assertEquals(60 * bodyBytes, stats.getSavedBytesPerHour());
+    }
+}
@@ -0,0 +1,252 @@
+package com.potato.rxjavasample.download;
+
+import com.potato.rxjavasample.schedulers.TestSchedulerProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+import io.reactivex.observers.TestObserver;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用MockWebServer代替真实的下载服务器；io调度器是TestScheduler，triggerActions时在当前线程上完成整个下载
+ */
+public class DownloadEngineTest {
+    private static final int SIZE = 200 * 1024;
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private TestSchedulerProvider mSchedulers;
+    private DownloadEngine mEngine;
+    private byte[] mContent;
+    private File mTarget;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mSchedulers = new TestSchedulerProvider();
+        //缓冲区比文件小很多，保证要分多次写入
+        mEngine = new DownloadEngine(new OkHttpClient(), mSchedulers, 100, TimeUnit.MILLISECONDS, 8 * 1024);
+        mContent = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            mContent[i] = (byte) (i * 31);
+        }
+        mTarget = new File(mFolder.getRoot(), "file.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    private TestObserver<DownloadProgress> download() {
+        TestObserver<DownloadProgress> observer = mEngine.download(mServer.url("/file.bin").toString(), mTarget).test();
+        mSchedulers.triggerActions();
+        return observer;
+    }
+
+    private MockResponse full() {
+        return new MockResponse().setHeader("ETag", ETAG).setBody(new Buffer().write(mContent));
+    }
+
+    private MockResponse partial(int from) {
+        return new MockResponse().setResponseCode(206)
+                .setHeader("ETag", ETAG)
+                .setHeader("Content-Range", "bytes " + from + "-" + (SIZE - 1) + "/" + SIZE)
+                .setBody(new Buffer().write(Arrays.copyOfRange(mContent, from, SIZE)));
+    }
+
+    private void writePart(byte[] content) throws IOException {
+        FileOutputStream output = new FileOutputStream(DownloadEngine.getPartFile(mTarget));
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+    }
+
+    private byte[] readTarget() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(mTarget, "r");
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            return bytes;
+        } finally {
+            file.close();
+        }
+    }
+
+    private Action countStops(final AtomicInteger stops) {
+        return new Action() {
+            @Override
+            public void run() throws Exception {
+                stops.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void onStoppedIsCalledOnceAfterFinishing() throws Exception {
+        mServer.enqueue(full());
+        AtomicInteger stops = new AtomicInteger();
+
+        TestObserver<DownloadProgress> observer = mEngine.download(mServer.url("/file.bin").toString(), mTarget, countStops(stops)).test();
+        assertEquals(0, stops.get());
+        mSchedulers.triggerActions();
+
+        observer.assertComplete();
+        assertEquals(1, stops.get());
+    }
+
+    @Test
+    public void onStoppedIsCalledWhenCancelledBeforeStarting() throws Exception {
+        AtomicInteger stops = new AtomicInteger();
+
+        TestObserver<DownloadProgress> observer = mEngine.download(mServer.url("/file.bin").toString(), mTarget, countStops(stops)).test();
+        observer.dispose();
+        assertEquals(1, stops.get());
+        mSchedulers.triggerActions();
+
+        assertEquals(1, stops.get());
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void downloadsWholeFile() throws Exception {
+        mServer.enqueue(full());
+
+        TestObserver<DownloadProgress> observer = download();
+
+        observer.assertComplete();
+        //时间没有前进，只有开始和结束两次进度
+        List<DownloadProgress> progress = observer.values();
+        assertEquals(2, progress.size());
+        assertEquals(0, progress.get(0).getDownloadedBytes());
+        assertTrue(progress.get(1).isDone());
+        assertEquals(SIZE, progress.get(1).getDownloadedBytes());
+        assertEquals(SIZE, progress.get(1).getTotalBytes());
+        assertArrayEquals(mContent, readTarget());
+        assertFalse(DownloadEngine.getPartFile(mTarget).exists());
+        assertNull(mServer.takeRequest().getHeader("Range"));
+    }
+
+    @Test
+    public void resumesFromPartialFileAfterDisconnect() throws Exception {
+        mServer.enqueue(full().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+        download().assertError(IOException.class);
+
+        File part = DownloadEngine.getPartFile(mTarget);
+        long written = part.length();
+        assertTrue(written > 0 && written < SIZE);
+        assertFalse(mTarget.exists());
+
+        mServer.takeRequest();
+        mServer.enqueue(partial((int) written));
+        TestObserver<DownloadProgress> observer = download();
+
+        observer.assertComplete();
+        assertEquals(written, observer.values().get(0).getResumedFrom());
+        assertArrayEquals(mContent, readTarget());
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("bytes=" + written + "-", request.getHeader("Range"));
+        assertEquals(ETAG, request.getHeader("If-Range"));
+    }
+
+    @Test
+    public void restartsWhenServerIgnoresRange() throws Exception {
+        //本地已有的内容和服务端不一致，服务端返回200时不能追加到后面
+        byte[] stale = new byte[SIZE / 2];
+        Arrays.fill(stale, (byte) 7);
+        writePart(stale);
+        mServer.enqueue(full());
+
+        TestObserver<DownloadProgress> observer = download();
+
+        observer.assertComplete();
+        assertEquals(0, observer.values().get(0).getResumedFrom());
+        assertArrayEquals(mContent, readTarget());
+        assertEquals("bytes=" + stale.length + "-", mServer.takeRequest().getHeader("Range"));
+    }
+
+    @Test
+    public void completesWhenPartialFileIsAlreadyWhole() throws Exception {
+        writePart(mContent);
+        mServer.enqueue(new MockResponse().setResponseCode(416).setHeader("Content-Range", "bytes */" + SIZE));
+
+        TestObserver<DownloadProgress> observer = download();
+
+        observer.assertComplete();
+        observer.assertValueCount(1);
+        assertTrue(observer.values().get(0).isDone());
+        assertArrayEquals(mContent, readTarget());
+    }
+
+    @Test
+    public void progressIsSampledByTime() throws Exception {
+        //每次读取时钟前进30ms，模拟慢速网络
+        mSchedulers = new TestSchedulerProvider() {
+            private final Scheduler mClock = new Scheduler() {
+                private long mNow;
+
+                @Override
+                public Worker createWorker() {
+                    return getScheduler().createWorker();
+                }
+
+                @Override
+                public long now(TimeUnit unit) {
+                    mNow += 30;
+                    return unit.convert(mNow, TimeUnit.MILLISECONDS);
+                }
+            };
+
+            @Override
+            public Scheduler computation() {
+                return mClock;
+            }
+        };
+        mEngine = new DownloadEngine(new OkHttpClient(), mSchedulers, 100, TimeUnit.MILLISECONDS, 8 * 1024);
+        mServer.enqueue(full());
+
+        TestObserver<DownloadProgress> observer = download();
+
+        observer.assertComplete();
+        List<DownloadProgress> progress = observer.values();
+        //至少要读SIZE / 8K = 25次，大约每读4次才发送一次进度
+        assertTrue(progress.size() > 2);
+        assertTrue(progress.size() < SIZE / (8 * 1024));
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i).getDownloadedBytes() >= progress.get(i - 1).getDownloadedBytes());
+        }
+    }
+}
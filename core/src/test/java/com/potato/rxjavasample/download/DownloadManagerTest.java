@@ -0,0 +1,210 @@
+package com.potato.rxjavasample.download;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Action;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DownloadManagerTest {
+    private static final String URL = "http://example.com/file";
+
+    //target名字 -> 下载进度，由测试控制什么时候完成
+    private final Map<String, PublishSubject<DownloadProgress>> mDownloads = new HashMap<>();
+    private final List<String> mStarted = new ArrayList<>();
+    private final List<String> mDisposed = new ArrayList<>();
+    //target名字 -> 下载线程停止时的回调，由测试控制取消后什么时候真正停止
+    private final Map<String, Action> mStops = new HashMap<>();
+    private DownloadManager mManager;
+
+    @Before
+    public void setUp() {
+        mManager = new DownloadManager(new Downloader() {
+            @Override
+            public Observable<DownloadProgress> download(String url, final File target, Action onStopped) {
+                mStarted.add(target.getName());
+                mStops.put(target.getName(), onStopped);
+                PublishSubject<DownloadProgress> download = PublishSubject.create();
+                mDownloads.put(target.getName(), download);
+                return download.doOnDispose(new Action() {
+                    @Override
+                    public void run() throws Exception {
+                        mDisposed.add(target.getName());
+                    }
+                });
+            }
+        }, 2);
+    }
+
+    private static File file(String name) {
+        return new File("/tmp/downloads", name);
+    }
+
+    private void complete(String name) throws Exception {
+        PublishSubject<DownloadProgress> download = mDownloads.get(name);
+        download.onNext(new DownloadProgress(100, 100, 0, true));
+        download.onComplete();
+        stop(name);
+    }
+
+    //下载线程停止
+    private void stop(String name) throws Exception {
+        mStops.remove(name).run();
+    }
+
+    @Test
+    public void runsAtMostMaxConcurrent() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mManager.enqueue(URL, file("f" + i));
+        }
+
+        assertEquals(2, mManager.getRunningCount());
+        assertEquals(3, mManager.getQueuedCount());
+        assertEquals(2, mStarted.size());
+
+        complete("f0");
+        assertEquals(3, mStarted.size());
+        assertEquals(2, mManager.getRunningCount());
+
+        complete("f1");
+        complete("f2");
+        complete("f3");
+        complete("f4");
+        assertEquals(0, mManager.getRunningCount());
+        assertEquals(0, mManager.getQueuedCount());
+    }
+
+    @Test
+    public void higherPriorityStartsFirst() throws Exception {
+        mManager.enqueue(URL, file("a"));
+        mManager.enqueue(URL, file("b"));
+        mManager.enqueue(URL, file("low"), DownloadManager.PRIORITY_LOW);
+        mManager.enqueue(URL, file("normal"));
+        mManager.enqueue(URL, file("high"), DownloadManager.PRIORITY_HIGH);
+
+        complete("a");
+        complete("b");
+        complete("high");
+
+        assertEquals(5, mStarted.size());
+        assertEquals("high", mStarted.get(2));
+        assertEquals("normal", mStarted.get(3));
+        assertEquals("low", mStarted.get(4));
+    }
+
+    @Test
+    public void duplicateTargetSharesTask() throws Exception {
+        mManager.enqueue(URL, file("a"));
+        mManager.enqueue(URL, file("b"));
+        mManager.enqueue(URL, file("c"));
+        mManager.enqueue(URL, file("d"));
+        //排队中的c被重复提交并提高了优先级，会排到d前面
+        TestObserver<DownloadState> first = mManager.enqueue(URL, file("c")).test();
+        TestObserver<DownloadState> second = mManager.enqueue(URL, file("c"), DownloadManager.PRIORITY_HIGH).test();
+        mManager.enqueue(URL, file("a")).test();
+
+        assertEquals(2, mStarted.size());
+        assertEquals(2, mManager.getQueuedCount());
+
+        complete("a");
+        assertEquals("c", mStarted.get(2));
+        complete("c");
+
+        first.assertComplete();
+        second.assertComplete();
+        assertEquals(DownloadState.Status.COMPLETED, first.values().get(first.valueCount() - 1).getStatus());
+        assertSame(first.values().get(first.valueCount() - 1), second.values().get(second.valueCount() - 1));
+    }
+
+    @Test
+    public void statesFollowLifecycle() throws Exception {
+        mManager.enqueue(URL, file("a"));
+        mManager.enqueue(URL, file("b"));
+        TestObserver<DownloadState> observer = mManager.enqueue(URL, file("c")).test();
+
+        complete("a");
+        mDownloads.get("c").onNext(new DownloadProgress(50, 100, 0, false));
+        complete("c");
+
+        observer.assertComplete();
+        List<DownloadState> states = observer.values();
+        assertEquals(DownloadState.Status.QUEUED, states.get(0).getStatus());
+        assertEquals(DownloadState.Status.RUNNING, states.get(1).getStatus());
+        assertEquals(50, states.get(2).getProgress().getDownloadedBytes());
+        assertEquals(DownloadState.Status.COMPLETED, states.get(states.size() - 1).getStatus());
+    }
+
+    @Test
+    public void failureFreesSlot() throws Exception {
+        TestObserver<DownloadState> observer = mManager.enqueue(URL, file("a")).test();
+        mManager.enqueue(URL, file("b"));
+        mManager.enqueue(URL, file("c"));
+
+        mDownloads.get("a").onError(new RuntimeException("HTTP 500"));
+        stop("a");
+
+        DownloadState last = observer.values().get(observer.valueCount() - 1);
+        assertEquals(DownloadState.Status.FAILED, last.getStatus());
+        assertEquals("HTTP 500", last.getError().getMessage());
+        assertEquals(3, mStarted.size());
+    }
+
+    @Test
+    public void cancelStopsRunningAndQueued() throws Exception {
+        TestObserver<DownloadState> running = mManager.enqueue(URL, file("a")).test();
+        mManager.enqueue(URL, file("b"));
+        TestObserver<DownloadState> queued = mManager.enqueue(URL, file("c")).test();
+        mManager.enqueue(URL, file("d"));
+
+        mManager.cancel(file("c"));
+        queued.assertComplete();
+        assertEquals(DownloadState.Status.CANCELLED, queued.values().get(queued.valueCount() - 1).getStatus());
+
+        mManager.cancel(file("a"));
+        running.assertComplete();
+        assertTrue(mDisposed.contains("a"));
+        //a的下载线程停止之后名额才给d，c已经取消不会开始
+        assertEquals(2, mStarted.size());
+        stop("a");
+        assertEquals("d", mStarted.get(2));
+        assertEquals(3, mStarted.size());
+
+        mManager.cancelAll();
+        assertTrue(mDisposed.contains("b"));
+        assertTrue(mDisposed.contains("d"));
+        assertEquals(2, mManager.getRunningCount());
+        stop("b");
+        stop("d");
+        assertEquals(0, mManager.getRunningCount());
+    }
+
+    @Test
+    public void sameTargetWaitsForCancelledDownloadToStop() throws Exception {
+        mManager.enqueue(URL, file("a"));
+        mManager.enqueue(URL, file("b"));
+        mManager.cancel(file("a"));
+
+        //a的下载线程还在写文件，重新提交的a是一个新任务，但要等它停下来
+        TestObserver<DownloadState> again = mManager.enqueue(URL, file("a")).test();
+        complete("b");
+        assertEquals(2, mStarted.size());
+        assertEquals(DownloadState.Status.QUEUED, again.values().get(again.valueCount() - 1).getStatus());
+
+        stop("a");
+        assertEquals(3, mStarted.size());
+        assertEquals("a", mStarted.get(2));
+        assertEquals(DownloadState.Status.RUNNING, again.values().get(again.valueCount() - 1).getStatus());
+    }
+}
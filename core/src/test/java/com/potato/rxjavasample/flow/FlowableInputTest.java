@@ -0,0 +1,95 @@
+package com.potato.rxjavasample.flow;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+
+import java.util.Arrays;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Function;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 模拟NetStatusAndRetryActivity：同一时间只处理一个值，处理期间连续收到20个新值
+ */
+public class FlowableInputTest {
+    private static final int COUNT = 20;
+
+    //一个值的处理在mBusy发出onComplete之前不会结束
+    private PublishProcessor<Long> mBusy;
+    private Function<Long, Publisher<Long>> mSlowWork;
+
+    @Before
+    public void setUp() {
+        mSlowWork = new Function<Long, Publisher<Long>>() {
+            @Override
+            public Publisher<Long> apply(Long value) throws Exception {
+                mBusy = PublishProcessor.create();
+                return mBusy.startWith(value);
+            }
+        };
+    }
+
+    private void pushWhileBusy(FlowableInput<Long> input) {
+        for (long i = 1; i <= COUNT; i++) {
+            input.onNext(i);
+        }
+    }
+
+    private void finishAll(TestSubscriber<Long> subscriber) {
+        //每处理完一个，下游才会请求下一个
+        for (int i = 0; i < COUNT && mBusy != null && !subscriber.isTerminated(); i++) {
+            PublishProcessor<Long> busy = mBusy;
+            mBusy = null;
+            busy.onComplete();
+        }
+    }
+
+    @Test
+    public void latestDropsWhileConsumerIsBusy() {
+        FlowableInput<Long> input = FlowableInput.latest();
+        TestSubscriber<Long> subscriber = input.flowable().flatMap(mSlowWork, 1).test();
+
+        pushWhileBusy(input);
+        assertEquals(COUNT - 2, input.getDroppedCount());
+        assertEquals(1, input.getQueuedCount());
+        finishAll(subscriber);
+
+        subscriber.assertValues(1L, (long) COUNT);
+        assertEquals(2, input.getDeliveredCount());
+    }
+
+    @Test
+    public void mergeWithPrefetchOneStillDrops() {
+        FlowableInput<Long> city = FlowableInput.latest();
+        FlowableInput<Long> net = FlowableInput.latest();
+        TestSubscriber<Long> subscriber = Flowable.merge(Arrays.asList(city.flowable(), net.flowable()), 2, 1)
+                .flatMap(mSlowWork, 1).test();
+
+        pushWhileBusy(city);
+        finishAll(subscriber);
+
+        //第2个已经在merge中排队，之后只保留最新的
+        subscriber.assertValues(1L, 2L, (long) COUNT);
+        assertEquals(COUNT - 3, city.getDroppedCount());
+        assertEquals(0, city.getQueuedCount());
+    }
+
+    @Test
+    public void defaultMergePrefetchQueuesEverything() {
+        FlowableInput<Long> city = FlowableInput.latest();
+        FlowableInput<Long> net = FlowableInput.latest();
+        TestSubscriber<Long> subscriber = Flowable.merge(city.flowable(), net.flowable()).flatMap(mSlowWork, 1).test();
+
+        pushWhileBusy(city);
+        finishAll(subscriber);
+
+        //merge预取了128个，所有旧的值都被依次处理
+        subscriber.assertValueCount(COUNT);
+        assertEquals(0, city.getDroppedCount());
+    }
+}
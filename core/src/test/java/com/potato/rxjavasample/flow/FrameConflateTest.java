@@ -0,0 +1,97 @@
+package com.potato.rxjavasample.flow;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FrameConflateTest {
+    //手动触发的帧
+    private static class ManualFrameClock implements FrameClock {
+        private final List<Runnable> mPending = new ArrayList<>();
+
+        @Override
+        public void postFrameCallback(Runnable action) {
+            mPending.add(action);
+        }
+
+        int pendingCount() {
+            return mPending.size();
+        }
+
+        void doFrame() {
+            List<Runnable> actions = new ArrayList<>(mPending);
+            mPending.clear();
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    }
+
+    private ManualFrameClock mClock;
+    private FrameConflate<Integer> mConflate;
+    private PublishSubject<Integer> mProgress;
+    private TestObserver<Integer> mObserver;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualFrameClock();
+        mConflate = new FrameConflate<>(mClock);
+        mProgress = PublishSubject.create();
+        mObserver = mProgress.compose(mConflate).test();
+    }
+
+    @Test
+    public void deliversLatestOncePerFrame() {
+        for (int i = 0; i < 100; i++) {
+            mProgress.onNext(i);
+        }
+        assertEquals(1, mClock.pendingCount());
+        mObserver.assertNoValues();
+
+        mClock.doFrame();
+        mObserver.assertValues(99);
+        assertEquals(100, mConflate.getReceivedCount());
+        assertEquals(1, mConflate.getDeliveredCount());
+
+        //没有新的值时不再请求帧
+        assertEquals(0, mClock.pendingCount());
+    }
+
+    @Test
+    public void completeKeepsFinalValue() {
+        mProgress.onNext(1);
+        mClock.doFrame();
+        mProgress.onNext(2);
+        mProgress.onNext(3);
+        mProgress.onComplete();
+        mObserver.assertValues(1).assertNotComplete();
+
+        mClock.doFrame();
+        mObserver.assertResult(1, 3);
+    }
+
+    @Test
+    public void errorKeepsFinalValue() {
+        mProgress.onNext(1);
+        mProgress.onError(new IllegalStateException("download failed"));
+        mClock.doFrame();
+        mObserver.assertValues(1).assertError(IllegalStateException.class);
+    }
+
+    @Test
+    public void disposeDropsPendingValue() {
+        mProgress.onNext(1);
+        mObserver.dispose();
+        mClock.doFrame();
+        mObserver.assertNoValues();
+        assertFalse(mProgress.hasObservers());
+    }
+}
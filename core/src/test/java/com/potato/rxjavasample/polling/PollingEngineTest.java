@@ -0,0 +1,190 @@
+package com.potato.rxjavasample.polling;
+
+import com.potato.rxjavasample.schedulers.SchedulerProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 计时使用TestScheduler，work直接在计时回调中执行（trampoline），work通过推进时间来模拟耗时
+ */
+public class PollingEngineTest {
+    private TestScheduler mScheduler;
+    private PollingEngine mEngine;
+    //每次work开始的时间，毫秒
+    private List<Long> mStarts;
+    //第i次work的耗时，超出部分为0
+    private long[] mDurations = new long[0];
+    //第i次work的结果，超出部分为i
+    private int[] mValues;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TestScheduler();
+        mEngine = new PollingEngine(new SchedulerProvider() {
+            @Override
+            public Scheduler io() {
+                return Schedulers.trampoline();
+            }
+
+            @Override
+            public Scheduler computation() {
+                return mScheduler;
+            }
+
+            @Override
+            public Scheduler ui() {
+                return Schedulers.trampoline();
+            }
+        }, new Random(42));
+        mStarts = new ArrayList<>();
+    }
+
+    private Callable<Integer> work() {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                int index = mStarts.size();
+                mStarts.add(mScheduler.now(TimeUnit.MILLISECONDS));
+                if (index < mDurations.length && mDurations[index] > 0) {
+                    mScheduler.advanceTimeBy(mDurations[index], TimeUnit.MILLISECONDS);
+                }
+                return mValues != null && index < mValues.length ? mValues[index] : index;
+            }
+        };
+    }
+
+    @Test
+    public void fixedRate_keepsSchedule() {
+        mDurations = new long[]{500, 1000, 200};
+        mEngine.poll(work(), PollingSchedule.fixedRate(3, TimeUnit.SECONDS)).test();
+
+        mScheduler.advanceTimeTo(12, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(0L, 3000L, 6000L, 9000L, 12000L), mStarts);
+    }
+
+    @Test
+    public void fixedRate_reportsOverrunAndSkipsMissedPeriods() {
+        mDurations = new long[]{0, 4000};
+        TestObserver<PollResult<Integer>> observer = mEngine.poll(work(), PollingSchedule.fixedRate(3, TimeUnit.SECONDS)).test();
+
+        mScheduler.advanceTimeTo(12, TimeUnit.SECONDS);
+
+        //第二次3s开始，7s结束，6s的那次被跳过
+        assertEquals(Arrays.asList(0L, 3000L, 9000L, 12000L), mStarts);
+        PollResult<Integer> overrun = observer.values().get(1);
+        assertTrue(overrun.isOverrun());
+        assertEquals(4000, overrun.getDurationMillis());
+        assertEquals(1, overrun.getSkippedPeriods());
+        assertFalse(observer.values().get(2).isOverrun());
+    }
+
+    @Test
+    public void fixedDelay_waitsAfterWork() {
+        mDurations = new long[]{1000, 1000, 1000};
+        mEngine.poll(work(), PollingSchedule.fixedDelay(3, TimeUnit.SECONDS)).test();
+
+        mScheduler.advanceTimeTo(12, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(0L, 4000L, 8000L, 12000L), mStarts);
+    }
+
+    @Test
+    public void backsOffWhileUnchanged() {
+        mValues = new int[]{1, 1, 1, 1, 1, 2, 2};
+        TestObserver<PollResult<Integer>> observer = mEngine.poll(work(),
+                PollingSchedule.fixedDelay(1, TimeUnit.SECONDS).withBackoff(2, 8, TimeUnit.SECONDS)).test();
+
+        mScheduler.advanceTimeTo(1, TimeUnit.MINUTES);
+
+        //1、2、4、8、8s，结果变化后恢复为1s
+        assertEquals(Arrays.asList(0L, 1000L, 3000L, 7000L, 15000L, 23000L, 24000L, 26000L), mStarts.subList(0, 8));
+        List<PollResult<Integer>> results = observer.values();
+        assertTrue(results.get(0).isChanged());
+        assertFalse(results.get(1).isChanged());
+        assertTrue(results.get(5).isChanged());
+        assertEquals(1000, results.get(5).getNextPeriodMillis());
+    }
+
+    @Test
+    public void jitterStaysWithinBounds() {
+        mEngine.poll(work(), PollingSchedule.fixedRate(10, TimeUnit.SECONDS).withJitter(0.2)).test();
+
+        mScheduler.advanceTimeTo(1, TimeUnit.HOURS);
+
+        boolean varied = false;
+        for (int i = 1; i < mStarts.size(); i++) {
+            //抖动不累积，第i次在计划时间 i * 10s 的±2s内
+            long offset = mStarts.get(i) - i * 10000L;
+            assertTrue("offset " + offset, Math.abs(offset) <= 2000);
+            varied |= offset != mStarts.get(1) - 10000L;
+        }
+        assertTrue(varied);
+        assertTrue(mStarts.size() >= 359);
+    }
+
+    @Test
+    public void pausedPollersRunOnceOnResume() {
+        mEngine.poll(work(), PollingSchedule.fixedRate(3, TimeUnit.SECONDS)).test();
+        mScheduler.advanceTimeTo(5, TimeUnit.SECONDS);
+        mEngine.pause();
+
+        mScheduler.advanceTimeTo(20, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(0L, 3000L), mStarts);
+
+        mEngine.resume();
+        mScheduler.advanceTimeTo(26, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(0L, 3000L, 20000L, 23000L, 26000L), mStarts);
+    }
+
+    @Test
+    public void pollersShareOneTimer() {
+        TestObserver<PollResult<Integer>> first = mEngine.poll(work(), PollingSchedule.fixedRate(3, TimeUnit.SECONDS)).test();
+        TestObserver<PollResult<Integer>> second = mEngine.poll(work(), PollingSchedule.fixedDelay(5, TimeUnit.SECONDS)).test();
+        assertEquals(2, mEngine.getPollerCount());
+
+        mScheduler.advanceTimeTo(15, TimeUnit.SECONDS);
+        first.assertValueCount(6);
+        second.assertValueCount(4);
+
+        first.dispose();
+        assertEquals(1, mEngine.getPollerCount());
+        mScheduler.advanceTimeTo(30, TimeUnit.SECONDS);
+        first.assertValueCount(6);
+        second.assertValueCount(7);
+
+        mEngine.dispose();
+        mScheduler.advanceTimeTo(1, TimeUnit.HOURS);
+        second.assertValueCount(7);
+    }
+
+    @Test
+    public void workErrorEndsPoller() {
+        TestObserver<PollResult<Integer>> observer = mEngine.poll(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new IllegalStateException("offline");
+            }
+        }, PollingSchedule.fixedRate(3, TimeUnit.SECONDS)).test();
+
+        mScheduler.triggerActions();
+        observer.assertErrorMessage("offline");
+    }
+}
@@ -0,0 +1,83 @@
+package com.potato.rxjavasample.retry;
+
+import com.potato.rxjavasample.schedulers.TestSchedulerProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.observers.TestObserver;
+
+import static org.junit.Assert.assertEquals;
+
+public class RetryPipelineTest {
+    //最长等待时间等于初始等待时间，抖动范围为0，每次都正好等待2秒
+    private static final RetryPolicy POLICY = RetryPolicy.decorrelatedJitter(2, TimeUnit.SECONDS)
+            .retryOn(IOException.class, 2, TimeUnit.SECONDS)
+            .withMaxRetries(4);
+
+    private TestSchedulerProvider mSchedulers;
+    private RetryPipeline mPipeline;
+    private int mAttempts;
+
+    @Before
+    public void setUp() {
+        mSchedulers = new TestSchedulerProvider();
+        mPipeline = new RetryPipeline(mSchedulers);
+    }
+
+    //依次返回errors中的错误，之后成功
+    private Observable<String> failing(final Throwable... errors) {
+        return Observable.create(new ObservableOnSubscribe<String>() {
+            @Override
+            public void subscribe(ObservableEmitter<String> emitter) throws Exception {
+                int attempt = mAttempts++;
+                if (attempt < errors.length) {
+                    emitter.onError(errors[attempt]);
+                } else {
+                    emitter.onNext("Work Success");
+                    emitter.onComplete();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void retry_succeedsAfterBackoff() {
+        TestObserver<String> observer = mPipeline.retry(failing(new IOException(), new IOException(),
+                new IOException(), new IOException()), POLICY).test();
+
+        //4 * 2 = 8秒之后才成功
+        mSchedulers.advanceTimeTo(8000 - 1, TimeUnit.MILLISECONDS);
+        observer.assertNoValues().assertNotTerminated();
+        assertEquals(4, mAttempts);
+
+        mSchedulers.advanceTimeTo(8000, TimeUnit.MILLISECONDS);
+        observer.assertResult("Work Success");
+        assertEquals(5, mAttempts);
+    }
+
+    @Test
+    public void retry_givesUpAfterMaxRetries() {
+        TestObserver<String> observer = mPipeline.retry(failing(new IOException("1"), new IOException("2"),
+                new IOException("3")), POLICY.withMaxRetries(2)).test();
+
+        mSchedulers.advanceTimeBy(1, TimeUnit.HOURS);
+        observer.assertNoValues().assertErrorMessage("3");
+        assertEquals(3, mAttempts);
+    }
+
+    @Test
+    public void retry_doesNotRetryUnknownErrors() {
+        TestObserver<String> observer = mPipeline.retry(failing(new IOException(), new IllegalStateException("fatal")), POLICY).test();
+
+        mSchedulers.advanceTimeBy(2000, TimeUnit.MILLISECONDS);
+        observer.assertNoValues().assertErrorMessage("fatal");
+        assertEquals(2, mAttempts);
+    }
+}
@@ -0,0 +1,194 @@
+package com.potato.rxjavasample.retry;
+
+import com.potato.rxjavasample.schedulers.TestSchedulerProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+    private static final RetryPolicy POLICY = RetryPolicy.decorrelatedJitter(10, TimeUnit.SECONDS)
+            .retryOn(SocketTimeoutException.class, 500, TimeUnit.MILLISECONDS)
+            .retryOn(IOException.class, 2, TimeUnit.SECONDS)
+            .withMaxRetries(4);
+
+    private TestSchedulerProvider mSchedulers;
+    //每次订阅的时间，毫秒
+    private List<Long> mAttempts;
+
+    @Before
+    public void setUp() {
+        mSchedulers = new TestSchedulerProvider();
+        mAttempts = new ArrayList<>();
+    }
+
+    //依次返回errors中的错误，之后成功
+    private Observable<String> failing(final Throwable... errors) {
+        return Observable.create(new ObservableOnSubscribe<String>() {
+            @Override
+            public void subscribe(ObservableEmitter<String> emitter) throws Exception {
+                int attempt = mAttempts.size();
+                mAttempts.add(mSchedulers.now(TimeUnit.MILLISECONDS));
+                if (attempt < errors.length) {
+                    emitter.onError(errors[attempt]);
+                } else {
+                    emitter.onNext("Work Success");
+                    emitter.onComplete();
+                }
+            }
+        });
+    }
+
+    private <T> RetryTransformer<T> transformer(RetryPolicy policy) {
+        return policy.transformer(mSchedulers.getScheduler(), new Random(42));
+    }
+
+    @Test
+    public void classifiesErrorsByType() {
+        TestObserver<String> observer = failing(new SocketTimeoutException(), new IOException("reset"))
+                .compose(this.<String>transformer(POLICY)).test();
+
+        mSchedulers.advanceTimeBy(1, TimeUnit.MINUTES);
+        observer.assertResult("Work Success");
+        assertEquals(3, mAttempts.size());
+        //第一次等待来自SocketTimeoutException的500ms，而不是父类IOException的2s
+        long firstDelay = mAttempts.get(1) - mAttempts.get(0);
+        assertTrue(firstDelay >= 500 && firstDelay < 2000);
+        assertTrue(mAttempts.get(2) - mAttempts.get(1) >= 2000);
+    }
+
+    @Test
+    public void doesNotRetryUnknownErrors() {
+        IllegalStateException error = new IllegalStateException("bad request");
+        TestObserver<String> observer = failing(error).compose(this.<String>transformer(POLICY)).test();
+
+        observer.assertFailure(IllegalStateException.class);
+        assertEquals(1, mAttempts.size());
+    }
+
+    @Test
+    public void delaysUseDecorrelatedJitterUpToMaxDelay() {
+        RetryPolicy policy = RetryPolicy.decorrelatedJitter(3, TimeUnit.SECONDS)
+                .retryOn(IOException.class, 100, TimeUnit.MILLISECONDS)
+                .withMaxRetries(20);
+        Random random = new Random(7);
+        long previous = 0;
+        for (int i = 0; i < 20; i++) {
+            long delay = policy.nextDelayMillis(100, previous, random);
+            assertTrue(delay >= 100);
+            assertTrue(delay <= Math.max(100, previous) * 3);
+            assertTrue(delay <= 3000);
+            previous = delay;
+        }
+        //第一次重试也有抖动，在 [base, base * 3] 之间
+        Set<Long> firstDelays = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            long delay = policy.nextDelayMillis(100, 0, random);
+            assertTrue(delay >= 100 && delay <= 300);
+            firstDelays.add(delay);
+        }
+        assertTrue(firstDelays.size() > 1);
+    }
+
+    @Test
+    public void givesUpAfterMaxRetries() {
+        TestObserver<String> observer = failing(new IOException("1"), new IOException("2"), new IOException("3"))
+                .compose(this.<String>transformer(POLICY.withMaxRetries(2))).test();
+
+        mSchedulers.advanceTimeBy(1, TimeUnit.HOURS);
+        observer.assertNoValues().assertErrorMessage("3");
+        assertEquals(3, mAttempts.size());
+    }
+
+    @Test
+    public void givesUpWhenMaxElapsedWouldBeExceeded() {
+        //每次至少等待2s，第三次等待会超过5s
+        TestObserver<String> observer = failing(new IOException("1"), new IOException("2"), new IOException("3"))
+                .compose(this.<String>transformer(POLICY.withMaxElapsed(5, TimeUnit.SECONDS))).test();
+
+        mSchedulers.advanceTimeBy(1, TimeUnit.HOURS);
+        observer.assertNoValues().assertError(IOException.class);
+        assertTrue(mAttempts.get(mAttempts.size() - 1) <= 5000);
+        assertTrue(mAttempts.size() < 4);
+    }
+
+    @Test
+    public void eachSubscriptionHasItsOwnState() {
+        Observable<String> observable = failing(new IOException("1"), new IOException("2"), new IOException("3"), new IOException("4"))
+                .compose(this.<String>transformer(POLICY.withMaxRetries(2)));
+
+        TestObserver<String> first = observable.test();
+        mSchedulers.advanceTimeBy(1, TimeUnit.HOURS);
+        first.assertErrorMessage("3");
+
+        //第二次订阅重新开始计数，而不是继承第一次已经用掉的2次
+        TestObserver<String> second = observable.test();
+        mSchedulers.advanceTimeBy(1, TimeUnit.HOURS);
+        second.assertResult("Work Success");
+        assertEquals(5, mAttempts.size());
+    }
+
+    @Test
+    public void sharedBudgetLimitsRetries() {
+        RetryBudget budget = new RetryBudget(0.5, 2);
+        RetryPolicy policy = POLICY.withMaxRetries(10).withBudget(budget);
+
+        //两个数据流共用2个令牌，第一次订阅时桶是满的，放入的0.5个被丢弃，用完2个之后放弃
+        TestObserver<String> first = failing(new IOException("a"), new IOException("b"), new IOException("c"),
+                new IOException("d"), new IOException("e"), new IOException("f"))
+                .compose(this.<String>transformer(policy)).test();
+        mSchedulers.advanceTimeBy(1, TimeUnit.HOURS);
+        first.assertError(IOException.class);
+        assertEquals(2, budget.getRetryCount());
+        assertEquals(1, budget.getRejectedCount());
+
+        mAttempts.clear();
+        TestSubscriber<String> second = failing(new IOException("a"), new IOException("b"), new IOException("c"))
+                .toFlowable(BackpressureStrategy.BUFFER)
+                .compose(this.<String>transformer(policy)).test();
+        mSchedulers.advanceTimeBy(1, TimeUnit.HOURS);
+        //第二次订阅只放入0.5个，不够一次重试
+        second.assertError(IOException.class);
+        assertEquals(1, mAttempts.size());
+        assertEquals(2, budget.getRetryCount());
+        assertEquals(2, budget.getRejectedCount());
+        assertEquals(2, budget.getRequestCount());
+    }
+
+    @Test
+    public void budgetRefillsWithNewRequests() {
+        RetryBudget budget = new RetryBudget(0.25, 1);
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+        for (int i = 0; i < 3; i++) {
+            budget.onRequest();
+        }
+        assertFalse(budget.tryRetry());
+        budget.onRequest();
+        assertTrue(budget.tryRetry());
+        //最多maxTokens个
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        assertEquals(1, budget.getTokens(), 0);
+    }
+}
@@ -0,0 +1,165 @@
+package com.potato.rxjavasample.schedulers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.observers.TestObserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 使用真实时间，每格10ms，断言只检查顺序和大致的时间范围
+ */
+public class HashedWheelSchedulerTest {
+    private static final long TICK_MILLIS = 10;
+
+    private HashedWheelScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new HashedWheelScheduler(TICK_MILLIS, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdown();
+    }
+
+    @Test
+    public void timerFiresAfterDelay() {
+        long start = System.nanoTime();
+        TestObserver<Long> observer = Observable.timer(100, TimeUnit.MILLISECONDS, mScheduler).test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        observer.assertValue(0L).assertComplete();
+        assertTrue("elapsed " + elapsed, elapsed >= 100);
+    }
+
+    @Test
+    public void delayKeepsOrderBeyondOneRound() {
+        //64格 * 10ms = 640ms一圈，1000ms需要转一圈以上
+        TestObserver<Integer> observer = Observable.range(1, 5).delay(1000, TimeUnit.MILLISECONDS, mScheduler).test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        observer.assertValues(1, 2, 3, 4, 5).assertComplete();
+    }
+
+    @Test
+    public void intervalReusesOneThread() {
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        TestObserver<Long> observer = Observable.interval(0, 20, TimeUnit.MILLISECONDS, mScheduler)
+                .take(10)
+                .doOnNext(new io.reactivex.functions.Consumer<Long>() {
+                    @Override
+                    public void accept(Long aLong) throws Exception {
+                        threads.add(Thread.currentThread().getName());
+                    }
+                })
+                .test();
+
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        observer.assertValueCount(10).assertComplete();
+        assertEquals(1, threads.size());
+        assertTrue(threads.iterator().next().startsWith("RxHashedWheel-"));
+    }
+
+    @Test
+    public void workerRunsImmediateTasksInOrder() throws Exception {
+        Scheduler.Worker worker = mScheduler.createWorker();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            final int index = i;
+            worker.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(index);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        worker.dispose();
+    }
+
+    @Test
+    public void disposedTasksDoNotRun() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        Disposable direct = mScheduler.scheduleDirect(task, 50, TimeUnit.MILLISECONDS);
+        Scheduler.Worker worker = mScheduler.createWorker();
+        worker.schedule(task, 50, TimeUnit.MILLISECONDS);
+        Disposable periodic = mScheduler.schedulePeriodicallyDirect(task, 50, 50, TimeUnit.MILLISECONDS);
+
+        direct.dispose();
+        worker.dispose();
+        periodic.dispose();
+        Thread.sleep(300);
+
+        assertEquals(0, runs.get());
+        assertEquals(0, mScheduler.getWheelCount());
+    }
+
+    @Test
+    public void handlesHundredThousandPendingTimers() throws Exception {
+        final int count = 100000;
+        final CountDownLatch done = new CountDownLatch(count);
+        final AtomicInteger runs = new AtomicInteger();
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+                runs.incrementAndGet();
+                done.countDown();
+            }
+        };
+        Random random = new Random(1);
+        //一半的任务会被取消，超过一圈（640ms）的也有
+        List<Disposable> cancelled = new ArrayList<>();
+        for (int i = 0; i < count * 2; i++) {
+            Disposable disposable = mScheduler.scheduleDirect(task, 200 + random.nextInt(1000), TimeUnit.MILLISECONDS);
+            if (i % 2 == 1) {
+                cancelled.add(disposable);
+            }
+        }
+        for (Disposable disposable : cancelled) {
+            disposable.dispose();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        //取消的任务最多再过一圈就会被移除
+        Thread.sleep(700);
+        assertEquals(count, runs.get());
+        assertEquals(0, mScheduler.getWheelCount());
+        assertEquals(1, threads.size());
+    }
+}
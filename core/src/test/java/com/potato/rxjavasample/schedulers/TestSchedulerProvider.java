@@ -0,0 +1,62 @@
+package com.potato.rxjavasample.schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.TestScheduler;
+
+/**
+ * 所有线程都是同一个TestScheduler，时间只有在调用advanceTimeBy/advanceTimeTo/triggerActions时才会前进
+ * <p>
+ * 几个小时的轮询、重试的退避、debounce的等待都可以在几毫秒内执行完，
+ * 并且每个事件发生的时间是确定的，可以直接检查结果是否在预期的时间内到达。
+ */
+public class TestSchedulerProvider implements SchedulerProvider {
+    private final TestScheduler mScheduler;
+
+    public TestSchedulerProvider() {
+        this(new TestScheduler());
+    }
+
+    public TestSchedulerProvider(TestScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    @Override
+    public Scheduler io() {
+        return mScheduler;
+    }
+
+    @Override
+    public Scheduler computation() {
+        return mScheduler;
+    }
+
+    @Override
+    public Scheduler ui() {
+        return mScheduler;
+    }
+
+    public TestScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    public void advanceTimeBy(long delay, TimeUnit unit) {
+        mScheduler.advanceTimeBy(delay, unit);
+    }
+
+    public void advanceTimeTo(long time, TimeUnit unit) {
+        mScheduler.advanceTimeTo(time, unit);
+    }
+
+    /**
+     * 执行当前时间点上已经到期的任务，时间不前进
+     */
+    public void triggerActions() {
+        mScheduler.triggerActions();
+    }
+
+    public long now(TimeUnit unit) {
+        return mScheduler.now(unit);
+    }
+}
@@ -0,0 +1,114 @@
+package com.potato.rxjavasample.search;
+
+import com.potato.rxjavasample.flow.FlowableInput;
+import com.potato.rxjavasample.schedulers.TestSchedulerProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchPipelineTest {
+    private static final long BACKEND_LATENCY = 300;
+    private static final long DEBOUNCE_INITIAL = 200;
+    //最后一次按键到展示结果的时间上限：初始等待时间 + 后台耗时
+    private static final long LATENCY_BUDGET = DEBOUNCE_INITIAL + BACKEND_LATENCY;
+
+    private TestSchedulerProvider mSchedulers;
+    private SimulatedSearchBackend mBackend;
+    private AdaptiveDebounce<String> mDebounce;
+    private SearchPipeline mPipeline;
+    private TestSubscriber<SearchResult> mSubscriber;
+
+    @Before
+    public void setUp() {
+        mSchedulers = new TestSchedulerProvider();
+        mBackend = new SimulatedSearchBackend(mSchedulers.io(), BACKEND_LATENCY, BACKEND_LATENCY, 20);
+        mDebounce = new AdaptiveDebounce<>(50, 600, DEBOUNCE_INITIAL, mSchedulers.computation());
+        //不缓存任何结果，每次都要请求后台，AdaptiveDebounce统计到的耗时就是后台的耗时
+        mPipeline = new SearchPipeline(FlowableInput.<String>latest(), mDebounce,
+                new SearchCache(mBackend, 0), mSchedulers);
+        mSubscriber = mPipeline.results().test();
+    }
+
+    //按照gap的间隔逐个字符输入word，返回最后一次按键的时间
+    private long type(String word, long gap) {
+        for (int i = 1; i <= word.length(); i++) {
+            if (i > 1) {
+                mSchedulers.advanceTimeBy(gap, TimeUnit.MILLISECONDS);
+            }
+            mPipeline.onQueryChanged(word.substring(0, i));
+            mSchedulers.triggerActions();
+        }
+        return mSchedulers.now(TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void fastTyping_issuesOneRequestWithinBudget() {
+        long lastKey = type("rxjava", 60);
+
+        mSchedulers.advanceTimeTo(lastKey + LATENCY_BUDGET, TimeUnit.MILLISECONDS);
+        mSubscriber.assertValueCount(1);
+        assertEquals("rxjava", mSubscriber.values().get(0).getQuery());
+        assertEquals(1, mDebounce.getIssuedCount());
+        assertEquals(1, mBackend.getCompletedCount());
+    }
+
+    @Test
+    public void adaptedWindow_staysWithinBudget() {
+        //打字一个小时，每个词之间停顿3秒
+        String[] words = {"retrofit", "observable", "switchmap", "debounce", "flowable"};
+        int bursts = 0;
+        long start = mSchedulers.now(TimeUnit.MILLISECONDS);
+        while (mSchedulers.now(TimeUnit.MILLISECONDS) - start < TimeUnit.HOURS.toMillis(1)) {
+            String word = words[bursts++ % words.length];
+            long lastKey = type(word, 60);
+            int shown = mSubscriber.valueCount();
+            mSchedulers.advanceTimeTo(lastKey + LATENCY_BUDGET, TimeUnit.MILLISECONDS);
+            assertTrue("第" + bursts + "次输入超时", mSubscriber.valueCount() > shown);
+            assertEquals(word, mSubscriber.values().get(mSubscriber.valueCount() - 1).getQuery());
+            mSchedulers.advanceTimeBy(3000, TimeUnit.MILLISECONDS);
+        }
+        //统计到按键间隔之后等待时间会缩短，但不会比按键间隔更短
+        assertTrue(mDebounce.getWindow() < DEBOUNCE_INITIAL);
+        assertTrue(mDebounce.getWindow() > 60);
+        mSubscriber.assertNoErrors();
+    }
+
+    @Test
+    public void emptyQueryIsNotIssued() {
+        mPipeline.onQueryChanged("r");
+        mSchedulers.advanceTimeBy(LATENCY_BUDGET, TimeUnit.MILLISECONDS);
+        //删掉了所有字符
+        mPipeline.onQueryChanged("");
+        mSchedulers.advanceTimeBy(LATENCY_BUDGET, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, mDebounce.getIssuedCount());
+        assertEquals(1, mBackend.getCompletedCount());
+    }
+
+    @Test
+    public void cacheHitsDoNotShrinkWindow() {
+        mSubscriber.dispose();
+        mPipeline = new SearchPipeline(FlowableInput.<String>latest(), mDebounce,
+                new SearchCache(mBackend, 1024 * 1024), mSchedulers);
+        mSubscriber = mPipeline.results().test();
+        //反复输入同一个词，只有第一次请求后台，之后都完全命中缓存
+        for (int i = 0; i < 50; i++) {
+            long lastKey = type("rxjava", 60);
+            mSchedulers.advanceTimeTo(lastKey + LATENCY_BUDGET, TimeUnit.MILLISECONDS);
+            mSchedulers.advanceTimeBy(3000, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(1, mBackend.getCompletedCount());
+        assertEquals(50, mDebounce.getIssuedCount());
+        //后台耗时仍然是300ms，比按键间隔长，不能退化成最短的等待时间
+        assertTrue("window " + mDebounce.getWindow(), mDebounce.getWindow() > 60);
+        mSubscriber.assertValueCount(50);
+    }
+}
@@ -0,0 +1,87 @@
+package com.potato.rxjavasample.sensor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+
+public class SlidingWindowAggregatorTest {
+    private static final int PANES = 10;
+
+    @Test
+    public void matchesRecomputingWholeWindow() {
+        TestScheduler scheduler = new TestScheduler();
+        SlidingWindowAggregator aggregator = new SlidingWindowAggregator(10, 1, TimeUnit.SECONDS, 0, 40, 400, scheduler);
+        TestObserver<PercentileStats> observer = aggregator.windows().test();
+        Random random = new Random(1);
+        //每个hop内记录的数据，用来直接计算整个窗口的结果
+        List<List<Double>> hops = new ArrayList<>();
+
+        for (int hop = 0; hop < 1000; hop++) {
+            List<Double> values = new ArrayList<>();
+            //偶尔有完全没有数据的hop，以及超出直方图范围的数据
+            int count = random.nextInt(10) == 0 ? 0 : random.nextInt(50);
+            for (int i = 0; i < count; i++) {
+                double value = random.nextGaussian() * 10 + 20;
+                values.add(value);
+                aggregator.record(value);
+            }
+            hops.add(values);
+            scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+            PercentileStats actual = observer.values().get(hop);
+            assertWindow(hops.subList(Math.max(0, hops.size() - PANES), hops.size()), actual);
+        }
+    }
+
+    @Test
+    public void emptyWindowIsZero() {
+        TestScheduler scheduler = new TestScheduler();
+        SlidingWindowAggregator aggregator = new SlidingWindowAggregator(3, 1, TimeUnit.SECONDS, 0, 40, 400, scheduler);
+        TestObserver<PercentileStats> observer = aggregator.windows().test();
+
+        aggregator.record(5);
+        scheduler.advanceTimeBy(4, TimeUnit.SECONDS);
+
+        PercentileStats stats = observer.values().get(3);
+        assertEquals(0, stats.getStats().getCount());
+        assertEquals(0, stats.getStats().getMin(), 0);
+        assertEquals(0, stats.getStats().getMax(), 0);
+        assertEquals(0, stats.getP99(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooManyPanes() {
+        new SlidingWindowAggregator(SlidingWindowAggregator.MAX_PANES + 1, 1, TimeUnit.SECONDS, 0, 40, 400, new TestScheduler());
+    }
+
+    private static void assertWindow(List<List<Double>> hops, PercentileStats actual) {
+        StatsAccumulator expected = new StatsAccumulator();
+        HistogramSketch sketch = new HistogramSketch(0, 40, 400);
+        for (List<Double> values : hops) {
+            for (double value : values) {
+                expected.add(value);
+                sketch.add(value);
+            }
+        }
+        WindowStats stats = actual.getStats();
+        assertEquals(expected.getCount(), stats.getCount());
+        if (expected.getCount() == 0) {
+            return;
+        }
+        WindowStats expectedStats = expected.toStats(0, 0);
+        assertEquals(expectedStats.getSum(), stats.getSum(), 1e-6);
+        assertEquals(expectedStats.getMin(), stats.getMin(), 0);
+        assertEquals(expectedStats.getMax(), stats.getMax(), 0);
+        assertEquals(expectedStats.getVariance(), stats.getVariance(), 1e-6);
+        double p95 = Math.max(expected.getMin(), Math.min(expected.getMax(), sketch.quantile(0.95)));
+        assertEquals(p95, actual.getP95(), 0);
+    }
+}
@@ -0,0 +1,83 @@
+package com.potato.rxjavasample.trace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RxTracerTest {
+    private static final Function<Integer, Integer> DOUBLE = new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer value) throws Exception {
+            return value * 2;
+        }
+    };
+
+    private TestScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TestScheduler();
+        RxTracer.enable();
+    }
+
+    @After
+    public void tearDown() {
+        RxTracer.disable();
+        RxTracer.reset();
+    }
+
+    private Observable<Integer> assemble(String name) {
+        RxTracer.beginPipeline(name);
+        try {
+            return Observable.range(0, 10).map(DOUBLE).observeOn(mScheduler);
+        } finally {
+            RxTracer.endPipeline();
+        }
+    }
+
+    @Test
+    public void recordsEachStage() {
+        TestObserver<Integer> observer = assemble("test").test();
+        List<StageStats> stages = RxTracer.getPipeline("test").getStages();
+        assertEquals(3, stages.size());
+        StageStats range = stages.get(0);
+        StageStats map = stages.get(1);
+        StageStats observeOn = stages.get(2);
+        assertEquals("0:ObservableRange", range.getName());
+        assertTrue(observeOn.isAsyncBoundary());
+
+        //observeOn的任务还没有执行，数据全部在队列中
+        assertEquals(10, range.getCount());
+        assertEquals(10, map.getCount());
+        assertEquals(0, observeOn.getCount());
+        assertEquals(10, observeOn.getMaxQueueDepth());
+
+        mScheduler.triggerActions();
+        observer.assertValueCount(10).assertComplete();
+        assertEquals(10, observeOn.getCount());
+        //map在range的onNext中同步发出，observeOn在scheduler的任务中发出
+        assertEquals(0, map.getHops());
+        assertEquals(10, observeOn.getHops());
+    }
+
+    @Test
+    public void ignoresUnnamedAndDisabledAssembly() {
+        Observable.range(0, 10).map(DOUBLE).test();
+        assertTrue(RxTracer.getPipelines().isEmpty());
+
+        RxTracer.disable();
+        assemble("disabled").test();
+        assertNull(RxTracer.getPipeline("disabled"));
+    }
+}